@@ -0,0 +1,42 @@
+package benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.ProfilerConfig;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * 基准入口：接受 JMH 的全部命令行参数，默认附加 GC 分析器（含每次操作分配字节数 gc.alloc.rate.norm），
+ * 结果以 JSON 写入 benchmarks/results/jmh-时间戳.json，便于多次运行对比。
+ * 例：java -jar benchmarks/target/benchmarks.jar StudentManagerBenchmark -p rosterSize=1000,100000
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cli);
+
+        boolean hasGcProfiler = false;
+        for (ProfilerConfig profiler : cli.getProfilers()) {
+            hasGcProfiler |= "gc".equals(profiler.getKlass()) || GCProfiler.class.getName().equals(profiler.getKlass());
+        }
+        if (!hasGcProfiler) {
+            options.addProfiler(GCProfiler.class);
+        }
+        if (!cli.getResult().hasValue()) {
+            File dir = new File(System.getProperty("bench.results", "benchmarks/results"));
+            dir.mkdirs();
+            String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+            options.resultFormat(ResultFormatType.JSON)
+                    .result(new File(dir, "jmh-" + stamp + ".json").getPath());
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,378 @@
+package benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * 可复现的合成数据生成器：写出 students.txt 与成绩导入 CSV，用于基准测试与长时间压力测试。
+ * 同一组参数（含种子）生成的内容逐字节相同；逐行流式写出，不在内存中保留名单，可生成任意大小的文件。
+ * 名单始终是合法数据；重复课程、错误行、全角标点按比例注入（错误行与全角标点只出现在成绩文件中，
+ * 因为数据文件本身不支持全角分隔符）。
+ *
+ * 命令行：java -cp benchmarks/target/benchmarks.jar benchmark.DatasetGenerator --out=目录 [--参数=值 ...]
+ */
+public class DatasetGenerator {
+    private static final String[] MAJOR_NAMES = {
+            "计算机科学与技术", "软件工程", "网络工程", "信息安全", "数据科学与大数据技术",
+            "人工智能", "电子信息工程", "通信工程", "自动化", "物联网工程",
+            "数学与应用数学", "统计学", "物理学", "机械工程", "土木工程", "金融学"
+    };
+    /** 课程目录：课程名与固定学分 */
+    private static final String[] COURSE_NAMES = {
+            "高等数学", "大学英语", "程序设计基础", "数据结构", "线性代数", "概率论与数理统计",
+            "离散数学", "操作系统", "计算机网络", "数据库原理", "编译原理", "软件工程导论",
+            "大学物理", "电路分析", "数字逻辑", "计算机组成原理", "算法设计与分析", "机器学习",
+            "马克思主义基本原理", "体育", "形势与政策", "人工智能导论", "信号与系统", "数值分析"
+    };
+    private static final double[] COURSE_CREDITS = {
+            5.0, 3.0, 4.0, 4.0, 3.0, 3.0,
+            3.0, 4.0, 3.5, 3.5, 3.0, 2.0,
+            4.0, 3.0, 3.0, 4.0, 3.0, 3.0,
+            3.0, 1.0, 1.0, 2.0, 3.0, 2.5
+    };
+    private static final String[] SURNAMES = {
+            "张", "李", "王", "刘", "陈", "杨", "赵", "黄", "周", "吴",
+            "徐", "孙", "胡", "朱", "高", "林", "何", "郭", "马", "罗"
+    };
+    private static final String[] GIVEN_NAMES = {
+            "伟", "芳", "娜", "敏", "静", "磊", "洋", "艳", "勇", "军", "杰", "涛",
+            "明", "超", "秀英", "华", "平", "刚", "桂英", "子轩", "雨涵", "浩然"
+    };
+    /** 成绩文件与名单使用不同的随机序列，两者可以分别生成 */
+    private static final long SCORE_STREAM = 0x5EEDL;
+
+    private long seed = 20240601L;
+    private int students = 10_000;
+    private int majors = 8;
+    private int classesPerMajor = 10;
+    private int coursesPerStudent = 8;
+    private double duplicateCourseRate;
+    private double malformedRate;
+    private double fullWidthRate;
+
+    public DatasetGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public DatasetGenerator students(int students) {
+        this.students = requireNonNegative("students", students);
+        return this;
+    }
+
+    public DatasetGenerator majors(int majors) {
+        this.majors = requirePositive("majors", majors);
+        return this;
+    }
+
+    public DatasetGenerator classesPerMajor(int classesPerMajor) {
+        this.classesPerMajor = requirePositive("classesPerMajor", classesPerMajor);
+        return this;
+    }
+
+    public DatasetGenerator coursesPerStudent(int coursesPerStudent) {
+        this.coursesPerStudent = requireNonNegative("coursesPerStudent", coursesPerStudent);
+        return this;
+    }
+
+    /** 每门课程（名单）或每行成绩（成绩文件）重复一门已有课程的概率 */
+    public DatasetGenerator duplicateCourseRate(double rate) {
+        this.duplicateCourseRate = requireRate("duplicateCourseRate", rate);
+        return this;
+    }
+
+    /** 成绩文件中错误行（字段数不对、数值非法、学号不存在）的比例 */
+    public DatasetGenerator malformedRate(double rate) {
+        this.malformedRate = requireRate("malformedRate", rate);
+        return this;
+    }
+
+    /** 成绩文件中使用全角逗号与全角空格的行的比例 */
+    public DatasetGenerator fullWidthRate(double rate) {
+        this.fullWidthRate = requireRate("fullWidthRate", rate);
+        return this;
+    }
+
+    public int getStudents() {
+        return students;
+    }
+
+    /**
+     * 第 index 个学生的学号：2021 + 至少 7 位序号，保证唯一且按序号递增
+     */
+    public String studentId(int index) {
+        String digits = Integer.toString(index);
+        int width = Math.max(7, Integer.toString(Math.max(0, students - 1)).length());
+        StringBuilder sb = new StringBuilder(4 + width).append("2021");
+        for (int i = digits.length(); i < width; i++) sb.append('0');
+        return sb.append(digits).toString();
+    }
+
+    /** 第 index 个专业的名称（超出内置列表时编号） */
+    public String majorName(int index) {
+        return index < MAJOR_NAMES.length ? MAJOR_NAMES[index] : "专业" + (index + 1);
+    }
+
+    /**
+     * 写出数据文件（与 FileManager.saveStudents 格式相同）
+     */
+    public long writeRoster(File file) throws IOException {
+        try (Writer writer = open(file)) {
+            return writeRoster(writer);
+        }
+    }
+
+    public long writeRoster(Writer writer) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        writer.write("# 学生信息管理系统数据文件\n");
+        writer.write("# 新格式: 学号,姓名,性别,年龄,专业,班级,联系电话,[课程1:学分:成绩|课程2:学分:成绩|...]\n");
+        StringBuilder line = new StringBuilder(256);
+        int[] taken = new int[Math.max(1, coursesPerStudent)];
+        for (int i = 0; i < students; i++) {
+            line.setLength(0);
+            int major = random.nextInt(majors);
+            String majorName = majorName(major);
+            line.append(studentId(i)).append(',')
+                    .append(SURNAMES[random.nextInt(SURNAMES.length)])
+                    .append(GIVEN_NAMES[random.nextInt(GIVEN_NAMES.length)]).append(',')
+                    .append(random.nextBoolean() ? "男" : "女").append(',')
+                    .append(18 + random.nextInt(6)).append(',')
+                    .append(majorName).append(',')
+                    .append(majorName, 0, Math.min(2, majorName.length()))
+                    .append(2101 + random.nextInt(classesPerMajor)).append(',')
+                    .append("1").append(30 + random.nextInt(10));
+            appendPadded(line, i % 100_000_000, 8);
+            line.append(",[");
+            int distinct = 0;
+            for (int c = 0; c < coursesPerStudent; c++) {
+                int course;
+                if (distinct > 0 && random.nextDouble() < duplicateCourseRate) {
+                    course = taken[random.nextInt(distinct)];
+                } else {
+                    course = pickCourse(random, taken, distinct);
+                    taken[distinct++] = course;
+                }
+                if (c > 0) line.append('|');
+                line.append(COURSE_NAMES[course]).append(':')
+                        .append(COURSE_CREDITS[course]).append(':')
+                        .append(score(random));
+            }
+            line.append("]\n");
+            writer.append(line);
+        }
+        return students;
+    }
+
+    /**
+     * 写出成绩导入文件：每个学生 coursesPerStudent 行（学号,课程名,学分,成绩），返回数据行数。
+     * 学号与名单一致；重复行紧跟在同一学生的已有课程之后，成绩不同
+     */
+    public long writeScores(File file) throws IOException {
+        try (Writer writer = open(file)) {
+            return writeScores(writer, 0, students);
+        }
+    }
+
+    /**
+     * 写出第 part 个（从 0 开始，共 parts 个）成绩文件：按学号区间切分，多个文件可用于批量导入
+     */
+    public long writeScores(File file, int part, int parts) throws IOException {
+        long from = (long) students * part / parts;
+        long to = (long) students * (part + 1) / parts;
+        try (Writer writer = open(file)) {
+            return writeScores(writer, (int) from, (int) to);
+        }
+    }
+
+    public long writeScores(Writer writer, int fromStudent, int toStudent) throws IOException {
+        writer.write("# 学号,课程名,学分,成绩\n");
+        StringBuilder line = new StringBuilder(128);
+        int[] taken = new int[Math.max(1, coursesPerStudent)];
+        long rows = 0;
+        for (int i = fromStudent; i < toStudent; i++) {
+            // 每个学生独立的随机序列：切分成多个文件时内容与单个文件一致
+            SplittableRandom random = new SplittableRandom(mix(seed ^ SCORE_STREAM, i));
+            String id = studentId(i);
+            int distinct = 0;
+            for (int c = 0; c < coursesPerStudent; c++) {
+                line.setLength(0);
+                int course;
+                if (distinct > 0 && random.nextDouble() < duplicateCourseRate) {
+                    course = taken[random.nextInt(distinct)];
+                } else {
+                    course = pickCourse(random, taken, distinct);
+                    taken[distinct++] = course;
+                }
+                String separator = ",";
+                String padding = "";
+                if (random.nextDouble() < fullWidthRate) {
+                    separator = "，";
+                    padding = random.nextBoolean() ? "　" : " ";
+                }
+                if (random.nextDouble() < malformedRate) {
+                    appendMalformed(line, random, id, course, separator);
+                } else {
+                    line.append(padding).append(id).append(separator)
+                            .append(COURSE_NAMES[course]).append(separator).append(padding)
+                            .append(COURSE_CREDITS[course]).append(separator)
+                            .append(score(random)).append(padding);
+                }
+                line.append('\n');
+                writer.append(line);
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private void appendMalformed(StringBuilder line, SplittableRandom random, String id, int course, String separator) {
+        switch (random.nextInt(4)) {
+            case 0: // 缺少成绩列
+                line.append(id).append(separator).append(COURSE_NAMES[course]).append(separator)
+                        .append(COURSE_CREDITS[course]);
+                break;
+            case 1: // 成绩不是数字
+                line.append(id).append(separator).append(COURSE_NAMES[course]).append(separator)
+                        .append(COURSE_CREDITS[course]).append(separator).append("优秀");
+                break;
+            case 2: // 学号不存在
+                line.append("X").append(id).append(separator).append(COURSE_NAMES[course]).append(separator)
+                        .append(COURSE_CREDITS[course]).append(separator).append(score(random));
+                break;
+            default: // 多出一列
+                line.append(id).append(separator).append(COURSE_NAMES[course]).append(separator)
+                        .append(COURSE_CREDITS[course]).append(separator).append(score(random))
+                        .append(separator).append("备注");
+                break;
+        }
+    }
+
+    /** 选一门该学生还没有的课程（课程数超过目录时允许重复） */
+    private static int pickCourse(SplittableRandom random, int[] taken, int distinct) {
+        int course = random.nextInt(COURSE_NAMES.length);
+        if (distinct >= COURSE_NAMES.length) return course;
+        while (contains(taken, distinct, course)) {
+            course = course + 1 == COURSE_NAMES.length ? 0 : course + 1;
+        }
+        return course;
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) return true;
+        }
+        return false;
+    }
+
+    /** 成绩：40~100，一位小数 */
+    private static double score(SplittableRandom random) {
+        return (400 + random.nextInt(601)) / 10.0;
+    }
+
+    private static void appendPadded(StringBuilder sb, int value, int width) {
+        String digits = Integer.toString(value);
+        for (int i = digits.length(); i < width; i++) sb.append('0');
+        sb.append(digits);
+    }
+
+    private static long mix(long seed, long index) {
+        long z = seed + index * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static Writer open(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) parent.mkdirs();
+        return new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    private static int requirePositive(String name, int value) {
+        if (value <= 0) throw new IllegalArgumentException(name + " 必须大于 0: " + value);
+        return value;
+    }
+
+    private static int requireNonNegative(String name, int value) {
+        if (value < 0) throw new IllegalArgumentException(name + " 不能为负数: " + value);
+        return value;
+    }
+
+    private static double requireRate(String name, double value) {
+        if (!(value >= 0 && value <= 1)) throw new IllegalArgumentException(name + " 必须在 0~1 之间: " + value);
+        return value;
+    }
+
+    private static void usage() {
+        System.out.println("用法: java -cp benchmarks.jar benchmark.DatasetGenerator --out=目录 [选项]");
+        System.out.println("  --seed=N                 随机种子（默认 20240601）");
+        System.out.println("  --students=N             学生人数（默认 10000）");
+        System.out.println("  --majors=N               专业数（默认 8）");
+        System.out.println("  --classes-per-major=N    每个专业的班级数（默认 10）");
+        System.out.println("  --courses-per-student=N  每个学生的课程数 / 成绩行数（默认 8）");
+        System.out.println("  --duplicate-rate=R       重复课程比例 0~1（默认 0）");
+        System.out.println("  --malformed-rate=R       成绩文件错误行比例 0~1（默认 0）");
+        System.out.println("  --full-width-rate=R      成绩文件全角标点行比例 0~1（默认 0）");
+        System.out.println("  --score-files=N          成绩文件个数，按学号区间切分（默认 1，0 表示不生成）");
+        System.out.println("  --no-roster              不生成 students.txt");
+    }
+
+    public static void main(String[] args) throws IOException {
+        DatasetGenerator generator = new DatasetGenerator();
+        File out = null;
+        int scoreFiles = 1;
+        boolean roster = true;
+        try {
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                String key = eq < 0 ? arg : arg.substring(0, eq);
+                String value = eq < 0 ? "" : arg.substring(eq + 1);
+                switch (key) {
+                    case "--out": out = new File(value); break;
+                    case "--seed": generator.seed(Long.parseLong(value)); break;
+                    case "--students": generator.students(Integer.parseInt(value)); break;
+                    case "--majors": generator.majors(Integer.parseInt(value)); break;
+                    case "--classes-per-major": generator.classesPerMajor(Integer.parseInt(value)); break;
+                    case "--courses-per-student": generator.coursesPerStudent(Integer.parseInt(value)); break;
+                    case "--duplicate-rate": generator.duplicateCourseRate(Double.parseDouble(value)); break;
+                    case "--malformed-rate": generator.malformedRate(Double.parseDouble(value)); break;
+                    case "--full-width-rate": generator.fullWidthRate(Double.parseDouble(value)); break;
+                    case "--score-files": scoreFiles = Integer.parseInt(value); break;
+                    case "--no-roster": roster = false; break;
+                    default:
+                        usage();
+                        System.exit(Arrays.asList("-h", "--help").contains(key) ? 0 : 2);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("参数错误: " + e.getMessage());
+            System.exit(2);
+        }
+        if (out == null) {
+            usage();
+            System.exit(2);
+        }
+
+        long start = System.nanoTime();
+        if (roster) {
+            File file = new File(out, "students.txt");
+            generator.writeRoster(file);
+            System.out.println("已生成 " + file + "（" + generator.getStudents() + " 名学生，"
+                    + (file.length() >> 20) + " MB）");
+        }
+        for (int part = 0; part < scoreFiles; part++) {
+            File file = new File(out, scoreFiles == 1 ? "scores.csv" : String.format("scores-%02d.csv", part + 1));
+            long rows = generator.writeScores(file, part, scoreFiles);
+            System.out.println("已生成 " + file + "（" + rows + " 行，" + (file.length() >> 20) + " MB）");
+        }
+        System.out.printf("耗时 %.1f 秒%n", (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,59 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import service.ExcelExporter;
+import service.ExportUtil;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 排名导出：CSV（ExportUtil）与 XLSX（ExcelExporter）。
+ * 排名结果由 StudentManager 缓存，预热后测量的是导出本身
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ExportBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Target {
+        String major;
+        File csv;
+        File xlsx;
+
+        @Setup(Level.Trial)
+        public void setUp(RosterState roster) {
+            major = roster.anyMajor();
+            csv = roster.file("export.csv");
+            xlsx = roster.file("export.xlsx");
+        }
+    }
+
+    @Benchmark
+    public boolean csvMajorRanking(RosterState roster, Target target) {
+        return ExportUtil.exportMajorRanking(roster.manager, target.major, target.csv);
+    }
+
+    @Benchmark
+    public boolean csvAllRanking(RosterState roster, Target target) {
+        return ExportUtil.exportAllRanking(roster.manager, target.csv);
+    }
+
+    @Benchmark
+    public boolean xlsxMajorRanking(RosterState roster, Target target) {
+        return ExcelExporter.exportMajorRankingXlsx(roster.manager, target.major, target.xlsx);
+    }
+
+    @Benchmark
+    public boolean xlsxAllRanking(RosterState roster, Target target) {
+        return ExcelExporter.exportAllRankingXlsx(roster.manager, target.xlsx);
+    }
+
+    @Benchmark
+    public boolean xlsxAllMajorsWorkbook(RosterState roster, Target target) {
+        return ExcelExporter.exportAllMajorsWorkbookXlsx(roster.manager, target.xlsx);
+    }
+}
@@ -0,0 +1,43 @@
+package benchmark;
+
+import model.Student;
+import org.openjdk.jmh.annotations.*;
+import service.FileManager;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数据文件整体读写
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class FileManagerBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Files {
+        FileManager reader;
+        FileManager writer;
+        List<Student> students;
+
+        @Setup(Level.Trial)
+        public void setUp(RosterState roster) {
+            reader = new FileManager(roster.pristineFile.getPath());
+            writer = new FileManager(roster.file("save-target.txt").getPath());
+            students = roster.manager.getAllStudents();
+        }
+    }
+
+    @Benchmark
+    public List<Student> loadStudents(Files files) {
+        return files.reader.loadStudents();
+    }
+
+    @Benchmark
+    public boolean saveStudents(Files files) {
+        return files.writer.saveStudents(files.students);
+    }
+}
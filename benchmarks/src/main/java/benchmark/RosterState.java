@@ -0,0 +1,72 @@
+package benchmark;
+
+import model.Student;
+import org.openjdk.jmh.annotations.*;
+import service.StudentManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * 按名单规模参数化的共享状态：临时目录中的数据文件 + 已加载的 StudentManager
+ */
+@State(Scope.Benchmark)
+public class RosterState {
+    /** 每个学生的课程数 */
+    static final int COURSES_PER_STUDENT = 8;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int rosterSize;
+
+    /** 与名单一致的数据生成器（成绩文件也由它生成） */
+    DatasetGenerator generator;
+    Path dir;
+    File dataFile;
+    /** 未被修改的数据文件副本，修改类基准用它恢复 */
+    File pristineFile;
+    StudentManager manager;
+    String[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("sims-bench");
+        dataFile = dir.resolve("students.txt").toFile();
+        pristineFile = dir.resolve("students.pristine.txt").toFile();
+        generator = new DatasetGenerator()
+                .students(rosterSize)
+                .coursesPerStudent(COURSES_PER_STUDENT);
+        generator.writeRoster(pristineFile);
+        restore();
+        manager = new StudentManager(dataFile.getPath());
+        ids = new String[rosterSize];
+        for (int i = 0; i < rosterSize; i++) {
+            ids[i] = generator.studentId(i);
+        }
+    }
+
+    /** 把数据文件恢复为初始内容 */
+    void restore() throws IOException {
+        Files.copy(pristineFile.toPath(), dataFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    File file(String name) {
+        return dir.resolve(name).toFile();
+    }
+
+    String anyMajor() {
+        Student first = manager.findStudentById(ids[0]);
+        return first.getMajor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 成绩导入（解析、校验、应用与一次保存）。
+ * 导入会修改名单并写回数据文件，每次调用前恢复数据文件并重新加载（不计入耗时）
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ScoreImportBenchmark {
+    /** 每个学生的导入行数 */
+    private static final int ROWS_PER_STUDENT = 4;
+    /** 接近真实文件的噪声：少量重复课程、错误行与全角标点 */
+    private static final double DUPLICATE_RATE = 0.05;
+    private static final double MALFORMED_RATE = 0.001;
+    private static final double FULL_WIDTH_RATE = 0.1;
+
+    @State(Scope.Benchmark)
+    public static class ScoreFile {
+        File file;
+
+        @Setup(Level.Trial)
+        public void setUp(RosterState roster) throws IOException {
+            file = roster.file("scores.csv");
+            new DatasetGenerator()
+                    .students(roster.rosterSize)
+                    .coursesPerStudent(ROWS_PER_STUDENT)
+                    .duplicateCourseRate(DUPLICATE_RATE)
+                    .malformedRate(MALFORMED_RATE)
+                    .fullWidthRate(FULL_WIDTH_RATE)
+                    .writeScores(file);
+        }
+
+        @Setup(Level.Invocation)
+        public void reset(RosterState roster) throws IOException {
+            roster.restore();
+            roster.manager.loadData();
+        }
+    }
+
+    @Benchmark
+    public int importScoresFromFile(RosterState roster, ScoreFile scores) {
+        return roster.manager.importScoresFromFile(scores.file.getPath());
+    }
+}
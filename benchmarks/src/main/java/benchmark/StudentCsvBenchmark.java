@@ -0,0 +1,55 @@
+package benchmark;
+
+import model.Student;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单条学生记录的 CSV 序列化与解析。
+ * 单条记录的耗时与名单规模无关，这里按课程数参数化
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StudentCsvBenchmark {
+    private static final int SAMPLES = 1024;
+
+    @Param({"0", "8", "32"})
+    public int coursesPerStudent;
+
+    private Student[] students;
+    private String[] lines;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        StringWriter roster = new StringWriter();
+        new DatasetGenerator().students(SAMPLES).coursesPerStudent(coursesPerStudent).writeRoster(roster);
+        students = new Student[SAMPLES];
+        lines = new String[SAMPLES];
+        int i = 0;
+        for (String line : roster.toString().split("\n")) {
+            if (line.startsWith("#")) continue;
+            lines[i] = line;
+            students[i++] = Student.fromCSV(line);
+        }
+    }
+
+    @Benchmark
+    public String toCSV() {
+        next = (next + 1) & (SAMPLES - 1);
+        return students[next].toCSV();
+    }
+
+    @Benchmark
+    public Student fromCSV() {
+        next = (next + 1) & (SAMPLES - 1);
+        return Student.fromCSV(lines[next]);
+    }
+}
@@ -0,0 +1,65 @@
+package benchmark;
+
+import model.Student;
+import org.openjdk.jmh.annotations.*;
+import service.RankingService;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * StudentManager 查询类操作：按学号查找、综合搜索、统计、专业排名（命中缓存 / 重新计算）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class StudentManagerBenchmark {
+
+    /** 每个线程依次轮换查找的学号 */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public Student findStudentById(RosterState roster, Cursor cursor) {
+        String id = roster.ids[cursor.next];
+        cursor.next = cursor.next + 1 == roster.ids.length ? 0 : cursor.next + 1;
+        return roster.manager.findStudentById(id);
+    }
+
+    @Benchmark
+    public List<Student> search(RosterState roster) {
+        // 姓氏关键字：命中约十分之一的学生
+        return roster.manager.search("王");
+    }
+
+    @Benchmark
+    public Map<String, Object> getStatistics(RosterState roster) {
+        return roster.manager.getStatistics();
+    }
+
+    @Benchmark
+    public List<Student> getStudentsByMajorRanked(RosterState roster, MajorState major) {
+        return roster.manager.getStudentsByMajorRanked(major.major);
+    }
+
+    /** 不经缓存重新计算一个专业的排名 */
+    @Benchmark
+    public RankingService.Ranking rankMajorUncached(RosterState roster, MajorState major) {
+        return new RankingService(roster.manager::getAllStudents).getMajor(major.major);
+    }
+
+    @State(Scope.Benchmark)
+    public static class MajorState {
+        String major;
+
+        @Setup(Level.Trial)
+        public void setUp(RosterState roster) {
+            major = roster.anyMajor();
+        }
+    }
+}
@@ -0,0 +1,5 @@
+@echo off
+REM 命令行（无界面）模式，例如：cli.bat stats、cli.bat import scores.csv --report=report.txt
+chcp 65001 >nul
+java -Dfile.encoding=UTF-8 -Djava.awt.headless=true -cp "%~dp0bin" cli.SimsCli %*
+exit /b %errorlevel%
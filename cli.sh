@@ -0,0 +1,12 @@
+#!/bin/bash
+# 命令行（无界面）模式，例如：./cli.sh stats、./cli.sh import scores.csv --report=report.txt
+
+DIR="$(cd "$(dirname "$0")" && pwd)"
+
+# 检查是否已编译
+if [ ! -d "$DIR/bin" ]; then
+    echo "Compilation file not found, compiling..." >&2
+    (cd "$DIR" && ./compile.sh) >&2 || exit 1
+fi
+
+exec java -Dfile.encoding=UTF-8 -Djava.awt.headless=true -cp "$DIR/bin" cli.SimsCli "$@"
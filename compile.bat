@@ -7,7 +7,7 @@ REM 创建编译输出目录
 if not exist "bin" mkdir bin
 
 REM 编译所有Java文件
-javac -encoding UTF-8 -d bin -sourcepath src src\Main.java src\model\*.java src\service\*.java src\gui\*.java
+javac -encoding UTF-8 -d bin -sourcepath src src\Main.java src\model\*.java src\service\*.java src\gui\*.java src\cli\*.java src\server\*.java
 
 if %errorlevel% == 0 (
     echo Compilation successful!
@@ -7,7 +7,7 @@ echo "Compiling the Student Information Management System..."
 mkdir -p bin
 
 # 编译所有Java文件
-javac -encoding UTF-8 -d bin -sourcepath src src/Main.java src/model/*.java src/service/*.java src/gui/*.java
+javac -encoding UTF-8 -d bin -sourcepath src src/Main.java src/model/*.java src/service/*.java src/gui/*.java src/cli/*.java src/server/*.java
 
 if [ $? -eq 0 ]; then
     echo "Compilation successful!"
@@ -1,6 +1,7 @@
 import gui.LoginDialog;
 import gui.MainFrame;
 import model.User;
+import service.ManagementService;
 import service.UserManager;
 
 import javax.swing.*;
@@ -35,6 +36,10 @@ public class Main {
                 }
 
                 MainFrame frame = new MainFrame(user);
+                // 以 -Dsims.jmx=true 启动时注册 JMX 监控，名单访问在事件调度线程执行（通过服务访问数据时不注册）
+                if (Boolean.getBoolean("sims.jmx") && frame.getStudentManager() != null) {
+                    ManagementService.register(frame.getStudentManager(), SwingUtilities::invokeLater);
+                }
                 frame.setVisible(true);
             } catch (Exception e) {
                 System.err.println("启动系统失败: " + e.getMessage());
@@ -0,0 +1,346 @@
+package cli;
+
+import model.DuplicateCoursePolicy;
+import model.Student;
+import server.SimsServer;
+import service.ExcelExporter;
+import service.ExportUtil;
+import service.FileManager;
+import service.ImportProgress;
+import service.ScoreImporter;
+import service.StudentManager;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 命令行（无界面）入口：在服务器上执行批量导入、导出、统计、备份与数据校验。
+ * 只使用 service / model 包，不加载任何 gui 类，并以 java.awt.headless=true 运行。
+ * 用法：java -cp bin cli.SimsCli [--data=数据文件] 命令 [参数]
+ * 退出码：0 成功；1 执行失败；2 用法错误；3 已完成但存在问题行（导入问题行、校验发现错误）
+ */
+public final class SimsCli {
+    public static final int EXIT_OK = 0;
+    public static final int EXIT_FAILED = 1;
+    public static final int EXIT_USAGE = 2;
+    public static final int EXIT_PROBLEMS = 3;
+
+    /** 进度输出间隔 */
+    private static final long PROGRESS_INTERVAL_MS = 1000;
+
+    private SimsCli() {
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        System.exit(run(args));
+    }
+
+    /**
+     * 执行一条命令并返回退出码
+     */
+    public static int run(String[] args) {
+        String dataPath = null;
+        List<String> rest = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--data=")) {
+                dataPath = arg.substring("--data=".length());
+            } else {
+                rest.add(arg);
+            }
+        }
+        if (rest.isEmpty() || rest.get(0).equals("help") || rest.get(0).equals("--help") || rest.get(0).equals("-h")) {
+            usage();
+            return rest.isEmpty() ? EXIT_USAGE : EXIT_OK;
+        }
+        if (dataPath == null) {
+            dataPath = defaultDataPath();
+        }
+        String command = rest.get(0);
+        List<String> params = rest.subList(1, rest.size());
+        try {
+            switch (command) {
+                case "import":
+                    return importScores(dataPath, params);
+                case "export-major":
+                    return exportMajor(dataPath, params);
+                case "export-all":
+                    return exportAll(dataPath, params);
+                case "stats":
+                    return stats(dataPath);
+                case "backup":
+                    return backup(dataPath);
+                case "verify":
+                    return verify(dataPath);
+                case "serve":
+                    return SimsServer.serve(dataPath, new ArrayList<>(params));
+                default:
+                    System.err.println("未知命令: " + command);
+                    usage();
+                    return EXIT_USAGE;
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("参数错误: " + e.getMessage());
+            return EXIT_USAGE;
+        } catch (IOException e) {
+            System.err.println("执行失败: " + e.getMessage());
+            return EXIT_FAILED;
+        }
+    }
+
+    private static void usage() {
+        System.out.println("用法: java -cp bin cli.SimsCli [--data=数据文件] 命令 [参数]");
+        System.out.println("命令:");
+        System.out.println("  import 文件或目录... [--mode=BEST_EFFORT|DRY_RUN|ALL_OR_NOTHING]");
+        System.out.println("         [--policy=APPEND|REPLACE|KEEP_BEST|KEEP_LATEST] [--report=报告文件] [--reimport]");
+        System.out.println("                                   导入成绩（目录展开为其中的 csv/txt/xlsx；"
+                + "同名课程默认 " + DuplicateCoursePolicy.DEFAULT + "）");
+        System.out.println("  export-major 专业 输出文件        导出专业排名（.xlsx 为 Excel，其余为 CSV）");
+        System.out.println("  export-all 输出文件 [--workbook]  导出全体排名；--workbook 时每个专业一个工作表（仅 .xlsx）");
+        System.out.println("  stats                            输出统计信息");
+        System.out.println("  backup                           备份数据文件");
+        System.out.println("  verify                           逐行校验数据文件（格式、重复学号、课程）");
+        System.out.println("  serve [--port=8080] [--bind=127.0.0.1] [--users=用户文件]");
+        System.out.println("                                   启动本机 HTTP/JSON 服务（持有数据文件，Ctrl+C 停止）");
+        System.out.println("退出码: 0 成功, 1 执行失败, 2 用法错误, 3 完成但存在问题行");
+    }
+
+    /**
+     * 与界面相同：从 bin 目录运行时使用上级目录的数据文件
+     */
+    private static String defaultDataPath() {
+        String dataPath = "data/students.txt";
+        if (!new File(dataPath).exists() && new File("../data/students.txt").exists()) {
+            dataPath = "../data/students.txt";
+        }
+        return dataPath;
+    }
+
+    private static StudentManager open(String dataPath) throws IOException {
+        if (!new File(dataPath).isFile()) {
+            throw new IOException("数据文件不存在: " + dataPath);
+        }
+        return new StudentManager(dataPath);
+    }
+
+    private static int importScores(String dataPath, List<String> params) throws IOException {
+        ScoreImporter.Mode mode = ScoreImporter.Mode.BEST_EFFORT;
+        DuplicateCoursePolicy policy = DuplicateCoursePolicy.DEFAULT;
+        File report = null;
+        boolean reimport = false;
+        List<String> files = new ArrayList<>();
+        for (String p : params) {
+            if (p.startsWith("--mode=")) {
+                mode = ScoreImporter.Mode.valueOf(p.substring("--mode=".length()).toUpperCase());
+            } else if (p.startsWith("--policy=")) {
+                policy = DuplicateCoursePolicy.valueOf(p.substring("--policy=".length()).toUpperCase());
+            } else if (p.startsWith("--report=")) {
+                report = new File(p.substring("--report=".length()));
+            } else if (p.equals("--reimport")) {
+                reimport = true;
+            } else if (p.startsWith("--")) {
+                throw new IllegalArgumentException("未知选项: " + p);
+            } else {
+                File f = new File(p);
+                if (f.isDirectory()) {
+                    files.addAll(ScoreImporter.listScoreFiles(f));
+                } else if (f.isFile()) {
+                    files.add(f.getPath());
+                } else {
+                    throw new IllegalArgumentException("成绩文件不存在: " + p);
+                }
+            }
+        }
+        if (files.isEmpty()) {
+            throw new IllegalArgumentException("请指定成绩文件或目录");
+        }
+
+        StudentManager manager = open(dataPath);
+        // 未指定报告文件时问题行由导入引擎直接输出到标准错误
+        ImportProgress progress = new ImportProgress(null);
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cli-progress");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleAtFixedRate(() -> printProgress(progress),
+                PROGRESS_INTERVAL_MS, PROGRESS_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        ScoreImporter.BatchResult batch;
+        try {
+            batch = manager.importScores(files, mode, policy, report, reimport, progress);
+        } finally {
+            ticker.shutdownNow();
+        }
+
+        ScoreImporter.ImportResult total = batch.getTotal();
+        if (total.getFailureMessage() != null) {
+            System.err.println("导入失败: " + total.getFailureMessage());
+            return EXIT_FAILED;
+        }
+        if (report != null) {
+            System.out.println("问题报告: " + report.getPath());
+        }
+        return total.getProblemCount() > 0 ? EXIT_PROBLEMS : EXIT_OK;
+    }
+
+    private static void printProgress(ImportProgress progress) {
+        long total = progress.getTotalBytes();
+        String percent = total > 0 ? String.format("%.1f%%", progress.getBytesRead() * 100.0 / total) : "-";
+        long eta = progress.getEtaMillis();
+        System.err.printf("导入中: %s, 已解析 %d 行 (%.0f 行/秒)%s%n", percent, progress.getRowsParsed(),
+                progress.getRowsPerSecond(), eta >= 0 ? ", 预计剩余 " + (eta / 1000) + " 秒" : "");
+    }
+
+    private static int exportMajor(String dataPath, List<String> params) throws IOException {
+        if (params.size() != 2) {
+            throw new IllegalArgumentException("export-major 需要 专业 与 输出文件 两个参数");
+        }
+        String major = params.get(0);
+        File out = new File(params.get(1));
+        StudentManager manager = open(dataPath);
+        if (!manager.getAllMajors().contains(major)) {
+            System.err.println("专业不存在或没有学生: " + major);
+            return EXIT_FAILED;
+        }
+        boolean ok = isXlsx(out)
+                ? ExcelExporter.exportMajorRankingXlsx(manager, major, out)
+                : ExportUtil.exportMajorRanking(manager, major, out);
+        return finishExport(ok, out);
+    }
+
+    private static int exportAll(String dataPath, List<String> params) throws IOException {
+        boolean workbook = params.remove("--workbook");
+        if (params.size() != 1) {
+            throw new IllegalArgumentException("export-all 需要一个输出文件参数");
+        }
+        File out = new File(params.get(0));
+        if (workbook && !isXlsx(out)) {
+            throw new IllegalArgumentException("--workbook 只支持 .xlsx 输出");
+        }
+        StudentManager manager = open(dataPath);
+        boolean ok;
+        if (workbook) {
+            ok = ExcelExporter.exportAllMajorsWorkbookXlsx(manager, out);
+        } else if (isXlsx(out)) {
+            ok = ExcelExporter.exportAllRankingXlsx(manager, out);
+        } else {
+            ok = ExportUtil.exportAllRanking(manager, out);
+        }
+        return finishExport(ok, out);
+    }
+
+    private static boolean isXlsx(File file) {
+        return file.getName().toLowerCase().endsWith(".xlsx");
+    }
+
+    private static int finishExport(boolean ok, File out) {
+        if (!ok) {
+            System.err.println("导出失败: " + out.getPath());
+            return EXIT_FAILED;
+        }
+        System.out.println("已导出: " + out.getPath() + "（" + out.length() + " 字节）");
+        return EXIT_OK;
+    }
+
+    private static int stats(String dataPath) throws IOException {
+        StudentManager manager = open(dataPath);
+        for (Map.Entry<String, Object> e : manager.getStatistics().entrySet()) {
+            Object value = e.getValue();
+            if (value instanceof Map) {
+                System.out.println(e.getKey() + ":");
+                for (Map.Entry<?, ?> item : ((Map<?, ?>) value).entrySet()) {
+                    System.out.println("  " + item.getKey() + ": " + item.getValue());
+                }
+            } else {
+                System.out.println(e.getKey() + ": " + value);
+            }
+        }
+        return EXIT_OK;
+    }
+
+    private static int backup(String dataPath) throws IOException {
+        if (!new File(dataPath).isFile()) {
+            throw new IOException("数据文件不存在: " + dataPath);
+        }
+        if (!new FileManager(dataPath).backupData()) {
+            System.err.println("备份失败: " + dataPath);
+            return EXIT_FAILED;
+        }
+        System.out.println("已备份: " + dataPath + ".backup");
+        return EXIT_OK;
+    }
+
+    /**
+     * 逐行校验数据文件，不整体加载：无法解析的行、课程项解析失败、重复学号
+     */
+    private static int verify(String dataPath) throws IOException {
+        if (!new File(dataPath).isFile()) {
+            throw new IOException("数据文件不存在: " + dataPath);
+        }
+        Map<String, Long> firstLineById = new HashMap<>();
+        long lineNumber = 0;
+        long studentCount = 0;
+        long courseCount = 0;
+        long problems = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(dataPath), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                Student student;
+                try {
+                    student = Student.fromCSV(line);
+                } catch (RuntimeException e) {
+                    System.out.println("第 " + lineNumber + " 行: 无法解析 - " + e.getMessage());
+                    problems++;
+                    continue;
+                }
+                studentCount++;
+                courseCount += student.getCourseCount();
+                int declared = declaredCourseCount(line);
+                if (declared != student.getCourseCount()) {
+                    System.out.println("第 " + lineNumber + " 行: " + student.getStudentId() + " 有 "
+                            + (declared - student.getCourseCount()) + " 门课程无法解析");
+                    problems++;
+                }
+                Long first = firstLineById.putIfAbsent(student.getStudentId(), lineNumber);
+                if (first != null) {
+                    System.out.println("第 " + lineNumber + " 行: 学号 " + student.getStudentId()
+                            + " 与第 " + first + " 行重复");
+                    problems++;
+                }
+            }
+        }
+        System.out.println("校验完成: " + studentCount + " 名学生, " + courseCount + " 门课程记录, "
+                + problems + " 处问题");
+        return problems > 0 ? EXIT_PROBLEMS : EXIT_OK;
+    }
+
+    /**
+     * 行中课程段 [..|..] 的非空课程项数
+     */
+    private static int declaredCourseCount(String line) {
+        int start = line.indexOf(",[");
+        if (start < 0) return 0;
+        int end = line.indexOf(']', start);
+        String courses = end < 0 ? line.substring(start + 2) : line.substring(start + 2, end);
+        int count = 0;
+        for (String item : courses.split("\\|")) {
+            if (!item.trim().isEmpty()) count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,49 @@
+package gui;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * 界面异步加载：数据源调用在后台完成后回到事件调度线程更新界面，失败时弹出错误提示。
+ * 已完成的结果（进程内数据源）直接在当前线程应用，与同步调用的行为相同
+ */
+final class AsyncUi {
+
+    private AsyncUi() {
+    }
+
+    static <T> void apply(Component parent, CompletableFuture<T> future, Consumer<T> onSuccess) {
+        apply(future, onSuccess, cause -> {
+            System.err.println("加载数据失败: " + cause.getMessage());
+            JOptionPane.showMessageDialog(parent,
+                    "加载数据失败: " + cause.getMessage(), "错误",
+                    JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    /**
+     * 同上，失败时把原因交给 onFailure（如修改操作按操作类型提示）
+     */
+    static <T> void apply(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        if (future.isDone() && SwingUtilities.isEventDispatchThread()) {
+            finish(future, onSuccess, onFailure);
+        } else {
+            future.whenComplete((value, error) -> SwingUtilities.invokeLater(() -> finish(future, onSuccess, onFailure)));
+        }
+    }
+
+    private static <T> void finish(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        T value;
+        try {
+            value = future.join();
+        } catch (CompletionException | CancellationException e) {
+            onFailure.accept(e.getCause() != null ? e.getCause() : e);
+            return;
+        }
+        onSuccess.accept(value);
+    }
+}
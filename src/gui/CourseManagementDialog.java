@@ -1,8 +1,9 @@
 package gui;
 
 import model.Course;
+import model.DuplicateCoursePolicy;
 import model.Student;
-import service.StudentManager;
+import service.StudentDataSource;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
@@ -15,7 +16,7 @@ import java.awt.event.MouseEvent;
 import java.util.List;
 
 public class CourseManagementDialog extends JDialog {
-    private final StudentManager studentManager;
+    private final StudentDataSource studentManager;
     private final Student student;
     private JTable courseTable;
     private DefaultTableModel tableModel;
@@ -32,7 +33,7 @@ public class CourseManagementDialog extends JDialog {
     private static final Color TEXT_COLOR = new Color(44, 62, 80);
     private static final Color HEADER_COLOR = new Color(52, 73, 94);
 
-    public CourseManagementDialog(Frame parent, StudentManager studentManager, Student student) {
+    public CourseManagementDialog(Frame parent, StudentDataSource studentManager, Student student) {
         super(parent, "课程管理 - " + student.getName() + " (" + student.getStudentId() + ")", true);
         this.studentManager = studentManager;
         this.student = student;
@@ -181,9 +182,15 @@ public class CourseManagementDialog extends JDialog {
         gpaLabel.setText("课程数: " + student.getCourseCount() + "  总学分: " + student.getTotalCredits() + "  GPA: " + String.format("%.2f", student.getGpa()));
     }
 
+    @Override
+    public void dispose() {
+        // 对话框关闭后不再需要课程名索引
+        student.releaseCourseIndex();
+        super.dispose();
+    }
+
     private void persistAndRefresh() {
-        student.calculateGPA();
-        studentManager.saveData();
+        studentManager.saveCourseChanges(student);
         refreshTable();
     }
 
@@ -191,10 +198,24 @@ public class CourseManagementDialog extends JDialog {
         JTextField nameField = new JTextField();
         JTextField creditField = new JTextField();
         JTextField scoreField = new JTextField();
+        JComboBox<DuplicateCoursePolicy> policyBox = new JComboBox<>(DuplicateCoursePolicy.values());
+        policyBox.setSelectedItem(DuplicateCoursePolicy.REPLACE);
+        policyBox.setRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+                if (value instanceof DuplicateCoursePolicy) {
+                    setText(((DuplicateCoursePolicy) value).getDisplayName());
+                }
+                return this;
+            }
+        });
         JPanel panel = new JPanel(new GridLayout(0,2,5,5));
         panel.add(new JLabel("课程名称:")); panel.add(nameField);
         panel.add(new JLabel("学分:")); panel.add(creditField);
         panel.add(new JLabel("成绩:")); panel.add(scoreField);
+        panel.add(new JLabel("同名课程:")); panel.add(policyBox);
         int result = JOptionPane.showConfirmDialog(this, panel, "添加课程", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
         if (result == JOptionPane.OK_OPTION) {
             try {
@@ -202,7 +223,12 @@ public class CourseManagementDialog extends JDialog {
                 double credit = Double.parseDouble(creditField.getText().trim());
                 double score = Double.parseDouble(scoreField.getText().trim());
                 if (name.isEmpty()) throw new IllegalArgumentException("课程名称不能为空");
-                student.addCourse(new Course(name, credit, score));
+                DuplicateCoursePolicy policy = (DuplicateCoursePolicy) policyBox.getSelectedItem();
+                DuplicateCoursePolicy.Outcome outcome = student.mergeCourse(new Course(name, credit, score), policy);
+                if (outcome == DuplicateCoursePolicy.Outcome.KEPT) {
+                    JOptionPane.showMessageDialog(this, "已有同名课程且成绩更高，保留原记录", "提示", JOptionPane.INFORMATION_MESSAGE);
+                    return;
+                }
                 persistAndRefresh();
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(this, "添加失败: " + ex.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
@@ -231,9 +257,7 @@ public class CourseManagementDialog extends JDialog {
                 double credit = Double.parseDouble(creditField.getText().trim());
                 double score = Double.parseDouble(scoreField.getText().trim());
                 if (name.isEmpty()) throw new IllegalArgumentException("课程名称不能为空");
-                course.setCourseName(name);
-                course.setCredit(credit);
-                course.setScore(score);
+                student.updateCourse(row, name, credit, score);
                 persistAndRefresh();
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(this, "更新失败: " + ex.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
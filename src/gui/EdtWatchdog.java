@@ -0,0 +1,237 @@
+package gui;
+
+import service.Metrics;
+
+import javax.swing.*;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 界面线程（EDT）卡顿监视器
+ * 后台线程每隔 {@link #PROBE_INTERVAL_MS} 毫秒向 EDT 投递一个探测任务，记录其排队到执行的延迟；
+ * 探测任务超过阈值仍未执行时抓取 EDT 调用栈（卡顿持续期间每个探测周期再抓一次，最多
+ * {@link #MAX_SAMPLES} 份），EDT 恢复后把本次卡顿写入滚动日志，并在 EDT 上通知监听方（状态栏指示）。
+ * 日志超过 {@link #MAX_LOG_BYTES} 字节时改名为 .1 后重新开始，只保留一份旧日志。
+ * 阈值可用 -Dsims.edt.threshold=毫秒 调整，-Dsims.edt.watchdog=false 关闭。
+ */
+public class EdtWatchdog {
+    /** 探测间隔 */
+    static final long PROBE_INTERVAL_MS = 100;
+    /** 单次卡顿最多保留的调用栈份数 */
+    static final int MAX_SAMPLES = 5;
+    /** 日志文件大小上限 */
+    static final long MAX_LOG_BYTES = 1 << 20;
+    /** 每份调用栈最多记录的帧数 */
+    private static final int MAX_FRAMES = 40;
+
+    /**
+     * 一次卡顿：开始时间、持续时间与期间抓取的 EDT 调用栈
+     */
+    public static final class Stall {
+        private final long startTime;
+        private final long durationMillis;
+        private final List<StackTraceElement[]> samples;
+
+        Stall(long startTime, long durationMillis, List<StackTraceElement[]> samples) {
+            this.startTime = startTime;
+            this.durationMillis = durationMillis;
+            this.samples = samples;
+        }
+
+        public long getStartTime() {
+            return startTime;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        public List<StackTraceElement[]> getSamples() {
+            return samples;
+        }
+
+        /**
+         * 第一份调用栈中最靠近栈顶的本程序代码（gui/service/model 包），便于判断是哪个操作
+         */
+        public String getCulprit() {
+            if (samples.isEmpty()) return "未知";
+            for (StackTraceElement frame : samples.get(0)) {
+                String cls = frame.getClassName();
+                if (cls.startsWith("gui.") || cls.startsWith("service.") || cls.startsWith("model.")) {
+                    return frame.getClassName().substring(cls.lastIndexOf('.') + 1) + "." + frame.getMethodName()
+                            + "(" + frame.getFileName() + ":" + frame.getLineNumber() + ")";
+                }
+            }
+            StackTraceElement top = samples.get(0).length > 0 ? samples.get(0)[0] : null;
+            return top == null ? "未知" : top.toString();
+        }
+    }
+
+    private final long thresholdMillis;
+    private final File logFile;
+    private final Consumer<Stall> listener;
+    private volatile boolean running;
+    private Thread thread;
+    private volatile Thread edt;
+
+    // 当前探测任务是否已在 EDT 上执行
+    private volatile boolean probeDone = true;
+
+    /**
+     * @param thresholdMillis 判定为卡顿的派发延迟（毫秒）
+     * @param logFile 卡顿日志文件
+     * @param listener 卡顿结束后在 EDT 上回调，可为 null
+     */
+    public EdtWatchdog(long thresholdMillis, File logFile, Consumer<Stall> listener) {
+        this.thresholdMillis = thresholdMillis;
+        this.logFile = logFile;
+        this.listener = listener;
+    }
+
+    /**
+     * 按系统属性创建并启动；-Dsims.edt.watchdog=false 时返回 null
+     */
+    public static EdtWatchdog startDefault(File logFile, Consumer<Stall> listener) {
+        if (!Boolean.parseBoolean(System.getProperty("sims.edt.watchdog", "true"))) {
+            return null;
+        }
+        long threshold = Long.getLong("sims.edt.threshold", 500L);
+        EdtWatchdog watchdog = new EdtWatchdog(threshold, logFile, listener);
+        watchdog.start();
+        return watchdog;
+    }
+
+    public long getThresholdMillis() {
+        return thresholdMillis;
+    }
+
+    public File getLogFile() {
+        return logFile;
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this::run, "edt-watchdog");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) thread.interrupt();
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                long posted = System.nanoTime();
+                probeDone = false;
+                SwingUtilities.invokeLater(() -> {
+                    edt = Thread.currentThread();
+                    probeDone = true;
+                    Metrics.record("edt.dispatch", System.nanoTime() - posted);
+                });
+                awaitProbe(posted);
+                Thread.sleep(PROBE_INTERVAL_MS);
+            }
+        } catch (InterruptedException e) {
+            // 停止
+        }
+    }
+
+    /**
+     * 等待本次探测执行；超过阈值后按探测间隔抓取 EDT 调用栈，直到 EDT 恢复
+     */
+    private void awaitProbe(long posted) throws InterruptedException {
+        long thresholdNanos = thresholdMillis * 1_000_000L;
+        List<StackTraceElement[]> samples = null;
+        long stallStart = 0;
+        while (!probeDone) {
+            long waited = System.nanoTime() - posted;
+            if (waited < thresholdNanos) {
+                Thread.sleep(Math.max(1, Math.min(PROBE_INTERVAL_MS, (thresholdNanos - waited) / 1_000_000L)));
+                continue;
+            }
+            if (samples == null) {
+                samples = new ArrayList<>();
+                stallStart = System.currentTimeMillis() - waited / 1_000_000L;
+            }
+            Thread target = edt != null ? edt : findEdt();
+            if (target != null && samples.size() < MAX_SAMPLES) {
+                StackTraceElement[] stack = target.getStackTrace();
+                if (!probeDone && stack.length > 0) samples.add(stack);
+            }
+            Thread.sleep(PROBE_INTERVAL_MS);
+        }
+        if (samples != null) {
+            Stall stall = new Stall(stallStart, (System.nanoTime() - posted) / 1_000_000L, samples);
+            Metrics.count("edt.stall");
+            log(stall);
+            if (listener != null) {
+                SwingUtilities.invokeLater(() -> listener.accept(stall));
+            }
+        }
+    }
+
+    /**
+     * 第一次探测执行之前按线程名查找 EDT
+     */
+    private static Thread findEdt() {
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (t.getName().startsWith("AWT-EventQueue")) return t;
+        }
+        return null;
+    }
+
+    private void log(Stall stall) {
+        System.err.println("界面线程卡顿 " + stall.getDurationMillis() + " ms: " + stall.getCulprit());
+        if (logFile == null) return;
+        try {
+            File parent = logFile.getAbsoluteFile().getParentFile();
+            if (parent != null && !parent.exists()) parent.mkdirs();
+            if (logFile.length() > MAX_LOG_BYTES) {
+                File rolled = new File(logFile.getPath() + ".1");
+                if (rolled.exists() && !rolled.delete()) {
+                    System.err.println("无法删除旧的卡顿日志: " + rolled.getPath());
+                }
+                if (!logFile.renameTo(rolled)) {
+                    System.err.println("无法滚动卡顿日志: " + logFile.getPath());
+                }
+            }
+            try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(logFile, true), StandardCharsets.UTF_8))) {
+                SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+                writer.write("=== " + format.format(new Date(stall.getStartTime())) + " 界面线程卡顿 "
+                        + stall.getDurationMillis() + " ms（阈值 " + thresholdMillis + " ms）: " + stall.getCulprit());
+                writer.newLine();
+                List<StackTraceElement[]> samples = stall.getSamples();
+                for (int i = 0; i < samples.size(); i++) {
+                    writer.write("--- 调用栈 " + (i + 1) + "/" + samples.size());
+                    writer.newLine();
+                    StackTraceElement[] stack = samples.get(i);
+                    for (int f = 0; f < Math.min(stack.length, MAX_FRAMES); f++) {
+                        writer.write("\tat " + stack[f]);
+                        writer.newLine();
+                    }
+                    if (stack.length > MAX_FRAMES) {
+                        writer.write("\t... " + (stack.length - MAX_FRAMES) + " more");
+                        writer.newLine();
+                    }
+                }
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            System.err.println("写入卡顿日志失败: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package gui;
+
+import service.StudentDataSource;
+import service.StudentEvent;
+
+import javax.swing.*;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+
+/**
+ * 在事件调度线程接收数据变更事件：每处理完一批再请求下一批，处理期间产生的变更由发布者按学号合并
+ */
+final class EventSubscriber implements Flow.Subscriber<List<StudentEvent>> {
+    private final Consumer<List<StudentEvent>> handler;
+    private Flow.Subscription subscription;
+    private boolean cancelled;
+
+    private EventSubscriber(Consumer<List<StudentEvent>> handler) {
+        this.handler = handler;
+    }
+
+    static EventSubscriber subscribe(StudentDataSource source, Consumer<List<StudentEvent>> handler) {
+        EventSubscriber subscriber = new EventSubscriber(handler);
+        source.getEvents().subscribe(subscriber, SwingUtilities::invokeLater);
+        return subscriber;
+    }
+
+    /**
+     * 取消订阅（窗口关闭时调用）
+     */
+    void cancel() {
+        cancelled = true;
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        if (cancelled) {
+            subscription.cancel();
+        } else {
+            subscription.request(1);
+        }
+    }
+
+    @Override
+    public void onNext(List<StudentEvent> events) {
+        if (cancelled) {
+            return;
+        }
+        try {
+            handler.accept(events);
+        } finally {
+            subscription.request(1);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        System.err.println("数据变更事件订阅出错: " + throwable.getMessage());
+    }
+
+    @Override
+    public void onComplete() {
+    }
+}
@@ -0,0 +1,174 @@
+package gui;
+
+import service.ExportJobService;
+import service.ExportJobService.ExportJob;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+
+/**
+ * 导出进度对话框（非模态）
+ * 导出在后台执行，对话框定时刷新行数/字节数进度，可随时取消；主窗口保持可用。
+ */
+public class ExportProgressDialog extends JDialog {
+    private final ExportJob job;
+    private final JProgressBar progressBar;
+    private final JLabel detailLabel;
+    private final JButton cancelButton;
+    private final Timer refreshTimer;
+
+    // 配色方案
+    private static final Color BACKGROUND_COLOR = new Color(236, 240, 241);
+    private static final Color DANGER_COLOR = new Color(231, 76, 60);
+    private static final Color TEXT_COLOR = new Color(44, 62, 80);
+
+    /**
+     * 提交导出任务并显示进度对话框
+     */
+    public static void start(Window owner, ExportJobService jobService, String title, File target,
+                             ExportJobService.ExportTask task) {
+        ExportProgressDialog[] holder = new ExportProgressDialog[1];
+        ExportJob job = jobService.submit(title, target, task,
+                finished -> SwingUtilities.invokeLater(() -> {
+                    if (holder[0] != null) holder[0].onFinished();
+                }));
+        holder[0] = new ExportProgressDialog(owner, title, job);
+        holder[0].setVisible(true);
+        // 任务可能在对话框创建前已完成
+        if (job.isDone()) holder[0].onFinished();
+    }
+
+    private ExportProgressDialog(Window owner, String title, ExportJob job) {
+        super(owner, title, ModalityType.MODELESS);
+        this.job = job;
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+        getContentPane().setBackground(BACKGROUND_COLOR);
+        setLayout(new BorderLayout(10, 10));
+        ((JPanel) getContentPane()).setBorder(BorderFactory.createEmptyBorder(20, 25, 15, 25));
+
+        JLabel fileLabel = new JLabel("导出到: " + job.getTarget().getAbsolutePath());
+        fileLabel.setFont(new Font("微软雅黑", Font.PLAIN, 13));
+        fileLabel.setForeground(TEXT_COLOR);
+        add(fileLabel, BorderLayout.NORTH);
+
+        JPanel center = new JPanel(new BorderLayout(0, 8));
+        center.setBackground(BACKGROUND_COLOR);
+        progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+        progressBar.setStringPainted(true);
+        progressBar.setPreferredSize(new Dimension(420, 24));
+        center.add(progressBar, BorderLayout.NORTH);
+        detailLabel = new JLabel("准备中...");
+        detailLabel.setFont(new Font("微软雅黑", Font.PLAIN, 12));
+        detailLabel.setForeground(TEXT_COLOR);
+        center.add(detailLabel, BorderLayout.CENTER);
+        add(center, BorderLayout.CENTER);
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 0));
+        buttons.setBackground(BACKGROUND_COLOR);
+        cancelButton = createStyledButton("取消导出", DANGER_COLOR);
+        cancelButton.addActionListener(e -> requestCancel());
+        buttons.add(cancelButton);
+        add(buttons, BorderLayout.SOUTH);
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                requestCancel();
+            }
+        });
+
+        refreshTimer = new Timer(200, e -> refreshProgress());
+        refreshTimer.start();
+
+        pack();
+        setLocationRelativeTo(owner);
+    }
+
+    private void requestCancel() {
+        if (job.isDone()) {
+            dispose();
+            return;
+        }
+        job.cancel();
+        cancelButton.setEnabled(false);
+        detailLabel.setText("正在取消...");
+    }
+
+    private void refreshProgress() {
+        long total = job.getTotalRows();
+        long rows = job.getRowsWritten();
+        if (total > 0) {
+            progressBar.setIndeterminate(false);
+            progressBar.setMaximum((int) Math.min(total, Integer.MAX_VALUE));
+            progressBar.setValue((int) Math.min(rows, Integer.MAX_VALUE));
+            progressBar.setString(rows + " / " + total + " 行");
+        }
+        if (!job.isDone() && !cancelButton.isEnabled()) return;
+        double seconds = Math.max(job.getElapsedMillis(), 1) / 1000.0;
+        detailLabel.setText(String.format("已写出 %d 行, %.1f KB, 耗时 %.1f 秒 (%.0f 行/秒)",
+                rows, job.getBytesWritten() / 1024.0, seconds, rows / seconds));
+    }
+
+    private void onFinished() {
+        if (!isDisplayable()) return;
+        refreshTimer.stop();
+        refreshProgress();
+        dispose();
+        Window owner = getOwner();
+        switch (job.getStatus()) {
+            case SUCCEEDED:
+                JOptionPane.showMessageDialog(owner,
+                        "Excel 导出成功:\n" + job.getTarget().getAbsolutePath(), "成功",
+                        JOptionPane.INFORMATION_MESSAGE);
+                break;
+            case CANCELLED:
+                JOptionPane.showMessageDialog(owner,
+                        "导出已取消", "提示",
+                        JOptionPane.INFORMATION_MESSAGE);
+                break;
+            default:
+                JOptionPane.showMessageDialog(owner,
+                        "Excel 导出失败" + (job.getErrorMessage() == null ? "" : ": " + job.getErrorMessage()), "错误",
+                        JOptionPane.ERROR_MESSAGE);
+                break;
+        }
+    }
+
+    /**
+     * 创建样式化按钮
+     */
+    private JButton createStyledButton(String text, Color bgColor) {
+        JButton button = new JButton(text);
+        button.setFont(new Font("微软雅黑", Font.PLAIN, 13));
+        button.setBackground(bgColor);
+        button.setForeground(Color.WHITE);
+        button.setFocusPainted(false);
+        button.setBorderPainted(false);
+        button.setPreferredSize(new Dimension(button.getPreferredSize().width + 20, 34));
+        button.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        button.setBorder(BorderFactory.createEmptyBorder(5, 15, 5, 15));
+
+        // 鼠标悬停效果
+        button.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseEntered(MouseEvent e) {
+                if (button.isEnabled()) {
+                    button.setBackground(bgColor.brighter());
+                }
+            }
+
+            @Override
+            public void mouseExited(MouseEvent e) {
+                button.setBackground(bgColor);
+            }
+        });
+
+        return button;
+    }
+}
@@ -2,6 +2,13 @@ package gui;
 
 import model.Student;
 import model.User;
+import service.ExcelExporter;
+import service.ExportJobService;
+import service.Metrics;
+import service.RankingService;
+import service.RemoteStudentDataSource;
+import service.StudentDataSource;
+import service.StudentEvent;
 import service.StudentManager;
 import service.UserManager;
 
@@ -11,22 +18,35 @@ import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
 import java.awt.*;
 import java.awt.event.*;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 主界面窗口
  * 包含学生列表显示、搜索、增删改查等功能
  */
 public class MainFrame extends JFrame {
-    private StudentManager studentManager;
+    private StudentDataSource studentManager;
+    // 最近一次表格加载的序号，较早发出的加载结果晚到时忽略
+    private int loadSequence;
+    // 表格当前显示结果所用的搜索条件，关键字为空表示显示全部学生
+    private String shownSearchType;
+    private String shownKeyword = "";
     private JTable studentTable;
     private DefaultTableModel tableModel;
     private JTextField searchField;
     private JComboBox<String> searchTypeCombo;
     private JLabel statusLabel;
+    private JLabel stallLabel;
+    private int stallCount;
+    private long longestStallMillis;
+    private EdtWatchdog edtWatchdog;
     private final User currentUser;
     private final UserManager userManager;
+    private final ExportJobService exportJobService = new ExportJobService();
 
     // 表格列名
     private final String[] columnNames = {"学号", "姓名", "性别", "年龄", "专业", "班级", "联系电话"};
@@ -53,7 +73,27 @@ public class MainFrame extends JFrame {
                 dataPath = "../data/students.txt";
             }
         }
-        studentManager = new StudentManager(dataPath);
+        // 以 -Dsims.server=http://127.0.0.1:8080 启动时通过本机服务访问数据，多个窗口共享同一份数据
+        String server = System.getProperty("sims.server");
+        if (server != null && !server.isEmpty()) {
+            try {
+                studentManager = RemoteStudentDataSource.connect(server, user.getUsername(), user.getPassword());
+            } catch (java.io.IOException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        } else {
+            StudentManager localManager = new StudentManager(dataPath);
+            // 数据文件被其他程序改写后自动同步（-Dsims.watch=false 关闭）
+            if (!"false".equals(System.getProperty("sims.watch"))) {
+                try {
+                    localManager.startWatching(SwingUtilities::invokeLater,
+                            changes -> updateStatus("数据文件已被其他程序修改，已同步: " + changes));
+                } catch (java.io.IOException e) {
+                    System.err.println("无法监视数据文件: " + e.getMessage());
+                }
+            }
+            studentManager = localManager;
+        }
 
         // 设置系统外观
         try {
@@ -63,7 +103,9 @@ public class MainFrame extends JFrame {
         }
 
         // 设置窗口属性
-        setTitle("学生信息管理系统 v2.0 - " + (currentUser.getRole() == User.Role.TEACHER ? "教师" : "学生") + "：" + currentUser.getUsername());
+        setTitle("学生信息管理系统 v2.0 - " + (currentUser.getRole() == User.Role.TEACHER ? "教师" : "学生") + "：" + currentUser.getUsername()
+                + (studentManager instanceof RemoteStudentDataSource
+                        ? " [服务: " + ((RemoteStudentDataSource) studentManager).getServerUrl() + "]" : ""));
         setSize(1200, 700);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
@@ -71,9 +113,22 @@ public class MainFrame extends JFrame {
 
         // 初始化组件
         initComponents();
+        // 增删改后只更新受影响的行（表格不含课程列，课程与导入事件无需处理）
+        EventSubscriber.subscribe(studentManager, this::applyEvents);
 
         // 加载数据
         refreshTable();
+
+        // 界面线程卡顿监视，日志与数据文件放在同一目录
+        java.io.File dataDir = new java.io.File(dataPath).getAbsoluteFile().getParentFile();
+        edtWatchdog = EdtWatchdog.startDefault(new java.io.File(dataDir, "edt_stalls.log"), this::showStall);
+    }
+
+    /**
+     * 当前窗口使用的学生管理器；通过服务访问数据时为 null
+     */
+    public StudentManager getStudentManager() {
+        return studentManager instanceof StudentManager ? (StudentManager) studentManager : null;
     }
 
     /**
@@ -257,7 +312,17 @@ public class MainFrame extends JFrame {
         JLabel versionLabel = new JLabel("学生信息管理系统 v2.0");
         versionLabel.setFont(new Font("微软雅黑", Font.PLAIN, 12));
         versionLabel.setForeground(new Color(189, 195, 199));
-        bottomPanel.add(versionLabel, BorderLayout.EAST);
+
+        // 界面卡顿指示（首次卡顿后显示）
+        stallLabel = new JLabel();
+        stallLabel.setFont(new Font("微软雅黑", Font.PLAIN, 12));
+        stallLabel.setVisible(false);
+
+        JPanel eastPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 15, 0));
+        eastPanel.setOpaque(false);
+        eastPanel.add(stallLabel);
+        eastPanel.add(versionLabel);
+        bottomPanel.add(eastPanel, BorderLayout.EAST);
 
         mainPanel.add(bottomPanel, BorderLayout.SOUTH);
 
@@ -367,32 +432,28 @@ public class MainFrame extends JFrame {
         JMenuItem sortByIdItem = new JMenuItem("按学号排序");
         sortByIdItem.addActionListener(e -> {
             studentManager.sortByStudentId();
-            refreshTable();
-            updateStatus("已按学号排序");
+            refreshTable("已按学号排序");
         });
         sortMenu.add(sortByIdItem);
 
         JMenuItem sortByNameItem = new JMenuItem("按姓名排序");
         sortByNameItem.addActionListener(e -> {
             studentManager.sortByName();
-            refreshTable();
-            updateStatus("已按姓名排序");
+            refreshTable("已按姓名排序");
         });
         sortMenu.add(sortByNameItem);
 
         JMenuItem sortByAgeItem = new JMenuItem("按年龄排序");
         sortByAgeItem.addActionListener(e -> {
             studentManager.sortByAge();
-            refreshTable();
-            updateStatus("已按年龄排序");
+            refreshTable("已按年龄排序");
         });
         sortMenu.add(sortByAgeItem);
 
         JMenuItem sortByGPAItem = new JMenuItem("按GPA排序");
         sortByGPAItem.addActionListener(e -> {
             studentManager.sortByGPA();
-            refreshTable();
-            updateStatus("已按GPA排序");
+            refreshTable("已按GPA排序");
         });
         sortMenu.add(sortByGPAItem);
 
@@ -421,6 +482,10 @@ public class MainFrame extends JFrame {
         statsItem.addActionListener(e -> showStatistics());
         helpMenu.add(statsItem);
 
+        JMenuItem metricsItem = new JMenuItem("导出运行指标");
+        metricsItem.addActionListener(e -> dumpMetrics());
+        helpMenu.add(metricsItem);
+
         JMenuItem aboutItem = new JMenuItem("关于");
         aboutItem.addActionListener(e -> showAbout());
         helpMenu.add(aboutItem);
@@ -479,50 +544,66 @@ public class MainFrame extends JFrame {
             return;
         }
         String studentId = (String) tableModel.getValueAt(selectedRow, 0);
-        Student student = studentManager.findStudentById(studentId);
-        if (student == null) {
-            JOptionPane.showMessageDialog(this,
-                    "未找到该学生: " + studentId, "错误",
-                    JOptionPane.ERROR_MESSAGE);
-            return;
-        }
-        CourseManagementDialog dialog = new CourseManagementDialog(this, studentManager, student);
-        dialog.setVisible(true);
-        refreshTable();
-        updateStatus("已更新课程/GPA: " + student.getName());
+        AsyncUi.apply(this, studentManager.async(() -> studentManager.findStudentById(studentId)), student -> {
+            if (student == null) {
+                JOptionPane.showMessageDialog(this,
+                        "未找到该学生: " + studentId, "错误",
+                        JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            CourseManagementDialog dialog = new CourseManagementDialog(this, studentManager, student);
+            dialog.setVisible(true);
+            updateStatus("已更新课程/GPA: " + student.getName());
+        });
     }
     
     /**
      * 导出全体学生按GPA排名（含所有课程列）
      */
     private void exportAllRanking() {
-        if (studentManager.getStudentCount() == 0) {
-            JOptionPane.showMessageDialog(this, "暂无学生数据", "提示", JOptionPane.WARNING_MESSAGE);
-            return;
-        }
-        JFileChooser chooser = new JFileChooser();
-        chooser.setDialogTitle("选择导出 XLSX 文件");
-        chooser.setSelectedFile(new java.io.File("全部学生排名导出.xlsx"));
-        int result = chooser.showSaveDialog(this);
-        if (result != JFileChooser.APPROVE_OPTION) return;
-        java.io.File file = chooser.getSelectedFile();
-        if (!file.getName().toLowerCase().endsWith(".xlsx")) {
-            file = new java.io.File(file.getParentFile(), file.getName() + ".xlsx");
-        }
-        boolean ok = service.ExcelExporter.exportAllRankingXlsx(studentManager, file);
-        if (ok) {
-            JOptionPane.showMessageDialog(this, "Excel 导出成功:\n" + file.getAbsolutePath(), "成功", JOptionPane.INFORMATION_MESSAGE);
-        } else {
-            JOptionPane.showMessageDialog(this, "Excel 导出失败", "错误", JOptionPane.ERROR_MESSAGE);
-        }
+        AsyncUi.apply(this, studentManager.async(studentManager::getStudentCount), count -> {
+            if (count == 0) {
+                JOptionPane.showMessageDialog(this, "暂无学生数据", "提示", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            JFileChooser chooser = new JFileChooser();
+            chooser.setDialogTitle("选择导出 XLSX 文件");
+            chooser.setSelectedFile(new java.io.File("全部学生排名导出.xlsx"));
+            int result = chooser.showSaveDialog(this);
+            if (result != JFileChooser.APPROVE_OPTION) return;
+            java.io.File chosen = chooser.getSelectedFile();
+            java.io.File file = chosen.getName().toLowerCase().endsWith(".xlsx") ? chosen
+                    : new java.io.File(chosen.getParentFile(), chosen.getName() + ".xlsx");
+            updateStatus("正在准备导出...");
+            AsyncUi.apply(this, studentManager.async(studentManager::getOverallRanking), ranking -> {
+                // 在界面线程复制排名中的学生（含课程），后台导出期间的编辑不影响本次导出
+                RankingService.Ranking ranked = ranking.snapshot();
+                ExportProgressDialog.start(this, exportJobService, "导出全部排名", file,
+                        (out, listener) -> ExcelExporter.exportRankingXlsx(ranked, out, listener));
+            });
+        });
     }
 
     /**
      * 刷新表格数据
      */
     private void refreshTable() {
-        updateTable(studentManager.getAllStudents());
-        updateStatus("共 " + studentManager.getStudentCount() + " 条记录");
+        refreshTable(null);
+    }
+
+    /**
+     * 刷新表格数据，加载完成后显示指定状态（为 null 时显示记录数）
+     */
+    private void refreshTable(String status) {
+        int sequence = ++loadSequence;
+        updateStatus("正在加载...");
+        AsyncUi.apply(this, studentManager.async(studentManager::getAllStudents), students -> {
+            if (sequence != loadSequence) return;
+            shownSearchType = null;
+            shownKeyword = "";
+            updateTable(students);
+            updateStatus(status != null ? status : "共 " + students.size() + " 条记录");
+        });
     }
 
     /**
@@ -531,16 +612,65 @@ public class MainFrame extends JFrame {
     private void updateTable(List<Student> students) {
         tableModel.setRowCount(0);
         for (Student student : students) {
-            Object[] row = {
-                student.getStudentId(),
-                student.getName(),
-                student.getGender(),
-                student.getAge(),
-                student.getMajor(),
-                student.getClassNumber(),
-                student.getPhoneNumber()
-            };
-            tableModel.addRow(row);
+            tableModel.addRow(toRow(student));
+        }
+    }
+
+    private static Object[] toRow(Student student) {
+        return new Object[] {
+            student.getStudentId(),
+            student.getName(),
+            student.getGender(),
+            student.getAge(),
+            student.getMajor(),
+            student.getClassNumber(),
+            student.getPhoneNumber()
+        };
+    }
+
+    /**
+     * 按变更事件只更新受影响的行：修改的行就地更新，删除的行移除；
+     * 按当前搜索条件重新判断新增和修改的学生，符合的追加到末尾，修改后不再符合的移除
+     */
+    private void applyEvents(List<StudentEvent> events) {
+        Map<String, Integer> rows = new HashMap<>(tableModel.getRowCount() * 2);
+        for (int i = 0; i < tableModel.getRowCount(); i++) {
+            rows.put((String) tableModel.getValueAt(i, 0), i);
+        }
+        Set<String> removed = new HashSet<>();
+        for (StudentEvent event : events) {
+            if (event instanceof StudentEvent.StudentAdded) {
+                Student student = ((StudentEvent.StudentAdded) event).getStudent();
+                if (matchesShownSearch(student) && !rows.containsKey(student.getStudentId())) {
+                    rows.put(student.getStudentId(), tableModel.getRowCount());
+                    tableModel.addRow(toRow(student));
+                }
+            } else if (event instanceof StudentEvent.StudentUpdated) {
+                Student student = ((StudentEvent.StudentUpdated) event).getCurrent();
+                Integer row = rows.get(student.getStudentId());
+                if (!matchesShownSearch(student)) {
+                    if (row != null) removed.add(student.getStudentId());
+                } else if (row == null) {
+                    rows.put(student.getStudentId(), tableModel.getRowCount());
+                    tableModel.addRow(toRow(student));
+                } else {
+                    Object[] values = toRow(student);
+                    for (int c = 0; c < values.length; c++) {
+                        if (!values[c].equals(tableModel.getValueAt(row, c))) {
+                            tableModel.setValueAt(values[c], row, c);
+                        }
+                    }
+                }
+            } else if (event instanceof StudentEvent.StudentRemoved) {
+                removed.add(((StudentEvent.StudentRemoved) event).getStudent().getStudentId());
+            }
+        }
+        if (!removed.isEmpty()) {
+            for (int i = tableModel.getRowCount() - 1; i >= 0; i--) {
+                if (removed.contains(tableModel.getValueAt(i, 0))) {
+                    tableModel.removeRow(i);
+                }
+            }
         }
     }
 
@@ -550,7 +680,43 @@ public class MainFrame extends JFrame {
     private void performSearch() {
         String keyword = searchField.getText().trim();
         String searchType = (String) searchTypeCombo.getSelectedItem();
+        int sequence = ++loadSequence;
+        updateStatus("正在搜索...");
+        AsyncUi.apply(this, studentManager.async(() -> search(searchType, keyword)), results -> {
+            if (sequence != loadSequence) return;
+            shownSearchType = searchType;
+            shownKeyword = keyword;
+            updateTable(results);
+            updateStatus("找到 " + results.size() + " 条记录");
+        });
+    }
 
+    /**
+     * 学生是否符合表格当前显示结果的搜索条件（与数据源的搜索规则一致）
+     */
+    private boolean matchesShownSearch(Student student) {
+        String keyword = shownKeyword;
+        if (keyword.isEmpty()) {
+            return true;
+        }
+        switch (shownSearchType) {
+            case "学号":
+                return student.getStudentId().equals(keyword);
+            case "姓名":
+                return student.getName().contains(keyword);
+            case "专业":
+                return student.getMajor().contains(keyword);
+            case "班级":
+                return student.getClassNumber().contains(keyword);
+            default:
+                return student.getStudentId().contains(keyword)
+                        || student.getName().contains(keyword)
+                        || student.getMajor().contains(keyword)
+                        || student.getClassNumber().contains(keyword);
+        }
+    }
+
+    private List<Student> search(String searchType, String keyword) {
         List<Student> results;
 
         if (keyword.isEmpty()) {
@@ -575,9 +741,7 @@ public class MainFrame extends JFrame {
                     break;
             }
         }
-
-        updateTable(results);
-        updateStatus("找到 " + results.size() + " 条记录");
+        return results;
     }
 
     /**
@@ -593,18 +757,22 @@ public class MainFrame extends JFrame {
 
         Student newStudent = dialog.getStudent();
         if (newStudent != null) {
-            try {
-                studentManager.addStudent(newStudent);
-                refreshTable();
+            updateStatus("正在保存...");
+            AsyncUi.apply(studentManager.async(() -> studentManager.addStudent(newStudent)), added -> {
+                if (!added) {
+                    showSaveFailed();
+                    return;
+                }
                 updateStatus("成功添加学生: " + newStudent.getName());
                 JOptionPane.showMessageDialog(this,
                         "学生添加成功!", "成功",
                         JOptionPane.INFORMATION_MESSAGE);
-            } catch (IllegalArgumentException e) {
+            }, e -> {
+                updateStatus("添加失败");
                 JOptionPane.showMessageDialog(this,
                         "添加失败: " + e.getMessage(), "错误",
                         JOptionPane.ERROR_MESSAGE);
-            }
+            });
         }
     }
 
@@ -625,22 +793,71 @@ public class MainFrame extends JFrame {
         }
 
         String studentId = (String) tableModel.getValueAt(selectedRow, 0);
-        Student student = studentManager.findStudentById(studentId);
-
-        if (student != null) {
+        AsyncUi.apply(this, studentManager.async(() -> studentManager.findStudentById(studentId)), student -> {
+            if (student == null) {
+                return;
+            }
             StudentDialog dialog = new StudentDialog(this, "编辑学生", student);
             dialog.setVisible(true);
 
             Student updatedStudent = dialog.getStudent();
             if (updatedStudent != null) {
-                studentManager.updateStudent(updatedStudent);
-                refreshTable();
-                updateStatus("成功更新学生: " + updatedStudent.getName());
-                JOptionPane.showMessageDialog(this,
-                        "学生信息更新成功!", "成功",
-                        JOptionPane.INFORMATION_MESSAGE);
+                updateStatus("正在保存...");
+                AsyncUi.apply(studentManager.async(() -> studentManager.updateStudent(updatedStudent)), updated -> {
+                    if (!updated) {
+                        showSaveFailed();
+                        return;
+                    }
+                    updateStatus("成功更新学生: " + updatedStudent.getName());
+                    JOptionPane.showMessageDialog(this,
+                            "学生信息更新成功!", "成功",
+                            JOptionPane.INFORMATION_MESSAGE);
+                }, e -> {
+                    updateStatus("更新失败");
+                    JOptionPane.showMessageDialog(this,
+                            "更新失败: " + e.getMessage(), "错误",
+                            JOptionPane.ERROR_MESSAGE);
+                });
             }
+        });
+    }
+
+    /**
+     * 修改已生效但未能写入数据文件（如其他程序同时修改了同一学生）；
+     * 有冲突学生时询问是否改用数据文件中的版本，否则之后的保存会一直被拒绝
+     */
+    private void showSaveFailed() {
+        Set<String> conflicts = studentManager.getSaveConflicts();
+        if (conflicts.isEmpty()) {
+            JOptionPane.showMessageDialog(this,
+                    "修改未能保存到数据文件，可能与其他程序同时修改了数据文件，详见控制台输出",
+                    "保存失败", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        int choice = JOptionPane.showConfirmDialog(this,
+                "修改未能保存到数据文件，以下学生同时被其他程序修改:\n" + String.join(", ", conflicts)
+                        + "\n\n是否放弃本程序对这些学生的修改，改用数据文件中的版本并保存其余修改？",
+                "保存冲突", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+        if (choice != JOptionPane.YES_OPTION) {
+            updateStatus("修改未保存");
+            return;
         }
+        updateStatus("正在保存...");
+        AsyncUi.apply(studentManager.async(studentManager::resolveSaveConflicts), resolved -> {
+            if (!resolved) {
+                updateStatus("保存失败");
+                JOptionPane.showMessageDialog(this,
+                        "仍未能保存到数据文件，详见控制台输出",
+                        "保存失败", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            updateStatus("已改用数据文件中的版本并保存");
+        }, e -> {
+            updateStatus("保存失败");
+            JOptionPane.showMessageDialog(this,
+                    "保存失败: " + e.getMessage(), "错误",
+                    JOptionPane.ERROR_MESSAGE);
+        });
     }
 
     /**
@@ -669,17 +886,25 @@ public class MainFrame extends JFrame {
                 JOptionPane.WARNING_MESSAGE);
 
         if (result == JOptionPane.YES_OPTION) {
-            if (studentManager.deleteStudent(studentId)) {
-                refreshTable();
-                updateStatus("成功删除学生: " + name);
-                JOptionPane.showMessageDialog(this,
-                        "学生删除成功!", "成功",
-                        JOptionPane.INFORMATION_MESSAGE);
-            } else {
+            updateStatus("正在删除...");
+            AsyncUi.apply(studentManager.async(() -> studentManager.deleteStudent(studentId)), deleted -> {
+                if (deleted) {
+                    updateStatus("成功删除学生: " + name);
+                    JOptionPane.showMessageDialog(this,
+                            "学生删除成功!", "成功",
+                            JOptionPane.INFORMATION_MESSAGE);
+                } else {
+                    updateStatus("删除失败");
+                    JOptionPane.showMessageDialog(this,
+                            "删除失败!", "错误",
+                            JOptionPane.ERROR_MESSAGE);
+                }
+            }, e -> {
+                updateStatus("删除失败");
                 JOptionPane.showMessageDialog(this,
-                        "删除失败!", "错误",
+                        "删除失败: " + e.getMessage(), "错误",
                         JOptionPane.ERROR_MESSAGE);
-            }
+            });
         }
     }
 
@@ -695,16 +920,18 @@ public class MainFrame extends JFrame {
      * 备份数据
      */
     private void backupData() {
-        if (studentManager.backupData()) {
-            JOptionPane.showMessageDialog(this,
-                    "数据备份成功!", "成功",
-                    JOptionPane.INFORMATION_MESSAGE);
-            updateStatus("数据已备份");
-        } else {
-            JOptionPane.showMessageDialog(this,
-                    "数据备份失败!", "错误",
-                    JOptionPane.ERROR_MESSAGE);
-        }
+        AsyncUi.apply(this, studentManager.async(studentManager::backupData), backedUp -> {
+            if (backedUp) {
+                JOptionPane.showMessageDialog(this,
+                        "数据备份成功!", "成功",
+                        JOptionPane.INFORMATION_MESSAGE);
+                updateStatus("数据已备份");
+            } else {
+                JOptionPane.showMessageDialog(this,
+                        "数据备份失败!", "错误",
+                        JOptionPane.ERROR_MESSAGE);
+            }
+        });
     }
 
     /**
@@ -717,18 +944,38 @@ public class MainFrame extends JFrame {
         }
         ScoreImportDialog dialog = new ScoreImportDialog(this, studentManager);
         dialog.setVisible(true);
-        // 导入后刷新表格
-        refreshTable();
     }
 
     /**
      * 显示专业排名
      */
     private void showMajorRanking() {
-        MajorRankingFrame rankingFrame = new MajorRankingFrame(studentManager);
+        MajorRankingFrame rankingFrame = new MajorRankingFrame(studentManager, exportJobService);
         rankingFrame.setVisible(true);
     }
 
+    /**
+     * 把服务层运行指标（各操作耗时分布与计数器）写入文件
+     */
+    private void dumpMetrics() {
+        if (!Metrics.isEnabled()) {
+            JOptionPane.showMessageDialog(this,
+                    "运行指标未启用，请以 -Dsims.metrics=true 启动程序", "提示",
+                    JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("选择运行指标文件");
+        chooser.setSelectedFile(new java.io.File("metrics.txt"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        java.io.File file = chooser.getSelectedFile();
+        if (Metrics.dump(file)) {
+            updateStatus("运行指标已写入: " + file.getName());
+        } else {
+            JOptionPane.showMessageDialog(this, "写入运行指标失败", "错误", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     /**
      * 显示关于对话框
      */
@@ -752,6 +999,23 @@ public class MainFrame extends JFrame {
                 JOptionPane.INFORMATION_MESSAGE);
     }
 
+    /**
+     * 在状态栏显示界面卡顿：最近一次卡顿醒目显示，数秒后转为灰色；悬停显示卡顿位置与日志路径
+     */
+    private void showStall(EdtWatchdog.Stall stall) {
+        stallCount++;
+        longestStallMillis = Math.max(longestStallMillis, stall.getDurationMillis());
+        stallLabel.setText("界面卡顿 " + stallCount + " 次（最近 " + stall.getDurationMillis() + " ms）");
+        stallLabel.setToolTipText("<html>最近一次: " + stall.getCulprit()
+                + "<br>最长: " + longestStallMillis + " ms"
+                + "<br>日志: " + edtWatchdog.getLogFile().getAbsolutePath() + "</html>");
+        stallLabel.setForeground(new Color(241, 196, 15));
+        stallLabel.setVisible(true);
+        Timer fade = new Timer(5000, e -> stallLabel.setForeground(new Color(189, 195, 199)));
+        fade.setRepeats(false);
+        fade.start();
+    }
+
     /**
      * 更新状态栏
      */
@@ -1,7 +1,11 @@
 package gui;
 
 import model.Student;
-import service.StudentManager;
+import service.ExcelExporter;
+import service.ExportJobService;
+import service.RankingService;
+import service.StudentDataSource;
+import service.StudentEvent;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
@@ -10,18 +14,24 @@ import javax.swing.table.JTableHeader;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 专业排名窗口
  * 显示指定专业的学生成绩排名
  */
 public class MajorRankingFrame extends JFrame {
-    private StudentManager studentManager;
+    private StudentDataSource studentManager;
+    private final ExportJobService exportJobService;
     private JComboBox<String> majorCombo;
     private JTable rankingTable;
     private DefaultTableModel tableModel;
     private JLabel statsLabel;
+    // 表格当前显示的专业（同一专业重新加载时只更新有变化的单元格）
+    private String displayedMajor;
+    private final EventSubscriber eventSubscriber;
 
     private final String[] columnNames = {
         "排名", "学号", "姓名", "班级", "总学分", "加权平均分(GPA)", "课程数"
@@ -36,16 +46,51 @@ public class MajorRankingFrame extends JFrame {
     private static final Color TEXT_COLOR = new Color(44, 62, 80);
     private static final Color HEADER_COLOR = new Color(52, 73, 94);
 
-    public MajorRankingFrame(StudentManager studentManager) {
+    public MajorRankingFrame(StudentDataSource studentManager, ExportJobService exportJobService) {
         this.studentManager = studentManager;
+        this.exportJobService = exportJobService;
 
         setTitle("专业成绩排名");
         setSize(1000, 650);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
         setLocationRelativeTo(null);
         getContentPane().setBackground(BACKGROUND_COLOR);
 
         initComponents();
         loadMajors();
+        eventSubscriber = EventSubscriber.subscribe(studentManager, this::applyEvents);
+    }
+
+    @Override
+    public void dispose() {
+        eventSubscriber.cancel();
+        super.dispose();
+    }
+
+    /**
+     * 数据变更后补充新出现的专业；只有涉及当前专业的变更才重新计算并更新排名
+     */
+    private void applyEvents(List<StudentEvent> events) {
+        for (StudentEvent event : events) {
+            Student student = event instanceof StudentEvent.StudentAdded
+                    ? ((StudentEvent.StudentAdded) event).getStudent()
+                    : event instanceof StudentEvent.StudentUpdated
+                    ? ((StudentEvent.StudentUpdated) event).getCurrent() : null;
+            if (student != null && student.getMajor() != null && !hasMajor(student.getMajor())) {
+                majorCombo.addItem(student.getMajor());
+            }
+        }
+        String selectedMajor = (String) majorCombo.getSelectedItem();
+        if (selectedMajor != null && events.stream().anyMatch(e -> e.affectsMajor(selectedMajor))) {
+            loadRanking();
+        }
+    }
+
+    private boolean hasMajor(String major) {
+        for (int i = 0; i < majorCombo.getItemCount(); i++) {
+            if (major.equals(majorCombo.getItemAt(i))) return true;
+        }
+        return false;
     }
 
     private void initComponents() {
@@ -79,10 +124,8 @@ public class MajorRankingFrame extends JFrame {
         rightPanel.setBackground(CARD_COLOR);
 
         JButton refreshButton = createStyledButton("刷新数据", PRIMARY_COLOR);
-        refreshButton.addActionListener(e -> {
-            loadMajors();
-            loadRanking();
-        });
+        // 重新加载专业列表，填充下拉框时随选中项加载排名
+        refreshButton.addActionListener(e -> loadMajors());
         rightPanel.add(refreshButton);
 
         topPanel.add(rightPanel, BorderLayout.EAST);
@@ -161,8 +204,11 @@ public class MajorRankingFrame extends JFrame {
         previewButton.addActionListener(e -> previewRanking());
         JButton exportButton = createStyledButton("导出Excel", ACCENT_COLOR);
         exportButton.addActionListener(e -> exportRankingToExcel());
+        JButton exportAllButton = createStyledButton("导出全部专业", PRIMARY_COLOR);
+        exportAllButton.addActionListener(e -> exportAllMajorsToExcel());
         actionPanel.add(previewButton);
         actionPanel.add(exportButton);
+        actionPanel.add(exportAllButton);
         bottomPanel.add(actionPanel, BorderLayout.EAST);
 
         add(bottomPanel, BorderLayout.SOUTH);
@@ -205,17 +251,18 @@ public class MajorRankingFrame extends JFrame {
      * 加载所有专业到下拉框
      */
     private void loadMajors() {
-        majorCombo.removeAllItems();
-        List<String> majors = studentManager.getAllMajors();
-
-        if (majors.isEmpty()) {
-            statsLabel.setText("暂无专业数据");
-            return;
-        }
+        statsLabel.setText("正在加载...");
+        AsyncUi.apply(this, studentManager.async(studentManager::getAllMajors), majors -> {
+            majorCombo.removeAllItems();
+            if (majors.isEmpty()) {
+                statsLabel.setText("暂无专业数据");
+                return;
+            }
 
-        for (String major : majors) {
-            majorCombo.addItem(major);
-        }
+            for (String major : majors) {
+                majorCombo.addItem(major);
+            }
+        });
     }
 
     /**
@@ -227,29 +274,39 @@ public class MajorRankingFrame extends JFrame {
             return;
         }
 
-        tableModel.setRowCount(0);
-        List<Student> students = studentManager.getStudentsByMajorRanked(selectedMajor);
+        if (!selectedMajor.equals(displayedMajor)) {
+            tableModel.setRowCount(0);
+            displayedMajor = null;
+        }
+        statsLabel.setText("正在加载...");
+        AsyncUi.apply(this, studentManager.async(() -> studentManager.getMajorRanking(selectedMajor)), ranking -> {
+            // 加载期间已切换到其他专业时丢弃
+            if (selectedMajor.equals(majorCombo.getSelectedItem())) {
+                showRanking(selectedMajor, ranking);
+            }
+        });
+    }
 
-        if (students.isEmpty()) {
+    /**
+     * 显示排名；表格已显示同一专业时只更新有变化的单元格并增删末尾的行
+     */
+    private void showRanking(String selectedMajor, RankingService.Ranking ranking) {
+        boolean patch = selectedMajor.equals(displayedMajor);
+        displayedMajor = selectedMajor;
+        if (ranking.isEmpty()) {
+            tableModel.setRowCount(0);
             statsLabel.setText("该专业暂无学生数据");
             return;
         }
+        if (!patch) {
+            tableModel.setRowCount(0);
+        }
 
-        int rank = 1;
-        double prevGpa = -1;
-        int actualRank = 1;
-
-        for (int i = 0; i < students.size(); i++) {
-            Student student = students.get(i);
-
-            // 处理并列排名
-            if (student.getGpa() != prevGpa) {
-                actualRank = rank;
-                prevGpa = student.getGpa();
-            }
-
+        // 并列排名与统计由排名服务统一计算并缓存
+        for (int i = 0; i < ranking.size(); i++) {
+            Student student = ranking.get(i);
             Object[] row = {
-                actualRank,
+                ranking.getRank(i),
                 student.getStudentId(),
                 student.getName(),
                 student.getClassNumber(),
@@ -257,23 +314,21 @@ public class MajorRankingFrame extends JFrame {
                 String.format("%.2f", student.getGpa()),
                 student.getCourseCount()
             };
-            tableModel.addRow(row);
-            rank++;
+            if (i < tableModel.getRowCount()) {
+                for (int c = 0; c < row.length; c++) {
+                    if (!row[c].equals(tableModel.getValueAt(i, c))) {
+                        tableModel.setValueAt(row[c], i, c);
+                    }
+                }
+            } else {
+                tableModel.addRow(row);
+            }
         }
-
-        // 更新统计信息
-        double avgGpa = students.stream()
-                .mapToDouble(Student::getGpa)
-                .average()
-                .orElse(0);
-
-        long withScores = students.stream()
-                .filter(s -> s.getCourseCount() > 0)
-                .count();
+        tableModel.setRowCount(ranking.size());
 
         statsLabel.setText(String.format(
             "专业: %s  |  总人数: %d  |  已录入成绩: %d  |  专业平均GPA: %.2f",
-            selectedMajor, students.size(), withScores, avgGpa
+            selectedMajor, ranking.size(), ranking.getScoredCount(), ranking.getAverageGpa()
         ));
     }
 
@@ -348,15 +403,48 @@ public class MajorRankingFrame extends JFrame {
         if (!file.getName().toLowerCase().endsWith(".xlsx")) {
             file = new java.io.File(file.getParentFile(), file.getName() + ".xlsx");
         }
-        boolean ok = service.ExcelExporter.exportMajorRankingXlsx(studentManager, selectedMajor, file);
-        if (ok) {
-            JOptionPane.showMessageDialog(this,
-                    "Excel 导出成功:\n" + file.getAbsolutePath(), "成功",
-                    JOptionPane.INFORMATION_MESSAGE);
-        } else {
+        java.io.File target = file;
+        AsyncUi.apply(this, studentManager.async(() -> studentManager.getMajorRanking(selectedMajor)), ranking -> {
+            // 在界面线程复制排名中的学生，后台导出期间的编辑不影响本次导出
+            RankingService.Ranking ranked = ranking.snapshot();
+            ExportProgressDialog.start(this, exportJobService, selectedMajor + "专业排名导出", target,
+                    (out, listener) -> ExcelExporter.exportRankingXlsx(ranked, out, listener));
+        });
+    }
+
+    /**
+     * 导出全部专业到一个工作簿（总排名 + 每专业一个工作表）
+     */
+    private void exportAllMajorsToExcel() {
+        if (majorCombo.getItemCount() == 0) {
             JOptionPane.showMessageDialog(this,
-                    "Excel 导出失败", "错误",
-                    JOptionPane.ERROR_MESSAGE);
+                    "没有可导出的数据!", "提示",
+                    JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("选择导出 XLSX 文件位置");
+        chooser.setSelectedFile(new java.io.File("各专业排名导出.xlsx"));
+        int result = chooser.showSaveDialog(this);
+        if (result != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        java.io.File file = chooser.getSelectedFile();
+        if (!file.getName().toLowerCase().endsWith(".xlsx")) {
+            file = new java.io.File(file.getParentFile(), file.getName() + ".xlsx");
         }
+        java.io.File target = file;
+        AsyncUi.apply(this, studentManager.async(studentManager::getOverallRanking), overallRanking ->
+                AsyncUi.apply(this, studentManager.async(studentManager::getAllMajorRankings), rankings -> {
+                    // 在界面线程复制排名中的学生，后台导出期间的编辑不影响本次导出
+                    RankingService.Ranking overall = overallRanking.snapshot();
+                    Map<String, RankingService.Ranking> majors = new LinkedHashMap<>();
+                    for (Map.Entry<String, RankingService.Ranking> e : rankings.entrySet()) {
+                        majors.put(e.getKey(), e.getValue().snapshot());
+                    }
+                    ExportProgressDialog.start(this, exportJobService, "各专业排名导出", target,
+                            (out, listener) -> ExcelExporter.exportAllMajorsWorkbookXlsx(overall, majors, out, listener));
+                }));
     }
 }
@@ -1,6 +1,9 @@
 package gui;
 
-import service.StudentManager;
+import model.DuplicateCoursePolicy;
+import service.ImportProgress;
+import service.ScoreImporter;
+import service.StudentDataSource;
 
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
@@ -8,18 +11,29 @@ import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 成绩导入对话框
- * 支持从CSV文件导入学生成绩
+ * 支持从CSV或Excel(.xlsx)文件导入学生成绩，可多选文件或选择目录批量导入
  */
 public class ScoreImportDialog extends JDialog {
-    private StudentManager studentManager;
+    private StudentDataSource studentManager;
     private JTextField filePathField;
     private JLabel workDirLabel;
     private JTextArea logArea;
     private JButton selectFileButton;
     private JButton importButton;
+    private JButton cancelButton;
+    private JProgressBar progressBar;
+    private JLabel progressLabel;
+    private Timer progressTimer;
+    private ImportProgress currentProgress;
+    private JComboBox<ScoreImporter.Mode> modeComboBox;
+    private JComboBox<DuplicateCoursePolicy> policyComboBox;
+    private JCheckBox reimportCheckBox;
 
     // 配色方案
     private static final Color PRIMARY_COLOR = new Color(41, 128, 185);
@@ -30,7 +44,10 @@ public class ScoreImportDialog extends JDialog {
     private static final Color CARD_COLOR = Color.WHITE;
     private static final Color TEXT_COLOR = new Color(44, 62, 80);
 
-    public ScoreImportDialog(Frame parent, StudentManager studentManager) {
+    /** 日志区最多保留的行数，超出时丢弃最早的行 */
+    private static final int MAX_LOG_LINES = 2000;
+
+    public ScoreImportDialog(Frame parent, StudentDataSource studentManager) {
         // 使用非阻塞模式，避免父窗口阻塞导致感觉"不可点击"
         super(parent, "成绩导入", false);
         this.studentManager = studentManager;
@@ -83,7 +100,9 @@ public class ScoreImportDialog extends JDialog {
             "示例:\n" +
             "2021001,高等数学,4.0,85.5\n" +
             "2021001,大学英语,3.0,90.0\n" +
-            "2021002,数据结构,4.0,88.0"
+            "2021002,数据结构,4.0,88.0\n\n" +
+            "也可直接导入Excel(.xlsx): 各工作表A-D列依次为学号、课程名、学分、成绩, 首行可为表头\n" +
+            "可多选文件或选择目录，一次导入全部成绩文件"
         );
         instructionText.setEditable(false);
         instructionText.setFont(new Font("Microsoft YaHei UI", Font.PLAIN, 13));
@@ -120,6 +139,33 @@ public class ScoreImportDialog extends JDialog {
         selectFileButton.addActionListener(e -> selectFile());
         filePanel.add(selectFileButton, BorderLayout.EAST);
 
+        JPanel modePanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 0));
+        modePanel.setBackground(CARD_COLOR);
+        modePanel.setBorder(BorderFactory.createEmptyBorder(12, 0, 0, 0));
+        JLabel modeLabel = new JLabel("导入模式:");
+        modeLabel.setFont(new Font("微软雅黑", Font.PLAIN, 14));
+        modeLabel.setForeground(TEXT_COLOR);
+        modePanel.add(modeLabel);
+        modeComboBox = new JComboBox<>(ScoreImporter.Mode.values());
+        modeComboBox.setFont(new Font("微软雅黑", Font.PLAIN, 13));
+        modeComboBox.setRenderer(new DisplayNameRenderer());
+        modePanel.add(modeComboBox);
+        JLabel policyLabel = new JLabel("同名课程:");
+        policyLabel.setFont(new Font("微软雅黑", Font.PLAIN, 14));
+        policyLabel.setForeground(TEXT_COLOR);
+        modePanel.add(policyLabel);
+        policyComboBox = new JComboBox<>(DuplicateCoursePolicy.values());
+        policyComboBox.setFont(new Font("微软雅黑", Font.PLAIN, 13));
+        policyComboBox.setRenderer(new DisplayNameRenderer());
+        policyComboBox.setSelectedItem(DuplicateCoursePolicy.DEFAULT);
+        modePanel.add(policyComboBox);
+        reimportCheckBox = new JCheckBox("强制重新导入");
+        reimportCheckBox.setToolTipText("忽略导入记录：已导入过的文件也完整重新导入");
+        reimportCheckBox.setFont(new Font("微软雅黑", Font.PLAIN, 13));
+        reimportCheckBox.setBackground(CARD_COLOR);
+        modePanel.add(reimportCheckBox);
+        filePanel.add(modePanel, BorderLayout.SOUTH);
+
         mainPanel.add(filePanel, BorderLayout.CENTER);
 
         // 日志面板
@@ -164,6 +210,18 @@ public class ScoreImportDialog extends JDialog {
         scrollPane.setBorder(BorderFactory.createLineBorder(new Color(189, 195, 199), 1));
         logPanel.add(scrollPane, BorderLayout.CENTER);
 
+        JPanel progressPanel = new JPanel(new BorderLayout(0, 6));
+        progressPanel.setBackground(CARD_COLOR);
+        progressBar = new JProgressBar(0, 1000);
+        progressBar.setStringPainted(true);
+        progressBar.setString("");
+        progressPanel.add(progressBar, BorderLayout.NORTH);
+        progressLabel = new JLabel(" ");
+        progressLabel.setFont(new Font("微软雅黑", Font.PLAIN, 12));
+        progressLabel.setForeground(new Color(127, 140, 141));
+        progressPanel.add(progressLabel, BorderLayout.CENTER);
+        logPanel.add(progressPanel, BorderLayout.SOUTH);
+
         mainPanel.add(logPanel, BorderLayout.SOUTH);
 
         add(mainPanel, BorderLayout.CENTER);
@@ -178,6 +236,17 @@ public class ScoreImportDialog extends JDialog {
         importButton.addActionListener(e -> importScores());
         buttonPanel.add(importButton);
 
+        cancelButton = createStyledButton("取消导入", WARNING_COLOR);
+        cancelButton.setEnabled(false);
+        cancelButton.addActionListener(e -> {
+            if (currentProgress != null) {
+                currentProgress.cancel();
+                cancelButton.setEnabled(false);
+                appendLog("正在取消导入...\n");
+            }
+        });
+        buttonPanel.add(cancelButton);
+
         JButton closeButton = createStyledButton("关闭", SECONDARY_COLOR);
         closeButton.addActionListener(e -> dispose());
         buttonPanel.add(closeButton);
@@ -234,17 +303,28 @@ public class ScoreImportDialog extends JDialog {
         JFileChooser fileChooser = new JFileChooser(initialDir.getAbsolutePath());
         fileChooser.setAcceptAllFileFilterUsed(true);
         fileChooser.setFileFilter(new FileNameExtensionFilter(
-                "CSV或文本文件 (*.csv, *.txt)", "csv", "txt"));
+                "成绩文件 (*.csv, *.txt, *.xlsx)", "csv", "txt", "xlsx"));
+        fileChooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+        fileChooser.setMultiSelectionEnabled(true);
 
         int result = fileChooser.showOpenDialog(this);
         if (result == JFileChooser.APPROVE_OPTION) {
-            File file = fileChooser.getSelectedFile();
-            filePathField.setText(file.getAbsolutePath());
+            File[] files = fileChooser.getSelectedFiles();
+            if (files.length == 0) {
+                files = new File[]{fileChooser.getSelectedFile()};
+            }
+            // 多个路径以系统路径分隔符连接，导入时再展开目录
+            StringBuilder paths = new StringBuilder();
+            for (File file : files) {
+                if (paths.length() > 0) paths.append(File.pathSeparator);
+                paths.append(file.getAbsolutePath());
+                appendLog((file.isDirectory() ? "已选择目录: " : "已选择文件: ") + file.getAbsolutePath() + "\n");
+                appendLog("文件存在: " + file.exists() + "\n");
+            }
+            filePathField.setText(paths.toString());
             importButton.setEnabled(true);
-            logArea.append("已选择文件: " + file.getAbsolutePath() + "\n");
-            logArea.append("文件存在: " + file.exists() + "\n");
         } else {
-            logArea.append("文件选择已取消或失败\n");
+            appendLog("文件选择已取消或失败\n");
         }
     }
 
@@ -252,62 +332,113 @@ public class ScoreImportDialog extends JDialog {
      * 导入成绩
      */
     private void importScores() {
-        String filePath = filePathField.getText().trim();
-        if (filePath.isEmpty()) {
+        String pathText = filePathField.getText().trim();
+        if (pathText.isEmpty()) {
             JOptionPane.showMessageDialog(this,
                     "请先选择成绩文件!", "提示",
                     JOptionPane.WARNING_MESSAGE);
             return;
         }
 
-        File f = new File(filePath);
-        if (!f.exists()) {
+        // 展开所选文件与目录
+        List<String> filePaths = new ArrayList<>();
+        File firstSelected = null;
+        for (String path : pathText.split(java.util.regex.Pattern.quote(File.pathSeparator))) {
+            path = path.trim();
+            if (path.isEmpty()) continue;
+            File f = new File(path);
+            if (!f.exists()) {
+                JOptionPane.showMessageDialog(this,
+                        "文件不存在: " + path, "错误",
+                        JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            if (firstSelected == null) firstSelected = f;
+            if (f.isDirectory()) {
+                try {
+                    filePaths.addAll(ScoreImporter.listScoreFiles(f));
+                } catch (IOException e) {
+                    JOptionPane.showMessageDialog(this,
+                            "读取目录失败: " + e.getMessage(), "错误",
+                            JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+            } else {
+                filePaths.add(f.getAbsolutePath());
+            }
+        }
+        if (filePaths.isEmpty()) {
             JOptionPane.showMessageDialog(this,
-                    "文件不存在: " + filePath, "错误",
-                    JOptionPane.ERROR_MESSAGE);
+                    "所选目录中没有成绩文件(*.csv, *.txt, *.xlsx)", "提示",
+                    JOptionPane.WARNING_MESSAGE);
             return;
         }
 
-        if (!filePath.toLowerCase().endsWith(".csv") && !filePath.toLowerCase().endsWith(".txt")) {
+        String lowerPath = pathText.toLowerCase();
+        if (filePaths.size() == 1 && firstSelected.isFile() && !lowerPath.endsWith(".csv")
+                && !lowerPath.endsWith(".txt") && !lowerPath.endsWith(".xlsx")) {
             int confirm = JOptionPane.showConfirmDialog(this,
-                    "文件扩展名不是 .csv 或 .txt, 继续导入?", "确认",
+                    "文件扩展名不是 .csv、.txt 或 .xlsx, 继续导入?", "确认",
                     JOptionPane.YES_NO_OPTION);
             if (confirm != JOptionPane.YES_OPTION) {
                 return;
             }
         }
 
-        logArea.append("开始导入成绩数据...\n");
+        ScoreImporter.Mode mode = (ScoreImporter.Mode) modeComboBox.getSelectedItem();
+        DuplicateCoursePolicy policy = (DuplicateCoursePolicy) policyComboBox.getSelectedItem();
+        boolean reimport = reimportCheckBox.isSelected();
+        // 问题报告写在成绩文件旁边；批量导入时写在所选（第一个）文件或目录处
+        File reportFile;
+        if (filePaths.size() == 1) {
+            File f = new File(filePaths.get(0));
+            reportFile = new File(f.getAbsoluteFile().getParentFile(), f.getName() + ".report.txt");
+        } else {
+            File dir = firstSelected.isDirectory() ? firstSelected : firstSelected.getAbsoluteFile().getParentFile();
+            reportFile = new File(dir, "score_import_batch.report.txt");
+            appendLog("共 " + filePaths.size() + " 个成绩文件\n");
+        }
+        appendLog("开始导入成绩数据 (" + mode.getDisplayName() + ", 同名课程" + policy.getDisplayName() + ")...\n");
         importButton.setEnabled(false);
         selectFileButton.setEnabled(false);
+        cancelButton.setEnabled(true);
+        progressBar.setValue(0);
 
-        // 在后台线程执行导入
-        SwingWorker<Integer, String> worker = new SwingWorker<Integer, String>() {
+        // 在后台线程执行导入：问题行经 publish 分批送到日志区，进度由定时器刷新
+        class ImportWorker extends SwingWorker<ScoreImporter.BatchResult, String> {
             @Override
-            protected Integer doInBackground() throws Exception {
-                return studentManager.importScoresFromFile(filePath);
+            protected ScoreImporter.BatchResult doInBackground() throws Exception {
+                return studentManager.importScores(filePaths, mode, policy, reportFile, reimport, currentProgress);
             }
 
             @Override
             protected void process(java.util.List<String> chunks) {
                 for (String message : chunks) {
-                    logArea.append(message + "\n");
+                    appendLog(message + "\n");
                 }
             }
 
             @Override
             protected void done() {
+                progressTimer.stop();
+                refreshProgress();
                 try {
-                    int count = get();
-                    logArea.append("导入完成!\n");
-                    logArea.append("成功导入 " + count + " 条成绩记录\n");
-
-                    JOptionPane.showMessageDialog(ScoreImportDialog.this,
-                            "成功导入 " + count + " 条成绩记录!",
-                            "导入成功",
-                            JOptionPane.INFORMATION_MESSAGE);
+                    ScoreImporter.BatchResult batch = get();
+                    ScoreImporter.ImportResult result = batch.getTotal();
+                    if (batch.getFiles().size() > 1) {
+                        for (ScoreImporter.ImportResult file : batch.getFiles()) {
+                            appendLog(new File(file.getFilePath()).getName() + ": " + file + "\n");
+                        }
+                        appendLog("合计: " + result + "\n应用与保存耗时 " + batch.getApplyMillis() + " ms\n");
+                    } else {
+                        appendLog(result + "\n");
+                    }
+                    if (result.getProblemCount() > 0) {
+                        appendLog("问题行明细见: " + reportFile.getAbsolutePath() + "\n");
+                    }
+                    showResult(batch);
                 } catch (Exception e) {
-                    logArea.append("导入失败: " + e.getMessage() + "\n");
+                    appendLog("导入失败: " + e.getMessage() + "\n");
                     JOptionPane.showMessageDialog(ScoreImportDialog.this,
                             "导入失败: " + e.getMessage(),
                             "错误",
@@ -315,10 +446,144 @@ public class ScoreImportDialog extends JDialog {
                 } finally {
                     importButton.setEnabled(true);
                     selectFileButton.setEnabled(true);
+                    cancelButton.setEnabled(false);
                 }
             }
-        };
+
+            void publishProblems(java.util.List<String> problems) {
+                publish(problems.toArray(new String[0]));
+            }
+        }
+        ImportWorker worker = new ImportWorker();
+        currentProgress = new ImportProgress(worker::publishProblems);
+        progressTimer = new Timer(200, e -> refreshProgress());
+        progressTimer.start();
 
         worker.execute();
     }
+
+    /**
+     * 刷新进度条与吞吐量/剩余时间
+     */
+    private void refreshProgress() {
+        ImportProgress progress = currentProgress;
+        if (progress == null) return;
+        long total = progress.getTotalBytes();
+        long read = progress.getBytesRead();
+        if (total > 0) {
+            int permille = (int) Math.min(1000, read * 1000 / total);
+            progressBar.setValue(permille);
+            progressBar.setString(String.format("%.1f%%", permille / 10.0));
+        }
+        long eta = progress.getEtaMillis();
+        progressLabel.setText(String.format("已读 %.1f / %.1f MB, 已解析 %d 行, 已应用 %d 条, %.0f 行/秒%s",
+                read / 1048576.0, total / 1048576.0, progress.getRowsParsed(), progress.getRowsApplied(),
+                progress.getRowsPerSecond(), eta < 0 ? "" : String.format(", 预计剩余 %.1f 秒", eta / 1000.0)));
+    }
+
+    /**
+     * 追加日志；超过上限时删除最早的行，避免日志区无限增长
+     */
+    private void appendLog(String text) {
+        logArea.append(text);
+        int excess = logArea.getLineCount() - MAX_LOG_LINES;
+        if (excess > 0) {
+            try {
+                logArea.replaceRange("", 0, logArea.getLineEndOffset(excess - 1));
+            } catch (javax.swing.text.BadLocationException ignored) {
+                // 行号来自同一文档，不会越界
+            }
+        }
+        logArea.setCaretPosition(logArea.getDocument().getLength());
+    }
+
+    /**
+     * 按模式给出导入结论
+     */
+    private void showResult(ScoreImporter.BatchResult batch) {
+        ScoreImporter.ImportResult result = batch.getTotal();
+        int fileCount = batch.getFiles().size();
+        if (result.isSkipped()) {
+            String what = fileCount == 1 ? "该文件内容" : "所选 " + fileCount + " 个文件的内容均";
+            JOptionPane.showMessageDialog(this,
+                    String.format("%s已于 %tF %<tT 导入过，本次未做修改。\n如需再次导入请勾选\"强制重新导入\"。",
+                            what, result.getPreviousImportTime()),
+                    "已导入过", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        if (result.isCancelled()) {
+            JOptionPane.showMessageDialog(this,
+                    "导入已取消，未修改任何数据", "提示",
+                    JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        if (result.getFailureMessage() != null) {
+            JOptionPane.showMessageDialog(this,
+                    "导入失败: " + result.getFailureMessage(), "错误",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        String problems = "格式错误 " + result.getInvalidCount() + " 行, 学号不存在 " + result.getUnknownStudentCount()
+                + " 行, 重复课程 " + result.getDuplicateCount() + " 行";
+        switch (result.getMode()) {
+            case DRY_RUN:
+                JOptionPane.showMessageDialog(this,
+                        "校验完成(未修改数据)\n通过校验 " + result.getValidCount() + " 条\n" + problems,
+                        "校验结果",
+                        result.getProblemCount() > 0 ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+                break;
+            case ALL_OR_NOTHING:
+                if (result.getProblemCount() > 0) {
+                    JOptionPane.showMessageDialog(this,
+                            "存在问题行，未导入任何记录\n" + problems, "导入取消",
+                            JOptionPane.WARNING_MESSAGE);
+                } else {
+                    // 全部通过：与成功导入相同的提示
+                    showImported(batch);
+                }
+                break;
+            default:
+                showImported(batch);
+                break;
+        }
+    }
+
+    /**
+     * 成功导入的提示
+     */
+    private void showImported(ScoreImporter.BatchResult batch) {
+        ScoreImporter.ImportResult result = batch.getTotal();
+        int fileCount = batch.getFiles().size();
+        appendLog("导入完成!\n");
+        String detail = result.getPolicy() == DuplicateCoursePolicy.APPEND ? ""
+                : "\n同名课程" + result.getPolicy().getDisplayName() + ": 新增 " + result.getAddedCount()
+                + ", 覆盖 " + result.getReplacedCount() + ", 保留原记录 " + result.getKeptCount();
+        if (result.getUnchangedCount() > 0) {
+            detail += "\n与上次导入相同 " + result.getUnchangedCount() + " 行，未重复应用";
+        }
+        if (fileCount > 1) {
+            detail += "\n共 " + fileCount + " 个文件，跳过已导入文件 " + batch.getSkippedFileCount() + " 个";
+        }
+        JOptionPane.showMessageDialog(this,
+                "成功导入 " + result.getImportedCount() + " 条成绩记录!" + detail,
+                "导入成功",
+                JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    /**
+     * 下拉框显示枚举的中文名称
+     */
+    private static class DisplayNameRenderer extends DefaultListCellRenderer {
+        @Override
+        public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                      boolean isSelected, boolean cellHasFocus) {
+            super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+            if (value instanceof ScoreImporter.Mode) {
+                setText(((ScoreImporter.Mode) value).getDisplayName());
+            } else if (value instanceof DuplicateCoursePolicy) {
+                setText(((DuplicateCoursePolicy) value).getDisplayName());
+            }
+            return this;
+        }
+    }
 }
@@ -1,32 +1,35 @@
 package gui;
 
-import service.StudentManager;
+import model.Student;
+import service.StudentDataSource;
+import service.StudentEvent;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 public class StatisticsDialog extends JDialog {
-    private final StudentManager studentManager;
+    private final StudentDataSource studentManager;
+    private final GenderPieChartPanel genderPanel;
+    private final MajorBarChartPanel majorPanel;
+    private final JTextArea summary;
+    private final EventSubscriber eventSubscriber;
 
-    public StatisticsDialog(Frame parent, StudentManager studentManager) {
+    public StatisticsDialog(Frame parent, StudentDataSource studentManager) {
         super(parent, "统计信息", true);
         this.studentManager = studentManager;
         setSize(800, 600);
         setLocationRelativeTo(parent);
         setLayout(new BorderLayout(10,10));
 
-        Map<String, Object> stats = studentManager.getStatistics();
-
+        // 统计在后台进行（远程数据源需请求服务），完成前显示空图表
         JPanel charts = new JPanel(new GridLayout(1,2,10,10));
-        charts.add(new GenderPieChartPanel(
-                (Long) stats.get("男生人数"),
-                (Long) stats.get("女生人数")
-        ));
-
-        @SuppressWarnings("unchecked")
-        Map<String, Long> majorDist = (Map<String, Long>) stats.get("专业分布");
-        MajorBarChartPanel majorPanel = new MajorBarChartPanel(majorDist);
+        genderPanel = new GenderPieChartPanel(0, 0);
+        charts.add(genderPanel);
+
+        majorPanel = new MajorBarChartPanel(null);
         // 当专业很多时，允许水平滚动
         JScrollPane majorScroll = new JScrollPane(majorPanel,
             ScrollPaneConstants.VERTICAL_SCROLLBAR_NEVER,
@@ -36,19 +39,77 @@ public class StatisticsDialog extends JDialog {
 
         add(charts, BorderLayout.CENTER);
 
-        JTextArea summary = new JTextArea();
+        summary = new JTextArea();
         summary.setEditable(false);
         summary.setFont(new Font("Microsoft YaHei UI", Font.PLAIN, 12));
-        summary.append("总人数: " + stats.get("总人数") + "\n");
-        summary.append("男生人数: " + stats.get("男生人数") + "\n");
-        summary.append("女生人数: " + stats.get("女生人数") + "\n");
-        summary.append("平均年龄: " + stats.get("平均年龄") + "\n");
+        summary.setText("正在统计...");
         add(new JScrollPane(summary), BorderLayout.SOUTH);
+
+        refresh();
+        // 对话框打开期间（如数据文件被其他程序修改）只在统计可能变化时重新统计
+        eventSubscriber = EventSubscriber.subscribe(studentManager, this::applyEvents);
+    }
+
+    @Override
+    public void dispose() {
+        eventSubscriber.cancel();
+        super.dispose();
+    }
+
+    /**
+     * 新增、删除以及性别/年龄/专业被修改时重新统计，只重绘发生变化的部分；课程与导入不影响这些统计
+     */
+    private void applyEvents(List<StudentEvent> events) {
+        if (events.stream().noneMatch(StatisticsDialog::affectsStatistics)) {
+            return;
+        }
+        refresh();
+    }
+
+    private void refresh() {
+        AsyncUi.apply(this, studentManager.async(studentManager::getStatistics), stats -> {
+            genderPanel.setCounts(count(stats, "男生人数"), count(stats, "女生人数"));
+            majorPanel.setData(majorDistribution(stats));
+            String text = summaryText(stats);
+            if (!text.equals(summary.getText())) {
+                summary.setText(text);
+            }
+        });
+    }
+
+    private static boolean affectsStatistics(StudentEvent event) {
+        if (event instanceof StudentEvent.StudentAdded || event instanceof StudentEvent.StudentRemoved) {
+            return true;
+        }
+        if (event instanceof StudentEvent.StudentUpdated) {
+            Student before = ((StudentEvent.StudentUpdated) event).getPrevious();
+            Student after = ((StudentEvent.StudentUpdated) event).getCurrent();
+            return !Objects.equals(before.getGender(), after.getGender()) || before.getAge() != after.getAge()
+                    || !Objects.equals(before.getMajor(), after.getMajor());
+        }
+        return false;
+    }
+
+    private static long count(Map<String, Object> stats, String key) {
+        Object value = stats.get(key);
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Long> majorDistribution(Map<String, Object> stats) {
+        return (Map<String, Long>) stats.get("专业分布");
+    }
+
+    private static String summaryText(Map<String, Object> stats) {
+        return "总人数: " + stats.get("总人数") + "\n"
+                + "男生人数: " + stats.get("男生人数") + "\n"
+                + "女生人数: " + stats.get("女生人数") + "\n"
+                + "平均年龄: " + stats.get("平均年龄") + "\n";
     }
 
     static class GenderPieChartPanel extends JPanel {
-        private final long male;
-        private final long female;
+        private long male;
+        private long female;
 
         GenderPieChartPanel(long male, long female) {
             this.male = male;
@@ -56,6 +117,14 @@ public class StatisticsDialog extends JDialog {
             setBackground(Color.WHITE);
         }
 
+        void setCounts(long male, long female) {
+            if (male != this.male || female != this.female) {
+                this.male = male;
+                this.female = female;
+                repaint();
+            }
+        }
+
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
@@ -92,11 +161,24 @@ public class StatisticsDialog extends JDialog {
     }
 
     static class MajorBarChartPanel extends JPanel {
-        private final Map<String, Long> data;
+        private Map<String, Long> data;
 
         MajorBarChartPanel(Map<String, Long> data) {
             this.data = data;
             setBackground(Color.WHITE);
+            updatePreferredSize();
+        }
+
+        void setData(Map<String, Long> data) {
+            if (!Objects.equals(data, this.data)) {
+                this.data = data;
+                updatePreferredSize();
+                revalidate();
+                repaint();
+            }
+        }
+
+        private void updatePreferredSize() {
             // 初始宽度按数据量扩展，便于水平滚动
             int baseWidth = 700;
             int perBar = 90; // 每个柱预留的宽度（含间隔）
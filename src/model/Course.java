@@ -1,6 +1,8 @@
 package model;
 
 import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * 课程成绩类
@@ -75,6 +77,30 @@ public class Course implements Serializable {
         );
     }
 
+    /**
+     * 转换为字段映射(JSON 对象形式): name, credit, score
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("name", courseName);
+        map.put("credit", credit);
+        map.put("score", score);
+        return map;
+    }
+
+    /**
+     * 从字段映射创建课程(与 toMap 对应)
+     */
+    public static Course fromMap(Map<?, ?> map) {
+        Object name = map.get("name");
+        Object credit = map.get("credit");
+        Object score = map.get("score");
+        if (name == null || !(credit instanceof Number) || !(score instanceof Number)) {
+            throw new IllegalArgumentException("无效的课程: " + map);
+        }
+        return new Course(name.toString(), ((Number) credit).doubleValue(), ((Number) score).doubleValue());
+    }
+
     @Override
     public String toString() {
         return courseName + "(学分:" + credit + ", 成绩:" + score + ")";
@@ -0,0 +1,49 @@
+package model;
+
+/**
+ * 同名课程处理策略
+ * 为学生添加一门已存在（课程名相同）的课程时如何处理
+ */
+public enum DuplicateCoursePolicy {
+    /** 直接追加，允许同名课程重复（原有行为） */
+    APPEND("追加"),
+    /** 覆盖已有记录；同一批次内再次出现同名课程视为重复 */
+    REPLACE("覆盖"),
+    /** 保留成绩较高的记录 */
+    KEEP_BEST("保留最高分"),
+    /** 以最后出现的记录为准（同一批次内后出现的行覆盖先出现的行） */
+    KEEP_LATEST("保留最新");
+
+    /**
+     * 界面、命令行与 HTTP 导入未指定策略时的默认值：覆盖，重复导入同一文件不会使课程翻倍
+     */
+    public static final DuplicateCoursePolicy DEFAULT = REPLACE;
+
+    /** 单门课程的合并结果 */
+    public enum Outcome { ADDED, REPLACED, KEPT }
+
+    private final String displayName;
+
+    DuplicateCoursePolicy(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * 已存在同名课程时，新记录是否取代旧记录
+     */
+    public boolean shouldReplace(Course existing, Course incoming) {
+        switch (this) {
+            case KEEP_BEST:
+                return incoming.getScore() > existing.getScore();
+            case REPLACE:
+            case KEEP_LATEST:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -2,7 +2,11 @@ package model;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 学生实体类
@@ -24,6 +28,10 @@ public class Student implements Serializable {
     private double totalCredits;   // 总学分
     private double gpa;            // 加权平均分(GPA)
 
+    // 课程名 -> 首次出现位置，按需构建，批量操作结束后释放
+    private transient Map<String, Integer> courseIndex;
+    private transient int indexedSize;
+
     public Student() {
         this.courses = new ArrayList<>();
     }
@@ -126,6 +134,7 @@ public class Student implements Serializable {
 
     public void setCourses(List<Course> courses) {
         this.courses = courses;
+        this.courseIndex = null;
         calculateGPA();
     }
 
@@ -137,15 +146,122 @@ public class Student implements Serializable {
             this.courses = new ArrayList<>();
         }
         this.courses.add(course);
+        indexAppended();
+        calculateGPA();
+    }
+
+    /**
+     * 批量添加课程，全部加入后只重新计算一次GPA
+     */
+    public void addCourses(Collection<Course> newCourses) {
+        if (this.courses == null) {
+            this.courses = new ArrayList<>();
+        }
+        for (Course course : newCourses) {
+            this.courses.add(course);
+            indexAppended();
+        }
         calculateGPA();
     }
 
+    /**
+     * 按策略合并一门课程：同名课程不存在时追加，存在时由策略决定是否取代。
+     * 取代时替换列表中的对象而非修改原对象。不重算 GPA，批量合并结束后调用 {@link #calculateGPA()}。
+     */
+    public DuplicateCoursePolicy.Outcome mergeCourse(Course course, DuplicateCoursePolicy policy) {
+        if (this.courses == null) {
+            this.courses = new ArrayList<>();
+        }
+        Integer position = policy == DuplicateCoursePolicy.APPEND ? null : findCoursePosition(course.getCourseName());
+        if (position == null) {
+            this.courses.add(course);
+            indexAppended();
+            return DuplicateCoursePolicy.Outcome.ADDED;
+        }
+        if (!policy.shouldReplace(this.courses.get(position), course)) {
+            return DuplicateCoursePolicy.Outcome.KEPT;
+        }
+        this.courses.set(position, course);
+        return DuplicateCoursePolicy.Outcome.REPLACED;
+    }
+
+    /**
+     * 是否已有该课程（使用课程名索引，O(1)）
+     */
+    public boolean hasCourse(String courseName) {
+        return findCoursePosition(courseName) != null;
+    }
+
+    /**
+     * 修改指定位置的课程，保持课程名索引一致
+     */
+    public void updateCourse(int position, String courseName, double credit, double score) {
+        Course course = this.courses.get(position);
+        if (!course.getCourseName().equals(courseName)) {
+            this.courseIndex = null;
+        }
+        course.setCourseName(courseName);
+        course.setCredit(credit);
+        course.setScore(score);
+        calculateGPA();
+    }
+
+    /**
+     * 释放课程名索引（批量导入或课程编辑结束后调用）
+     */
+    public void releaseCourseIndex() {
+        this.courseIndex = null;
+    }
+
+    /**
+     * 查找课程名首次出现的位置；索引缺失或与列表不一致（列表被外部修改）时重建
+     */
+    private Integer findCoursePosition(String courseName) {
+        if (this.courses == null) {
+            return null;
+        }
+        if (courseIndex == null || indexedSize != this.courses.size()) {
+            rebuildCourseIndex();
+        }
+        Integer position = courseIndex.get(courseName);
+        if (position != null && !this.courses.get(position).getCourseName().equals(courseName)) {
+            rebuildCourseIndex();
+            position = courseIndex.get(courseName);
+        }
+        return position;
+    }
+
+    private void rebuildCourseIndex() {
+        courseIndex = new HashMap<>(this.courses.size() * 2);
+        for (int i = 0; i < this.courses.size(); i++) {
+            courseIndex.putIfAbsent(this.courses.get(i).getCourseName(), i);
+        }
+        indexedSize = this.courses.size();
+    }
+
+    /**
+     * 末尾追加一门课程后增量维护索引
+     */
+    private void indexAppended() {
+        if (courseIndex == null) {
+            return;
+        }
+        int position = this.courses.size() - 1;
+        if (indexedSize != position) {
+            courseIndex = null;
+            return;
+        }
+        courseIndex.putIfAbsent(this.courses.get(position).getCourseName(), position);
+        indexedSize++;
+    }
+
     /**
      * 删除课程
      */
     public void removeCourse(String courseName) {
         if (this.courses != null) {
             this.courses.removeIf(c -> c.getCourseName().equals(courseName));
+            this.courseIndex = null;
             calculateGPA();
         }
     }
@@ -156,6 +272,7 @@ public class Student implements Serializable {
     public void clearCourses() {
         if (this.courses != null) {
             this.courses.clear();
+            this.courseIndex = null;
             calculateGPA();
         }
     }
@@ -217,6 +334,62 @@ public class Student implements Serializable {
         return sb.toString();
     }
 
+    /**
+     * 转换为字段映射(JSON 对象形式, 本机服务接口使用)
+     * @param withCourses 是否包含课程列表; 不包含时仍带 GPA、总学分与课程数
+     */
+    public Map<String, Object> toMap(boolean withCourses) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("studentId", studentId);
+        map.put("name", name);
+        map.put("gender", gender);
+        map.put("age", age);
+        map.put("major", major);
+        map.put("classNumber", classNumber);
+        map.put("phoneNumber", phoneNumber);
+        map.put("gpa", gpa);
+        map.put("totalCredits", totalCredits);
+        map.put("courseCount", getCourseCount());
+        if (withCourses) {
+            List<Object> list = new ArrayList<>(getCourseCount());
+            if (courses != null) {
+                for (Course course : courses) {
+                    list.add(course.toMap());
+                }
+            }
+            map.put("courses", list);
+        }
+        return map;
+    }
+
+    /**
+     * 从字段映射创建学生对象(与 toMap 对应), GPA 与总学分由课程重新计算
+     */
+    public static Student fromMap(Map<?, ?> map) {
+        Object id = map.get("studentId");
+        if (id == null) {
+            throw new IllegalArgumentException("缺少学号");
+        }
+        Object age = map.get("age");
+        Student student = new Student(id.toString(), text(map, "name"), text(map, "gender"),
+                age instanceof Number ? ((Number) age).intValue() : 0,
+                text(map, "major"), text(map, "classNumber"), text(map, "phoneNumber"));
+        Object courses = map.get("courses");
+        if (courses instanceof List) {
+            List<Course> list = new ArrayList<>(((List<?>) courses).size());
+            for (Object item : (List<?>) courses) {
+                list.add(Course.fromMap((Map<?, ?>) item));
+            }
+            student.setCourses(list);
+        }
+        return student;
+    }
+
+    private static String text(Map<?, ?> map, String key) {
+        Object value = map.get(key);
+        return value == null ? "" : value.toString();
+    }
+
     /**
      * 从CSV格式的字符串创建学生对象
      * 支持旧格式(7个字段)和新格式(8个字段,包含课程)
@@ -0,0 +1,1033 @@
+package server;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import model.Course;
+import model.DuplicateCoursePolicy;
+import model.Student;
+import model.User;
+import service.ExcelExporter;
+import service.ExportUtil;
+import service.ImportProgress;
+import service.Json;
+import service.Metrics;
+import service.RankingService;
+import service.ScoreImporter;
+import service.StudentManager;
+import service.UserManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 本机 HTTP/JSON 服务：一个进程持有数据文件，其他客户端（脚本、其他界面进程）通过接口访问，
+ * 避免多个进程各自加载、各自保存同一数据文件而互相覆盖。
+ * 基于 JDK 自带的 com.sun.net.httpserver，每个请求一个线程：运行在 JDK 21+ 时使用虚拟线程，
+ * 否则退回固定大小的线程池。StudentManager 本身不是线程安全的，所有访问经同一把读写锁：
+ * 查询、统计、排名、导出持读锁并发执行；增删改与成绩导入持写锁串行执行。
+ * 认证使用 UserManager：POST /api/login 换取令牌，之后以 Authorization: Bearer 令牌 访问
+ * （也接受 Basic 认证）；修改类操作与界面一致，只允许教师和管理员。
+ * 每次修改数据后版本号加一，所有响应带 X-Sims-Version 头，远程客户端据此判断缓存是否过期
+ * （见 service.RemoteStudentDataSource）。
+ */
+public final class SimsServer {
+    public static final int DEFAULT_PORT = 8080;
+    public static final String DEFAULT_BIND = "127.0.0.1";
+    /** 分页默认条数与上限 */
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 1000;
+    /** 导入结果中最多返回的问题行 */
+    static final int MAX_PROBLEMS = 100;
+    /** 令牌空闲超时 */
+    static final long SESSION_IDLE_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    private static final String JSON_TYPE = "application/json; charset=UTF-8";
+    private static final String XLSX_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+    /** 数据版本响应头 */
+    public static final String VERSION_HEADER = "X-Sims-Version";
+
+    /**
+     * 已登录会话
+     */
+    private static final class Session {
+        final User user;
+        volatile long lastUsed;
+
+        Session(User user) {
+            this.user = user;
+            this.lastUsed = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * 已上传、等待导入的成绩文件
+     */
+    private static final class Upload {
+        final File file;
+        final String name;
+        final long created = System.currentTimeMillis();
+
+        Upload(File file, String name) {
+            this.file = file;
+            this.name = name;
+        }
+    }
+
+    /**
+     * 带 HTTP 状态码的请求错误，由处理器统一转换为 {"error": ...}
+     */
+    static final class ApiException extends RuntimeException {
+        final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private final StudentManager studentManager;
+    private final UserManager userManager;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Upload> uploads = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    // 数据版本：每次修改加一（在写锁内修改）
+    private final AtomicLong version = new AtomicLong();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public SimsServer(StudentManager studentManager, UserManager userManager) {
+        this.studentManager = studentManager;
+        this.userManager = userManager;
+    }
+
+    /**
+     * 命令行启动：java -cp bin server.SimsServer [--data=数据文件] [--users=用户文件] [--port=端口] [--bind=地址]
+     */
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        String dataPath = null;
+        List<String> rest = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--data=")) {
+                dataPath = arg.substring("--data=".length());
+            } else {
+                rest.add(arg);
+            }
+        }
+        if (dataPath == null) {
+            dataPath = "data/students.txt";
+            if (!new File(dataPath).exists() && new File("../data/students.txt").exists()) {
+                dataPath = "../data/students.txt";
+            }
+        }
+        System.exit(serve(dataPath, rest));
+    }
+
+    /**
+     * 启动服务并阻塞到进程结束（Ctrl+C 时经关闭钩子停止）
+     * @param params --users= / --port= / --bind= 选项
+     * @return 退出码：0 正常结束；1 启动失败；2 参数错误
+     */
+    public static int serve(String dataPath, List<String> params) {
+        String usersPath = "data/users.txt";
+        int port = DEFAULT_PORT;
+        String bind = DEFAULT_BIND;
+        try {
+            for (String p : params) {
+                if (p.startsWith("--users=")) {
+                    usersPath = p.substring("--users=".length());
+                } else if (p.startsWith("--port=")) {
+                    port = Integer.parseInt(p.substring("--port=".length()));
+                } else if (p.startsWith("--bind=")) {
+                    bind = p.substring("--bind=".length());
+                } else {
+                    throw new IllegalArgumentException("未知选项: " + p);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("参数错误: " + e.getMessage());
+            return 2;
+        }
+        if (!new File(dataPath).isFile()) {
+            System.err.println("数据文件不存在: " + dataPath);
+            return 1;
+        }
+
+        SimsServer simsServer = new SimsServer(new StudentManager(dataPath), new UserManager(usersPath));
+        try {
+            simsServer.start(new InetSocketAddress(bind, port));
+        } catch (IOException e) {
+            System.err.println("服务启动失败: " + e.getMessage());
+            return 1;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(simsServer::stop, "sims-server-shutdown"));
+        try {
+            Thread.currentThread().join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 0;
+    }
+
+    public synchronized void start(InetSocketAddress address) throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("服务已启动");
+        }
+        HttpServer httpServer = HttpServer.create(address, 1024);
+        httpServer.createContext("/api/login", endpoint(false, this::login));
+        httpServer.createContext("/api/logout", endpoint(true, this::logout));
+        httpServer.createContext("/api/students", endpoint(true, this::students));
+        httpServer.createContext("/api/version", endpoint(true, this::version));
+        httpServer.createContext("/api/stats", endpoint(true, this::stats));
+        httpServer.createContext("/api/majors", endpoint(true, this::majors));
+        httpServer.createContext("/api/rankings", endpoint(true, this::rankings));
+        httpServer.createContext("/api/backup", endpoint(true, this::backup));
+        httpServer.createContext("/api/uploads", endpoint(true, this::upload));
+        httpServer.createContext("/api/import", endpoint(true, this::importScores));
+        httpServer.createContext("/api/export", endpoint(true, this::export));
+        executor = newRequestExecutor();
+        httpServer.setExecutor(executor);
+        httpServer.start();
+        server = httpServer;
+        System.out.println("服务已启动: http://" + address.getHostString() + ":" + getPort()
+                + "/api（" + studentManager.getStudentCount() + " 名学生）");
+    }
+
+    public synchronized void stop() {
+        if (server == null) return;
+        server.stop(1);
+        executor.shutdown();
+        server = null;
+        sessions.clear();
+        for (Upload upload : uploads.values()) {
+            deleteTemp(upload.file);
+        }
+        uploads.clear();
+        System.out.println("服务已停止");
+    }
+
+    /**
+     * 实际监听的端口（以 0 端口启动时由系统分配）
+     */
+    public synchronized int getPort() {
+        return server == null ? -1 : server.getAddress().getPort();
+    }
+
+    /**
+     * 每个请求一个线程：优先使用虚拟线程（JDK 21+，编译目标为 11 故反射获取），否则使用固定线程池
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ExecutorService virtual = (ExecutorService) factory.invoke(null);
+            System.out.println("请求线程: 虚拟线程");
+            return virtual;
+        } catch (ReflectiveOperationException e) {
+            int threads = Math.max(16, Runtime.getRuntime().availableProcessors() * 4);
+            AtomicInteger counter = new AtomicInteger();
+            System.out.println("请求线程: 固定线程池（" + threads + " 个线程）");
+            return Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "sims-http-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    // ---------------------------------------------------------------- 处理器
+
+    private interface Action {
+        void handle(HttpExchange exchange, User user) throws IOException;
+    }
+
+    /**
+     * 包装处理器：认证、请求计时，并把异常转换为 JSON 错误响应
+     */
+    private HttpHandler endpoint(boolean requireLogin, Action action) {
+        return exchange -> {
+            long start = Metrics.start();
+            try {
+                User user = requireLogin ? authenticate(exchange) : null;
+                action.handle(exchange, user);
+            } catch (ApiException e) {
+                sendError(exchange, e.status, e.getMessage());
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, e.getMessage());
+            } catch (IOException e) {
+                // 客户端断开等，无法再写响应
+                Metrics.count("server.io.failed");
+            } catch (RuntimeException e) {
+                System.err.println("处理请求失败 " + exchange.getRequestMethod() + " "
+                        + exchange.getRequestURI() + ": " + e);
+                e.printStackTrace();
+                sendError(exchange, 500, "服务器内部错误: " + e.getMessage());
+            } finally {
+                exchange.close();
+                Metrics.stop("server.request", start);
+            }
+        };
+    }
+
+    private void login(HttpExchange exchange, User ignored) throws IOException {
+        requireMethod(exchange, "POST");
+        Map<String, Object> body = readJson(exchange);
+        String username = stringField(body, "username");
+        String password = stringField(body, "password");
+        User user = username == null || password == null ? null : userManager.authenticate(username, password);
+        if (user == null) {
+            throw new ApiException(401, "用户名或密码错误");
+        }
+        String token = newId();
+        sessions.put(token, new Session(user));
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("token", token);
+        result.put("username", user.getUsername());
+        result.put("role", user.getRole().name());
+        sendJson(exchange, 200, result);
+    }
+
+    private void logout(HttpExchange exchange, User user) throws IOException {
+        requireMethod(exchange, "POST");
+        String token = bearerToken(exchange);
+        if (token != null) {
+            sessions.remove(token);
+        }
+        sendJson(exchange, 200, Collections.singletonMap("ok", true));
+    }
+
+    /**
+     * /api/students 列表与新增；/api/students/{学号} 查询、修改、删除
+     */
+    private void students(HttpExchange exchange, User user) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+        String id = path.length() > "/api/students/".length()
+                ? decode(path.substring("/api/students/".length())) : null;
+        if (id == null) {
+            if ("GET".equals(method)) {
+                listStudents(exchange);
+            } else if ("POST".equals(method)) {
+                requirePrivileged(user);
+                createStudent(exchange);
+            } else {
+                throw new ApiException(405, "不支持的请求方法: " + method);
+            }
+            return;
+        }
+        switch (method) {
+            case "GET":
+                getStudent(exchange, id);
+                break;
+            case "PUT":
+                requirePrivileged(user);
+                updateStudent(exchange, id);
+                break;
+            case "DELETE":
+                requirePrivileged(user);
+                deleteStudent(exchange, id);
+                break;
+            default:
+                throw new ApiException(405, "不支持的请求方法: " + method);
+        }
+    }
+
+    /**
+     * 分页列表或搜索：field=all|name|major|class 指定搜索字段（默认 all，综合搜索），
+     * courses=true 时每条记录包含课程列表；不搜索时可用 offset 代替 page 指定起始位置
+     */
+    private void listStudents(HttpExchange exchange) throws IOException {
+        Map<String, String> query = query(exchange);
+        String keyword = query.get("q");
+        String field = query.getOrDefault("field", "all");
+        boolean withCourses = Boolean.parseBoolean(query.get("courses"));
+        int page = intParam(query, "page", 0);
+        int size = pageSize(query);
+        int total;
+        List<Student> items;
+        long dataVersion;
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            dataVersion = version.get();
+            if (keyword == null || keyword.trim().isEmpty()) {
+                total = studentManager.getStudentCount();
+                items = studentManager.getStudents(intParam(query, "offset", page * size), size);
+            } else {
+                List<Student> matched = search(field, keyword.trim());
+                total = matched.size();
+                items = slice(matched, page, size);
+            }
+        } finally {
+            read.unlock();
+        }
+        List<Object> rows = new ArrayList<>(items.size());
+        for (Student s : items) {
+            rows.add(s.toMap(withCourses));
+        }
+        sendJson(exchange, 200, page(total, page, size, rows), dataVersion);
+    }
+
+    private List<Student> search(String field, String keyword) {
+        switch (field) {
+            case "name":
+                return studentManager.searchByName(keyword);
+            case "major":
+                return studentManager.searchByMajor(keyword);
+            case "class":
+                return studentManager.searchByClass(keyword);
+            case "all":
+                return studentManager.search(keyword);
+            default:
+                throw new ApiException(400, "不支持的搜索字段: " + field);
+        }
+    }
+
+    private void getStudent(HttpExchange exchange, String id) throws IOException {
+        Map<String, Object> json;
+        long dataVersion;
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            dataVersion = version.get();
+            Student student = studentManager.findStudentById(id);
+            if (student == null) {
+                throw new ApiException(404, "学号不存在: " + id);
+            }
+            json = student.toMap(true);
+            json.put("rankInMajor", studentManager.getRankInMajor(id));
+        } finally {
+            read.unlock();
+        }
+        sendJson(exchange, 200, json, dataVersion);
+    }
+
+    private void createStudent(HttpExchange exchange) throws IOException {
+        Student student = parseStudent(readJson(exchange), null);
+        boolean saved;
+        long dataVersion;
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            if (studentManager.findStudentById(student.getStudentId()) != null) {
+                throw new ApiException(409, "学号 " + student.getStudentId() + " 已存在");
+            }
+            saved = studentManager.addStudent(student);
+            dataVersion = version.incrementAndGet();
+        } finally {
+            write.unlock();
+        }
+        requireSaved(saved);
+        sendJson(exchange, 201, student.toMap(true), dataVersion);
+    }
+
+    private void updateStudent(HttpExchange exchange, String id) throws IOException {
+        Map<String, Object> body = readJson(exchange);
+        Object bodyId = body.get("studentId");
+        if (bodyId != null && !id.equals(bodyId.toString())) {
+            throw new ApiException(400, "请求体中的学号与路径不一致");
+        }
+        Student student;
+        boolean saved;
+        long dataVersion;
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            Student existing = studentManager.findStudentById(id);
+            if (existing == null) {
+                throw new ApiException(404, "学号不存在: " + id);
+            }
+            student = parseStudent(body, id);
+            // 未提供的性别、年龄与课程保持原值
+            if (!body.containsKey("gender")) {
+                student.setGender(existing.getGender());
+            }
+            if (!body.containsKey("age")) {
+                student.setAge(existing.getAge());
+            }
+            if (!body.containsKey("courses")) {
+                student.setCourses(new ArrayList<>(existing.getCourses()));
+            }
+            saved = studentManager.updateStudent(student);
+            dataVersion = version.incrementAndGet();
+        } finally {
+            write.unlock();
+        }
+        requireSaved(saved);
+        sendJson(exchange, 200, student.toMap(true), dataVersion);
+    }
+
+    private void deleteStudent(HttpExchange exchange, String id) throws IOException {
+        boolean deleted;
+        long dataVersion;
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            if (studentManager.findStudentById(id) == null) {
+                throw new ApiException(404, "学号不存在: " + id);
+            }
+            deleted = studentManager.deleteStudent(id);
+            dataVersion = version.incrementAndGet();
+        } finally {
+            write.unlock();
+        }
+        requireSaved(deleted);
+        sendJson(exchange, 200, Collections.singletonMap("deleted", id), dataVersion);
+    }
+
+    /**
+     * 当前数据版本与学生数（远程客户端校验缓存）
+     */
+    private void version(HttpExchange exchange, User user) throws IOException {
+        requireMethod(exchange, "GET");
+        Map<String, Object> result = new LinkedHashMap<>();
+        long dataVersion;
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            dataVersion = version.get();
+            result.put("version", dataVersion);
+            result.put("students", studentManager.getStudentCount());
+        } finally {
+            read.unlock();
+        }
+        sendJson(exchange, 200, result, dataVersion);
+    }
+
+    private void backup(HttpExchange exchange, User user) throws IOException {
+        requireMethod(exchange, "POST");
+        requirePrivileged(user);
+        boolean ok;
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            ok = studentManager.backupData();
+        } finally {
+            read.unlock();
+        }
+        if (!ok) {
+            throw new ApiException(500, "数据备份失败");
+        }
+        sendJson(exchange, 200, Collections.singletonMap("ok", true));
+    }
+
+    private void stats(HttpExchange exchange, User user) throws IOException {
+        requireMethod(exchange, "GET");
+        Map<String, Object> stats;
+        long dataVersion;
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            dataVersion = version.get();
+            stats = new LinkedHashMap<>(studentManager.getStatistics());
+            stats.put("课程记录数", studentManager.getCourseCount());
+        } finally {
+            read.unlock();
+        }
+        sendJson(exchange, 200, stats, dataVersion);
+    }
+
+    private void majors(HttpExchange exchange, User user) throws IOException {
+        requireMethod(exchange, "GET");
+        List<String> majors;
+        long dataVersion;
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            dataVersion = version.get();
+            majors = studentManager.getAllMajors();
+        } finally {
+            read.unlock();
+        }
+        sendJson(exchange, 200, majors, dataVersion);
+    }
+
+    /**
+     * 排名分页：指定 major 时为专业排名，否则为全体排名
+     */
+    private void rankings(HttpExchange exchange, User user) throws IOException {
+        requireMethod(exchange, "GET");
+        Map<String, String> query = query(exchange);
+        String major = query.get("major");
+        boolean withCourses = Boolean.parseBoolean(query.get("courses"));
+        int page = intParam(query, "page", 0);
+        int size = pageSize(query);
+        List<Object> rows = new ArrayList<>();
+        RankingService.Ranking ranking;
+        long dataVersion;
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            dataVersion = version.get();
+            ranking = major == null || major.isEmpty()
+                    ? studentManager.getOverallRanking() : studentManager.getMajorRanking(major);
+            if (ranking.isEmpty() && major != null && !major.isEmpty()) {
+                throw new ApiException(404, "专业不存在或没有学生: " + major);
+            }
+            int from = (int) Math.min((long) page * size, ranking.size());
+            int to = Math.min(from + size, ranking.size());
+            for (int i = from; i < to; i++) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("rank", ranking.getRank(i));
+                row.putAll(ranking.get(i).toMap(withCourses));
+                rows.add(row);
+            }
+        } finally {
+            read.unlock();
+        }
+        Map<String, Object> result = page(ranking.size(), page, size, rows);
+        result.put("averageGpa", ranking.getAverageGpa());
+        result.put("scoredCount", ranking.getScoredCount());
+        sendJson(exchange, 200, result, dataVersion);
+    }
+
+    /**
+     * 上传一个成绩文件（name 参数给出原文件名），返回编号供 /api/import?uploads= 引用；
+     * 超过令牌空闲时长仍未导入的上传会被删除
+     */
+    private void upload(HttpExchange exchange, User user) throws IOException {
+        requireMethod(exchange, "POST");
+        requirePrivileged(user);
+        long now = System.currentTimeMillis();
+        uploads.values().removeIf(u -> {
+            boolean stale = now - u.created > SESSION_IDLE_MILLIS;
+            if (stale) deleteTemp(u.file);
+            return stale;
+        });
+        Upload upload = receive(exchange, query(exchange).getOrDefault("name", "scores.csv"));
+        String id = newId();
+        uploads.put(id, upload);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("upload", id);
+        result.put("name", upload.name);
+        result.put("bytes", upload.file.length());
+        sendJson(exchange, 201, result);
+    }
+
+    /**
+     * 成绩导入，两种方式：请求体为一个成绩文件（name 参数给出文件名，按扩展名判断 csv/txt/xlsx）；
+     * 或 uploads=编号1,编号2 引用先前上传的多个文件，合并后只应用一次、保存一次。
+     * 持写锁导入，返回批次汇总（total、files、applyMillis）与前 {@link #MAX_PROBLEMS} 条问题行
+     */
+    private void importScores(HttpExchange exchange, User user) throws IOException {
+        requireMethod(exchange, "POST");
+        requirePrivileged(user);
+        Map<String, String> query = query(exchange);
+        ScoreImporter.Mode mode = enumParam(ScoreImporter.Mode.class, query, "mode", ScoreImporter.Mode.BEST_EFFORT);
+        DuplicateCoursePolicy policy = enumParam(DuplicateCoursePolicy.class, query, "policy",
+                DuplicateCoursePolicy.DEFAULT);
+        boolean reimport = Boolean.parseBoolean(query.get("reimport"));
+        String ids = query.get("uploads");
+
+        List<Upload> files = new ArrayList<>();
+        File report = File.createTempFile("sims-import-", ".report.txt");
+        try {
+            if (ids != null && !ids.isEmpty()) {
+                for (String id : ids.split(",")) {
+                    Upload upload = uploads.remove(id.trim());
+                    if (upload == null) {
+                        throw new ApiException(404, "上传的文件不存在或已过期: " + id);
+                    }
+                    files.add(upload);
+                }
+            } else {
+                files.add(receive(exchange, query.getOrDefault("name", "scores.csv")));
+            }
+            List<String> paths = new ArrayList<>(files.size());
+            for (Upload upload : files) {
+                paths.add(upload.file.getPath());
+            }
+            List<String> problems = Collections.synchronizedList(new ArrayList<>());
+            ImportProgress progress = new ImportProgress(batch -> {
+                for (String problem : batch) {
+                    if (problems.size() < MAX_PROBLEMS) problems.add(problem);
+                }
+            });
+            ScoreImporter.BatchResult batch;
+            long dataVersion;
+            Lock write = lock.writeLock();
+            write.lock();
+            try {
+                batch = studentManager.importScores(paths, mode, policy, report, reimport, progress);
+                dataVersion = batch.getTotal().isCommitted() ? version.incrementAndGet() : version.get();
+            } finally {
+                write.unlock();
+            }
+            sendJson(exchange, 200, importSummary(batch, files, problems), dataVersion);
+        } finally {
+            for (Upload upload : files) {
+                deleteTemp(upload.file);
+            }
+            deleteTemp(report);
+        }
+    }
+
+    /**
+     * 把请求体保存为临时成绩文件，扩展名与原文件名一致（导入按扩展名判断格式）
+     */
+    private static Upload receive(HttpExchange exchange, String name) throws IOException {
+        String lower = name.toLowerCase();
+        String suffix = lower.endsWith(".xlsx") ? ".xlsx" : lower.endsWith(".txt") ? ".txt" : ".csv";
+        File file = File.createTempFile("sims-import-", suffix);
+        try (InputStream in = exchange.getRequestBody()) {
+            Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            deleteTemp(file);
+            throw e;
+        }
+        return new Upload(file, name);
+    }
+
+    /**
+     * 排名导出：format=csv|xlsx，指定 major 时导出专业排名，否则全体排名；
+     * workbook=true 时每个专业一个工作表（仅 xlsx）。持读锁写到临时文件后流式返回
+     */
+    private void export(HttpExchange exchange, User user) throws IOException {
+        requireMethod(exchange, "GET");
+        Map<String, String> query = query(exchange);
+        String major = query.get("major");
+        String format = query.getOrDefault("format", "csv").toLowerCase();
+        boolean workbook = Boolean.parseBoolean(query.get("workbook"));
+        if (!"csv".equals(format) && !"xlsx".equals(format)) {
+            throw new ApiException(400, "不支持的导出格式: " + format);
+        }
+        if (workbook && !"xlsx".equals(format)) {
+            throw new ApiException(400, "workbook 只支持 xlsx 格式");
+        }
+        boolean xlsx = "xlsx".equals(format);
+        boolean byMajor = major != null && !major.isEmpty() && !workbook;
+
+        File out = File.createTempFile("sims-export-", "." + format);
+        try {
+            boolean ok;
+            long dataVersion;
+            Lock read = lock.readLock();
+            read.lock();
+            try {
+                dataVersion = version.get();
+                if (byMajor && !studentManager.getAllMajors().contains(major)) {
+                    throw new ApiException(404, "专业不存在或没有学生: " + major);
+                }
+                if (workbook) {
+                    ok = ExcelExporter.exportAllMajorsWorkbookXlsx(studentManager, out);
+                } else if (byMajor) {
+                    ok = xlsx ? ExcelExporter.exportMajorRankingXlsx(studentManager, major, out)
+                            : ExportUtil.exportMajorRanking(studentManager, major, out);
+                } else {
+                    ok = xlsx ? ExcelExporter.exportAllRankingXlsx(studentManager, out)
+                            : ExportUtil.exportAllRanking(studentManager, out);
+                }
+            } finally {
+                read.unlock();
+            }
+            if (!ok) {
+                throw new ApiException(500, "导出失败");
+            }
+            String fileName = (byMajor ? major + "_排名" : workbook ? "各专业排名" : "全体排名") + "." + format;
+            Headers headers = exchange.getResponseHeaders();
+            headers.set("Content-Type", xlsx ? XLSX_TYPE : "text/csv; charset=UTF-8");
+            headers.set(VERSION_HEADER, Long.toString(dataVersion));
+            headers.set("Content-Disposition", "attachment; filename*=UTF-8''"
+                    + URLEncoder.encode(fileName, StandardCharsets.UTF_8).replace("+", "%20"));
+            exchange.sendResponseHeaders(200, out.length() == 0 ? -1 : out.length());
+            try (OutputStream body = exchange.getResponseBody()) {
+                Files.copy(out.toPath(), body);
+            }
+        } finally {
+            deleteTemp(out);
+        }
+    }
+
+    // ---------------------------------------------------------------- 认证
+
+    /**
+     * 按 Bearer 令牌或 Basic 用户名密码认证；失败时抛出 401
+     */
+    private User authenticate(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header != null && header.regionMatches(true, 0, "Basic ", 0, 6)) {
+            String decoded;
+            try {
+                decoded = new String(Base64.getDecoder().decode(header.substring(6).trim()), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                throw new ApiException(401, "认证信息格式错误");
+            }
+            int colon = decoded.indexOf(':');
+            User user = colon < 0 ? null
+                    : userManager.authenticate(decoded.substring(0, colon), decoded.substring(colon + 1));
+            if (user == null) {
+                throw new ApiException(401, "用户名或密码错误");
+            }
+            return user;
+        }
+        String token = bearerToken(exchange);
+        Session session = token == null ? null : sessions.get(token);
+        long now = System.currentTimeMillis();
+        if (session == null || now - session.lastUsed > SESSION_IDLE_MILLIS) {
+            if (session != null) sessions.remove(token);
+            exchange.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+            throw new ApiException(401, "未登录或登录已过期");
+        }
+        session.lastUsed = now;
+        return session.user;
+    }
+
+    /**
+     * 随机令牌 / 上传编号
+     */
+    private String newId() {
+        byte[] bytes = new byte[24];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static String bearerToken(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return null;
+        }
+        return header.substring(7).trim();
+    }
+
+    /**
+     * 与界面一致：教师和管理员可以修改数据
+     */
+    private static void requirePrivileged(User user) {
+        if (user.getRole() != User.Role.TEACHER && user.getRole() != User.Role.ADMIN) {
+            throw new ApiException(403, "没有修改权限");
+        }
+    }
+
+    // ---------------------------------------------------------------- JSON 与请求工具
+
+    /**
+     * 按界面录入时的规则校验并创建学生对象
+     * @param pathId 修改时路径中的学号，新增时为 null
+     */
+    static Student parseStudent(Map<String, Object> body, String pathId) {
+        String studentId = pathId != null ? pathId : requiredField(body, "studentId", "学号");
+        String name = requiredField(body, "name", "姓名");
+        String major = requiredField(body, "major", "专业");
+        String classNumber = requiredField(body, "classNumber", "班级");
+        String phone = requiredField(body, "phoneNumber", "联系电话");
+        if (!phone.matches("\\d{11}")) {
+            throw new ApiException(400, "联系电话应为11位数字");
+        }
+        String gender = stringField(body, "gender");
+        if (gender == null) gender = "男";
+        if (!"男".equals(gender) && !"女".equals(gender)) {
+            throw new ApiException(400, "性别应为 男 或 女");
+        }
+        Object ageValue = body.get("age");
+        int age = ageValue instanceof Number ? ((Number) ageValue).intValue() : 18;
+
+        Student student = new Student(studentId, name, gender, age, major, classNumber, phone);
+        Object courses = body.get("courses");
+        if (courses instanceof List) {
+            List<Course> list = new ArrayList<>();
+            for (Object item : (List<?>) courses) {
+                if (!(item instanceof Map)) {
+                    throw new ApiException(400, "课程应为对象");
+                }
+                Map<?, ?> c = (Map<?, ?>) item;
+                Object courseName = c.get("name");
+                if (courseName == null || courseName.toString().trim().isEmpty()) {
+                    throw new ApiException(400, "课程名称不能为空");
+                }
+                list.add(new Course(courseName.toString().trim(), number(c.get("credit"), "学分"),
+                        number(c.get("score"), "成绩")));
+            }
+            student.setCourses(list);
+        } else if (courses != null) {
+            throw new ApiException(400, "courses 应为数组");
+        }
+        return student;
+    }
+
+    /**
+     * 批次汇总，文件名换回上传时的原名
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> importSummary(ScoreImporter.BatchResult batch, List<Upload> files,
+                                                     List<String> problems) {
+        Map<String, Object> summary = batch.toSummary();
+        List<Object> fileSummaries = (List<Object>) summary.get("files");
+        for (int i = 0; i < fileSummaries.size() && i < files.size(); i++) {
+            ((Map<String, Object>) fileSummaries.get(i)).put("file", files.get(i).name);
+        }
+        if (files.size() == 1) {
+            ((Map<String, Object>) summary.get("total")).put("file", files.get(0).name);
+        }
+        synchronized (problems) {
+            summary.put("problems", new ArrayList<>(problems));
+        }
+        return summary;
+    }
+
+    private static Map<String, Object> page(int total, int page, int size, List<Object> items) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("total", total);
+        result.put("page", page);
+        result.put("size", size);
+        result.put("items", items);
+        return result;
+    }
+
+    private static <T> List<T> slice(List<T> list, int page, int size) {
+        int from = (int) Math.min((long) page * size, list.size());
+        return list.subList(from, Math.min(from + size, list.size()));
+    }
+
+    private static void requireMethod(HttpExchange exchange, String method) {
+        if (!method.equals(exchange.getRequestMethod())) {
+            throw new ApiException(405, "不支持的请求方法: " + exchange.getRequestMethod());
+        }
+    }
+
+    private static void requireSaved(boolean saved) {
+        if (!saved) {
+            throw new ApiException(500, "已修改但保存数据文件失败");
+        }
+    }
+
+    private static Map<String, Object> readJson(HttpExchange exchange) throws IOException {
+        byte[] bytes;
+        try (InputStream in = exchange.getRequestBody()) {
+            bytes = in.readAllBytes();
+        }
+        if (bytes.length == 0) {
+            throw new ApiException(400, "请求体为空");
+        }
+        return Json.parseObject(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    private static String stringField(Map<String, Object> body, String key) {
+        Object value = body.get(key);
+        return value == null ? null : value.toString().trim();
+    }
+
+    private static String requiredField(Map<String, Object> body, String key, String label) {
+        String value = stringField(body, key);
+        if (value == null || value.isEmpty()) {
+            throw new ApiException(400, "缺少" + label + "（" + key + "）");
+        }
+        return value;
+    }
+
+    private static double number(Object value, String label) {
+        if (!(value instanceof Number)) {
+            throw new ApiException(400, label + "应为数字");
+        }
+        return ((Number) value).doubleValue();
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        String raw = exchange.getRequestURI().getRawQuery();
+        Map<String, String> params = new LinkedHashMap<>();
+        if (raw == null || raw.isEmpty()) return params;
+        for (String pair : raw.split("&")) {
+            if (pair.isEmpty()) continue;
+            int eq = pair.indexOf('=');
+            String key = decode(eq < 0 ? pair : pair.substring(0, eq));
+            String value = eq < 0 ? "" : decode(pair.substring(eq + 1));
+            params.put(key, value);
+        }
+        return params;
+    }
+
+    private static String decode(String s) {
+        return URLDecoder.decode(s, StandardCharsets.UTF_8);
+    }
+
+    private static int intParam(Map<String, String> query, String key, int defaultValue) {
+        String value = query.get(key);
+        if (value == null || value.isEmpty()) return defaultValue;
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < 0) throw new NumberFormatException();
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "参数 " + key + " 应为非负整数");
+        }
+    }
+
+    private static <E extends Enum<E>> E enumParam(Class<E> type, Map<String, String> query, String key,
+                                                   E defaultValue) {
+        String value = query.get(key);
+        if (value == null || value.isEmpty()) return defaultValue;
+        try {
+            return Enum.valueOf(type, value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(400, "参数 " + key + " 不支持: " + value);
+        }
+    }
+
+    private static int pageSize(Map<String, String> query) {
+        int size = intParam(query, "size", DEFAULT_PAGE_SIZE);
+        if (size == 0 || size > MAX_PAGE_SIZE) {
+            throw new ApiException(400, "参数 size 应在 1 到 " + MAX_PAGE_SIZE + " 之间");
+        }
+        return size;
+    }
+
+    /**
+     * 发送与数据无关的响应（登录、上传、错误等），版本头为当前版本
+     */
+    private void sendJson(HttpExchange exchange, int status, Object value) throws IOException {
+        sendJson(exchange, status, value, version.get());
+    }
+
+    /**
+     * 发送响应；dataVersion 须在读取响应数据的同一加锁区内取得，否则期间提交的修改会让旧数据带上新版本号
+     */
+    private void sendJson(HttpExchange exchange, int status, Object value, long dataVersion) throws IOException {
+        byte[] bytes = Json.write(value).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON_TYPE);
+        exchange.getResponseHeaders().set(VERSION_HEADER, Long.toString(dataVersion));
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(bytes);
+        }
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) {
+        Metrics.count("server.error." + status);
+        try {
+            sendJson(exchange, status, Collections.singletonMap("error", message));
+        } catch (IOException | IllegalStateException e) {
+            // 响应头已发出或连接已断开
+        }
+    }
+
+    private static void deleteTemp(File file) {
+        if (file.exists() && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+}
@@ -1,98 +1,281 @@
 package service;
 
-import model.Course;
 import model.Student;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
-import java.util.stream.Collectors;
 
 /**
  * 轻量级 Excel (XLSX) 导出工具，不依赖第三方库。
- * 仅生成一个工作表，包含表头与数据行，无样式、公式、合并单元格等。
- * 支持字符串与数字单元格，字符串使用 inlineStr 存储。
+ * 生成一个或多个工作表，包含表头与数据行，无样式、公式、合并单元格等。
+ * 单元格类型由调用方按列声明（见 {@link CellType}）：重复文本写入 sharedStrings.xml 去重，
+ * 基本不重复的文本使用 inlineStr，数值直接写为数字单元格。
  */
 public class ExcelExporter {
     private static final String XML_DECL = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>";
+    /** Excel 工作表名称长度上限 */
+    private static final int MAX_SHEET_NAME = 31;
+
+    /**
+     * 单元格类型，由调用方按列声明，写出时不再逐格试探解析
+     */
+    enum CellType {
+        /** 数值单元格 (t="n") */
+        NUMBER,
+        /** 重复度高的文本（表头/专业/班级/性别），写入共享字符串表 */
+        SHARED,
+        /** 基本不重复的文本（学号/姓名/电话），以 inlineStr 内联写出 */
+        INLINE
+    }
+
+    /**
+     * 一个待写出的排名工作表：名称 + 排名结果 + 列规划
+     */
+    private static final class RankingSheet {
+        final String name;
+        final RankingService.Ranking ranking;
+        final List<Student> students;
+        final RankingExportPlan plan;
+
+        RankingSheet(String name, RankingService.Ranking ranking) {
+            this.name = name;
+            this.ranking = ranking;
+            this.students = ranking.getStudents();
+            this.plan = RankingExportPlan.of(students);
+        }
+    }
 
     /**
      * 导出指定专业排名到 XLSX
      */
     public static boolean exportMajorRankingXlsx(StudentManager studentManager, String major, File file) {
-        List<Student> students = studentManager.getStudentsByMajorRanked(major);
-        if (students.isEmpty()) return false;
-        return exportRankingXlsx(students, major + "专业排名", file);
+        try {
+            return exportRankingXlsx(studentManager.getMajorRanking(major), file, ExportListener.NONE);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
     }
 
     /**
      * 导出全体学生按 GPA 排名到 XLSX
      */
     public static boolean exportAllRankingXlsx(StudentManager studentManager, File file) {
-        List<Student> students = new ArrayList<>(studentManager.getAllStudents());
-        students.sort((a,b) -> Double.compare(b.getGpa(), a.getGpa()));
-        return exportRankingXlsx(students, "全部学生排名", file);
+        try {
+            return exportRankingXlsx(studentManager.getOverallRanking(), file, ExportListener.NONE);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
     }
 
-    private static boolean exportRankingXlsx(List<Student> students, String sheetTitle, File file) {
-        // 收集所有课程名（出现顺序保持）
-        LinkedHashSet<String> courseNames = new LinkedHashSet<>();
-        for (Student s : students) {
-            if (s.getCourses() != null) {
-                for (Course c : s.getCourses()) {
-                    courseNames.add(c.getCourseName());
-                }
-            }
+    /**
+     * 将一个排名结果导出为单工作表 XLSX，并回调进度
+     * @throws IOException 写文件失败时
+     * @throws java.util.concurrent.CancellationException 监听方请求取消时
+     */
+    public static boolean exportRankingXlsx(RankingService.Ranking ranking, File file, ExportListener listener)
+            throws IOException {
+        if (ranking.isEmpty()) return false;
+        ServiceEvents.ExportPhase collect = ServiceEvents.exportPhase("XLSX", "collect");
+        return writeWorkbook(Collections.singletonList(new RankingSheet("Ranking", ranking)), file, 1, listener,
+                collect);
+    }
+
+    /**
+     * 导出单个工作簿：第一个工作表为全部学生排名，其后每个专业一个排名工作表（专业按名称排序）。
+     */
+    public static boolean exportAllMajorsWorkbookXlsx(StudentManager studentManager, File file) {
+        try {
+            return exportAllMajorsWorkbookXlsx(studentManager.getOverallRanking(),
+                    studentManager.getAllMajorRankings(), file, ExportListener.NONE);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
         }
-        // 计算并列排名
-        Map<String,Integer> rankMap = new HashMap<>();
-        double prevGpa = -1;
-        int rank = 1;
-        int actualRank = 1;
-        for (Student s : students) {
-            if (s.getGpa() != prevGpa) {
-                actualRank = rank;
-                prevGpa = s.getGpa();
-            }
-            rankMap.put(s.getStudentId(), actualRank);
-            rank++;
+    }
+
+    /**
+     * 按给定排名结果导出多工作表工作簿，并回调进度。
+     * 各工作表正文在线程池中并行生成，再按固定顺序写入 ZIP，保证输出确定。
+     * @param majors 专业 -> 排名，按迭代顺序生成工作表
+     * @throws IOException 写文件失败时
+     * @throws java.util.concurrent.CancellationException 监听方请求取消时
+     */
+    public static boolean exportAllMajorsWorkbookXlsx(RankingService.Ranking overall,
+                                                      Map<String, RankingService.Ranking> majors,
+                                                      File file, ExportListener listener) throws IOException {
+        if (overall.isEmpty()) return false;
+        ServiceEvents.ExportPhase collect = ServiceEvents.exportPhase("XLSX", "collect");
+        List<RankingSheet> sheets = new ArrayList<>(majors.size() + 1);
+        Set<String> usedNames = new HashSet<>();
+        sheets.add(new RankingSheet(uniqueSheetName("全部学生", usedNames), overall));
+        for (Map.Entry<String, RankingService.Ranking> e : majors.entrySet()) {
+            sheets.add(new RankingSheet(uniqueSheetName(e.getKey(), usedNames), e.getValue()));
         }
-        // 表头
-        List<String> headers = new ArrayList<>(Arrays.asList(
-                "排名","学号","姓名","性别","年龄","专业","班级","联系电话","总学分","课程数"));
-        headers.addAll(courseNames);
-        headers.add("加权平均分(GPA)");
+        int threads = Math.min(sheets.size(), Runtime.getRuntime().availableProcessors());
+        return writeWorkbook(sheets, file, threads, listener, collect);
+    }
+
+    /**
+     * 写出工作簿。第一个工作表由当前线程直接流式写入 ZIP；threads > 1 时其余工作表在线程池中
+     * 并行生成，最多预先生成 threads * 2 个，再按顺序写入，内存占用有上限。
+     * 生成前先顺序填充共享字符串表并冻结，使字符串下标与串行生成完全一致。
+     * @param collect 调用方已开始的 collect 阶段事件（含课程列规划），填充共享字符串后提交
+     */
+    private static boolean writeWorkbook(List<RankingSheet> sheets, File file, int threads, ExportListener listener,
+                                         ServiceEvents.ExportPhase collect) throws IOException {
+        long start = Metrics.start();
+        long totalRows = 0;
+        for (RankingSheet sheet : sheets) totalRows += sheet.students.size();
+        listener.onStart(totalRows);
+
+        SharedStrings sst = new SharedStrings();
+        List<String> names = new ArrayList<>(sheets.size());
+        for (RankingSheet sheet : sheets) {
+            seedSharedStrings(sheet, sst);
+            names.add(sheet.name);
+        }
+        sst.freeze();
+        collect.rows = totalRows;
+        collect.commit();
 
         ensureParent(file);
-        try (OutputStream fos = new FileOutputStream(file); ZipOutputStream zos = new ZipOutputStream(fos)) {
+        ExecutorService pool = threads > 1 ? Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "xlsx-sheet-writer");
+            t.setDaemon(true);
+            return t;
+        }) : null;
+        try (CountingOutputStream fos = new CountingOutputStream(new FileOutputStream(file), listener);
+             ZipOutputStream zos = new ZipOutputStream(new BufferedOutputStream(fos, 64 * 1024))) {
             // [Content_Types].xml
-            writeEntry(zos, "[Content_Types].xml", contentTypes());
+            writeEntry(zos, "[Content_Types].xml", contentTypes(sheets.size()));
             // _rels/.rels
             writeEntry(zos, "_rels/.rels", relsRoot());
             // docProps/core.xml & app.xml
             writeEntry(zos, "docProps/core.xml", coreProps());
             writeEntry(zos, "docProps/app.xml", appProps());
             // workbook + rels
-            writeEntry(zos, "xl/workbook.xml", workbook());
-            writeEntry(zos, "xl/_rels/workbook.xml.rels", workbookRels());
-            // worksheet
-            writeEntry(zos, "xl/worksheets/sheet1.xml", sheetXml(headers, students, courseNames, rankMap));
+            writeEntry(zos, "xl/workbook.xml", workbook(names));
+            writeEntry(zos, "xl/_rels/workbook.xml.rels", workbookRels(sheets.size()));
+            // worksheets（按工作表顺序写入）
+            writeSheets(zos, sheets, sst, pool, threads, listener);
+            ServiceEvents.ExportPhase zip = ServiceEvents.exportPhase("XLSX", "zip");
+            writeEntry(zos, "xl/sharedStrings.xml", sst.toXml());
             // styles (minimal)
             writeEntry(zos, "xl/styles.xml", styles());
             zos.finish();
+            zos.flush();
+            zip.rows = totalRows;
+            zip.bytes = fos.getCount();
+            zip.commit();
+            Metrics.count("export.xlsx.rows", totalRows);
             return true;
         } catch (IOException e) {
-            e.printStackTrace();
-            return false;
+            Metrics.count("export.xlsx.failed");
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("导出被中断");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CancellationException) {
+                throw (CancellationException) e.getCause();
+            }
+            Metrics.count("export.xlsx.failed");
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw new IOException("生成工作表失败: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            if (pool != null) pool.shutdownNow();
+            Metrics.stop(sheets.size() > 1 ? "export.xlsx.workbook" : "export.xlsx", start);
+        }
+    }
+
+    private static void writeSheets(ZipOutputStream zos, List<RankingSheet> sheets, SharedStrings sst,
+                                    ExecutorService pool, int threads, ExportListener listener)
+            throws IOException, InterruptedException, ExecutionException {
+        // 预先提交后续工作表，与第一个工作表的流式写出重叠执行
+        Deque<Future<String>> pending = new ArrayDeque<>();
+        int next = 1;
+        if (pool != null) {
+            while (next < sheets.size() && pending.size() < threads * 2) {
+                RankingSheet sheet = sheets.get(next++);
+                pending.add(pool.submit(() -> sheetXml(sheet, sst, listener, null)));
+            }
+        }
+        // 不关闭该 Writer，避免连带关闭 ZIP 流
+        Writer xml = new OutputStreamWriter(zos, StandardCharsets.UTF_8);
+        for (int i = 0; i < sheets.size(); i++) {
+            checkCancelled(listener);
+            ServiceEvents.ExportPhase event = ServiceEvents.exportPhase("XLSX", "write sheet");
+            ZipEntry entry = new ZipEntry("xl/worksheets/sheet" + (i + 1) + ".xml");
+            zos.putNextEntry(entry);
+            if (i == 0 || pool == null) {
+                sheetXml(sheets.get(i), sst, listener, xml);
+            } else {
+                xml.write(pending.poll().get());
+                if (next < sheets.size()) {
+                    RankingSheet sheet = sheets.get(next++);
+                    pending.add(pool.submit(() -> sheetXml(sheet, sst, listener, null)));
+                }
+            }
+            xml.flush();
+            zos.closeEntry();
+            event.sheet = sheets.get(i).name;
+            event.rows = sheets.get(i).students.size();
+            event.bytes = entry.getSize();
+            event.commit();
         }
     }
 
+    /**
+     * 按写出时的顺序登记一个工作表会用到的共享字符串
+     */
+    private static void seedSharedStrings(RankingSheet sheet, SharedStrings sst) {
+        for (String h : sheet.plan.headers()) {
+            sst.indexOf(h);
+        }
+        for (Student s : sheet.students) {
+            sst.indexOf(s.getGender());
+            sst.indexOf(s.getMajor());
+            sst.indexOf(s.getClassNumber());
+        }
+    }
+
+    /**
+     * 工作表名称：去除 Excel 不允许的字符，截断到 31 字符，并在重名时追加序号
+     */
+    private static String uniqueSheetName(String raw, Set<String> used) {
+        String base = raw == null || raw.trim().isEmpty() ? "Sheet" : raw.trim();
+        base = base.replaceAll("[\\\\/?*\\[\\]:]", "_");
+        if (base.startsWith("'")) base = "_" + base.substring(1);
+        if (base.endsWith("'")) base = base.substring(0, base.length() - 1) + "_";
+        if (base.length() > MAX_SHEET_NAME) base = base.substring(0, MAX_SHEET_NAME);
+        String name = base;
+        int n = 2;
+        while (!used.add(name.toLowerCase(Locale.ROOT))) {
+            String suffix = "(" + n++ + ")";
+            name = base.substring(0, Math.min(base.length(), MAX_SHEET_NAME - suffix.length())) + suffix;
+        }
+        return name;
+    }
+
     private static void writeEntry(ZipOutputStream zos, String path, String content) throws IOException {
         ZipEntry entry = new ZipEntry(path);
         zos.putNextEntry(entry);
@@ -100,17 +283,23 @@ public class ExcelExporter {
         zos.closeEntry();
     }
 
-    private static String contentTypes() {
-        return XML_DECL +
-                "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">" +
-                "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>" +
-                "<Default Extension=\"xml\" ContentType=\"application/xml\"/>" +
-                "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>" +
-                "<Override PartName=\"/xl/worksheets/sheet1.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>" +
-                "<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>" +
-                "<Override PartName=\"/docProps/core.xml\" ContentType=\"application/vnd.openxmlformats-package.core-properties+xml\"/>" +
-                "<Override PartName=\"/docProps/app.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.extended-properties+xml\"/>" +
-                "</Types>";
+    private static String contentTypes(int sheetCount) {
+        StringBuilder sb = new StringBuilder(1024 + sheetCount * 160);
+        sb.append(XML_DECL)
+          .append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">")
+          .append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>")
+          .append("<Default Extension=\"xml\" ContentType=\"application/xml\"/>")
+          .append("<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>");
+        for (int i = 1; i <= sheetCount; i++) {
+            sb.append("<Override PartName=\"/xl/worksheets/sheet").append(i)
+              .append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+        }
+        sb.append("<Override PartName=\"/xl/sharedStrings.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sharedStrings+xml\"/>")
+          .append("<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>")
+          .append("<Override PartName=\"/docProps/core.xml\" ContentType=\"application/vnd.openxmlformats-package.core-properties+xml\"/>")
+          .append("<Override PartName=\"/docProps/app.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.extended-properties+xml\"/>")
+          .append("</Types>");
+        return sb.toString();
     }
 
     private static String relsRoot() {
@@ -146,19 +335,38 @@ public class ExcelExporter {
                 "</Properties>";
     }
 
-    private static String workbook() {
-        return XML_DECL +
-                "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">" +
-                "<sheets><sheet name=\"Ranking\" sheetId=\"1\" r:id=\"rId1\"/></sheets>" +
-                "</workbook>";
+    private static String workbook(List<String> sheetNames) {
+        StringBuilder sb = new StringBuilder(256 + sheetNames.size() * 64);
+        sb.append(XML_DECL)
+          .append("<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">")
+          .append("<sheets>");
+        for (int i = 0; i < sheetNames.size(); i++) {
+            sb.append("<sheet name=\"");
+            appendEscaped(sb, sheetNames.get(i));
+            sb.append("\" sheetId=\"").append(i + 1).append("\" r:id=\"rId").append(i + 1).append("\"/>");
+        }
+        sb.append("</sheets></workbook>");
+        return sb.toString();
     }
 
-    private static String workbookRels() {
-        return XML_DECL +
-                "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">" +
-                "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" Target=\"worksheets/sheet1.xml\"/>" +
-                "<Relationship Id=\"rId2\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/styles\" Target=\"styles.xml\"/>" +
-                "</Relationships>";
+    /**
+     * 工作簿关系：rId1..rIdN 为工作表，其后依次为 styles 与 sharedStrings
+     */
+    private static String workbookRels(int sheetCount) {
+        StringBuilder sb = new StringBuilder(512 + sheetCount * 160);
+        sb.append(XML_DECL)
+          .append("<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">");
+        for (int i = 1; i <= sheetCount; i++) {
+            sb.append("<Relationship Id=\"rId").append(i)
+              .append("\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" Target=\"worksheets/sheet")
+              .append(i).append(".xml\"/>");
+        }
+        sb.append("<Relationship Id=\"rId").append(sheetCount + 1)
+          .append("\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/styles\" Target=\"styles.xml\"/>")
+          .append("<Relationship Id=\"rId").append(sheetCount + 2)
+          .append("\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/sharedStrings\" Target=\"sharedStrings.xml\"/>")
+          .append("</Relationships>");
+        return sb.toString();
     }
 
     private static String styles() {
@@ -176,66 +384,242 @@ public class ExcelExporter {
                 "</styleSheet>";
     }
 
-    private static String sheetXml(List<String> headers, List<Student> students, LinkedHashSet<String> courseNames, Map<String,Integer> rankMap) {
-        StringBuilder sb = new StringBuilder();
-        sb.append(XML_DECL);
-        sb.append("<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">");
-
-        // 添加 dimension 元素
-        int totalRows = students.size() + 1;
-        int totalCols = headers.size();
-        String endCell = columnName(totalCols - 1) + totalRows;
-        sb.append("<dimension ref=\"A1:").append(endCell).append("\"/>");
-
-        sb.append("<sheetData>");
-        int rowIndex = 1;
+    /**
+     * 生成工作表正文：out 不为空时边生成边写出并返回 null，否则返回完整 XML
+     */
+    private static String sheetXml(RankingSheet sheet, SharedStrings sst, ExportListener listener, Writer out)
+            throws IOException {
+        RankingExportPlan plan = sheet.plan;
+        RankingService.Ranking ranking = sheet.ranking;
+        SheetWriter w = new SheetWriter(plan.columnCount(), ranking.size() + 1, sst, listener, out);
+        double[] scores = plan.newRowBuffer();
         // Header row
-        sb.append(rowXml(rowIndex++, headers));
+        w.startRow();
+        for (String h : plan.headers()) {
+            w.text(h, CellType.SHARED);
+        }
+        w.endRow(false);
         // Data rows
-        for (Student s : students) {
-            List<String> row = new ArrayList<>();
-            row.add(String.valueOf(rankMap.get(s.getStudentId())));
-            row.add(s.getStudentId());
-            row.add(s.getName());
-            row.add(s.getGender());
-            row.add(String.valueOf(s.getAge()));
-            row.add(s.getMajor());
-            row.add(s.getClassNumber());
-            row.add(s.getPhoneNumber());
-            row.add(String.format(Locale.CHINA, "%.1f", s.getTotalCredits()));
-            row.add(String.valueOf(s.getCourseCount()));
-            Map<String, Course> courseMap = s.getCourses() == null ? Collections.emptyMap() : s.getCourses().stream().collect(Collectors.toMap(Course::getCourseName, c -> c, (a,b)->a));
-            for (String cname : courseNames) {
-                Course c = courseMap.get(cname);
-                row.add(c == null ? "" : String.format(Locale.CHINA, "%.1f", c.getScore()));
+        for (int i = 0; i < ranking.size(); i++) {
+            Student s = ranking.get(i);
+            w.startRow();
+            w.number(ranking.getRank(i));
+            w.text(s.getStudentId(), CellType.INLINE);
+            w.text(s.getName(), CellType.INLINE);
+            w.text(s.getGender(), CellType.SHARED);
+            w.number(s.getAge());
+            w.text(s.getMajor(), CellType.SHARED);
+            w.text(s.getClassNumber(), CellType.SHARED);
+            w.text(s.getPhoneNumber(), CellType.INLINE);
+            w.number(s.getTotalCredits(), 1);
+            w.number(s.getCourseCount());
+            plan.fillScores(s, scores);
+            for (double score : scores) {
+                if (Double.isNaN(score)) {
+                    w.blank();
+                } else {
+                    w.number(score, 1);
+                }
             }
-            row.add(String.format(Locale.CHINA, "%.2f", s.getGpa()));
-            sb.append(rowXml(rowIndex++, row));
+            w.number(s.getGpa(), 2);
+            w.endRow(true);
         }
-        sb.append("</sheetData></worksheet>");
-        return sb.toString();
+        return w.finish();
     }
 
-    private static String rowXml(int rowIndex, List<String> cells) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("<row r=\"" ).append(rowIndex).append("\">");
-        for (int i = 0; i < cells.size(); i++) {
-            String cellValue = cells.get(i);
-            String cellRef = columnName(i) + rowIndex;
-            if (isNumeric(cellValue)) {
-                sb.append("<c r=\"" ).append(cellRef).append("\" t=\"n\"><v>").append(cellValue).append("</v></c>");
+    /**
+     * 工作表写出器：按行顺序追加带类型的单元格，列引用(A/B/.../AA)预先计算一次
+     */
+    static final class SheetWriter {
+        /** 每写出这么多数据行上报一次进度并检查取消 */
+        private static final int REPORT_EVERY = 512;
+        /** 流式写出时缓冲区达到该长度即刷出 */
+        private static final int FLUSH_CHARS = 64 * 1024;
+
+        private final StringBuilder sb;
+        private final SharedStrings sst;
+        private final ExportListener listener;
+        private final Writer out;
+        private final String[] columnRefs;
+        private int rowIndex;
+        private int col;
+        private int unreportedRows;
+
+        SheetWriter(int columnCount, int rowCount, SharedStrings sst, ExportListener listener, Writer out) {
+            this.sst = sst;
+            this.listener = listener;
+            this.out = out;
+            this.columnRefs = new String[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                columnRefs[i] = columnName(i);
+            }
+            // 流式写出只需固定缓冲；内存生成时粗略预估容量（上限 16MB），减少扩容拷贝
+            long estimate = out != null ? FLUSH_CHARS * 2 : (long) rowCount * Math.min(columnCount, 16) * 24;
+            this.sb = new StringBuilder((int) Math.max(256, Math.min(estimate, 1 << 24)));
+            sb.append(XML_DECL);
+            sb.append("<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">");
+            sb.append("<dimension ref=\"A1:").append(columnRefs[columnCount - 1]).append(rowCount).append("\"/>");
+            sb.append("<sheetData>");
+        }
+
+        void startRow() {
+            rowIndex++;
+            col = 0;
+            sb.append("<row r=\"").append(rowIndex).append("\">");
+        }
+
+        void endRow(boolean dataRow) throws IOException {
+            sb.append("</row>");
+            if (out != null && sb.length() >= FLUSH_CHARS) {
+                out.append(sb);
+                sb.setLength(0);
+            }
+            if (dataRow && ++unreportedRows == REPORT_EVERY) {
+                listener.onRows(unreportedRows);
+                unreportedRows = 0;
+                checkCancelled(listener);
+            }
+        }
+
+        /** 空单元格：不写出，仅跳过该列 */
+        void blank() {
+            col++;
+        }
+
+        void text(String value, CellType type) {
+            if (type == CellType.NUMBER) {
+                throw new IllegalArgumentException("文本单元格不能声明为数值类型");
+            }
+            if (type == CellType.SHARED) {
+                cellStart("s").append("<v>").append(sst.indexOf(value)).append("</v></c>");
             } else {
-                sb.append("<c r=\"" ).append(cellRef).append("\" t=\"inlineStr\"><is><t>")
-                  .append(escapeXml(cellValue)).append("</t></is></c>");
+                cellStart("inlineStr").append("<is><t>");
+                appendEscaped(sb, value);
+                sb.append("</t></is></c>");
             }
         }
-        sb.append("</row>");
-        return sb.toString();
+
+        void number(long value) {
+            cellStart("n").append("<v>").append(value).append("</v></c>");
+        }
+
+        /**
+         * 按固定小数位写出数值，舍入规则与 String.format("%.Nf") 相同（见 {@link RankingExportPlan#appendFixed}）；
+         * NaN 与无穷不是合法的数值单元格，按 Formatter 的文字（"NaN"、"Infinity"）写成内联文本
+         */
+        void number(double value, int scale) {
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                text(String.valueOf(value), CellType.INLINE);
+                return;
+            }
+            cellStart("n").append("<v>");
+            RankingExportPlan.appendFixed(sb, value, scale);
+            sb.append("</v></c>");
+        }
+
+        private StringBuilder cellStart(String type) {
+            sb.append("<c r=\"").append(columnRefs[col++]).append(rowIndex).append("\" t=\"").append(type).append("\">");
+            return sb;
+        }
+
+        String finish() throws IOException {
+            if (unreportedRows > 0) {
+                listener.onRows(unreportedRows);
+                unreportedRows = 0;
+            }
+            sb.append("</sheetData></worksheet>");
+            if (out != null) {
+                out.append(sb);
+                sb.setLength(0);
+                return null;
+            }
+            return sb.toString();
+        }
     }
 
-    private static boolean isNumeric(String v) {
-        if (v == null || v.isEmpty()) return false;
-        try { Double.parseDouble(v); return true; } catch (NumberFormatException e) { return false; }
+    /**
+     * 共享字符串表 (xl/sharedStrings.xml)：相同文本只存一份，单元格通过下标引用。
+     * 冻结后只读，可被多个工作表写出线程同时查询。
+     */
+    static final class SharedStrings {
+        private final Map<String,Integer> index = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+        private int refCount;
+        private boolean frozen;
+
+        /** 预填充完成后冻结：之后的查询不再新增条目、也不再计数 */
+        void freeze() {
+            frozen = true;
+        }
+
+        int indexOf(String value) {
+            String key = value == null ? "" : value;
+            Integer i = index.get(key);
+            if (frozen) {
+                if (i == null) {
+                    throw new IllegalStateException("共享字符串未预先登记: " + key);
+                }
+                return i;
+            }
+            refCount++;
+            if (i == null) {
+                i = values.size();
+                index.put(key, i);
+                values.add(key);
+            }
+            return i;
+        }
+
+        String toXml() {
+            StringBuilder sb = new StringBuilder(64 + values.size() * 24);
+            sb.append(XML_DECL);
+            sb.append("<sst xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" count=\"")
+              .append(refCount).append("\" uniqueCount=\"").append(values.size()).append("\">");
+            for (String v : values) {
+                sb.append("<si><t>");
+                appendEscaped(sb, v);
+                sb.append("</t></si>");
+            }
+            sb.append("</sst>");
+            return sb.toString();
+        }
+    }
+
+    /**
+     * 统计实际写入文件的字节数并上报给监听方
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private final ExportListener listener;
+        private long count;
+
+        CountingOutputStream(OutputStream out, ExportListener listener) {
+            super(out);
+            this.listener = listener;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+            listener.onBytes(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+            listener.onBytes(len);
+        }
+    }
+
+    private static void checkCancelled(ExportListener listener) {
+        if (listener.isCancelled()) {
+            throw new CancellationException("导出已取消");
+        }
     }
 
     private static String columnName(int index) {
@@ -249,13 +633,19 @@ public class ExcelExporter {
         return sb.toString();
     }
 
-    private static String escapeXml(String s) {
-        if (s == null) return "";
-        return s.replace("&", "&amp;")
-                .replace("<", "&lt;")
-                .replace(">", "&gt;")
-                .replace("\"", "&quot;")
-                .replace("'", "&apos;");
+    private static void appendEscaped(StringBuilder sb, String s) {
+        if (s == null) return;
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char ch = s.charAt(i);
+            switch (ch) {
+                case '&': sb.append("&amp;"); break;
+                case '<': sb.append("&lt;"); break;
+                case '>': sb.append("&gt;"); break;
+                case '"': sb.append("&quot;"); break;
+                case '\'': sb.append("&apos;"); break;
+                default: sb.append(ch);
+            }
+        }
     }
 
     private static void ensureParent(File f) {
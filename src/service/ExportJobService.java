@@ -0,0 +1,204 @@
+package service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 导出任务服务
+ * 在后台线程执行导出，避免阻塞界面线程；任务先写入同目录下的 .part 临时文件，
+ * 成功后再替换为目标文件，取消或失败时删除临时文件，不会留下半成品。
+ * 完成时输出行/秒与 MB/秒 吞吐量。
+ */
+public class ExportJobService {
+
+    /**
+     * 导出任务：向给定文件写出并回调进度，返回是否成功
+     */
+    public interface ExportTask {
+        boolean run(File out, ExportListener listener) throws IOException;
+    }
+
+    /** 任务状态 */
+    public enum Status { RUNNING, SUCCEEDED, FAILED, CANCELLED }
+
+    // 单线程串行执行：导出以磁盘写为主，多个导出同时进行只会互相争用
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "export-job");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * 提交导出任务
+     * @param name 任务名称（用于日志）
+     * @param target 最终目标文件
+     * @param task 导出逻辑
+     * @param onComplete 完成回调（在后台线程调用，界面层需自行切回 EDT），可为 null
+     * @return 任务句柄，可查询进度或取消
+     */
+    public ExportJob submit(String name, File target, ExportTask task, Consumer<ExportJob> onComplete) {
+        ExportJob job = new ExportJob(name, target);
+        executor.execute(() -> {
+            job.execute(task);
+            if (onComplete != null) {
+                onComplete.accept(job);
+            }
+        });
+        return job;
+    }
+
+    /**
+     * 停止接收新任务，并尝试中断正在执行的任务
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 单个导出任务的句柄，同时作为导出器的进度监听
+     */
+    public static final class ExportJob implements ExportListener {
+        private final String name;
+        private final File target;
+        private final AtomicLong rowsWritten = new AtomicLong();
+        private final AtomicLong bytesWritten = new AtomicLong();
+        private volatile long totalRows;
+        private volatile boolean cancelRequested;
+        private volatile Status status = Status.RUNNING;
+        private volatile String errorMessage;
+        private volatile long startNanos;
+        private volatile long elapsedNanos;
+
+        private ExportJob(String name, File target) {
+            this.name = name;
+            this.target = target;
+        }
+
+        private void execute(ExportTask task) {
+            startNanos = System.nanoTime();
+            File part = new File(target.getAbsoluteFile().getParentFile(), target.getName() + ".part");
+            try {
+                if (cancelRequested) throw new CancellationException();
+                boolean ok = task.run(part, this);
+                if (cancelRequested) throw new CancellationException();
+                if (!ok) {
+                    fail("导出未生成任何内容", part);
+                    return;
+                }
+                moveIntoPlace(part);
+                elapsedNanos = System.nanoTime() - startNanos;
+                status = Status.SUCCEEDED;
+                logThroughput();
+            } catch (CancellationException e) {
+                elapsedNanos = System.nanoTime() - startNanos;
+                part.delete();
+                status = Status.CANCELLED;
+                System.out.println("导出已取消: " + name);
+            } catch (Exception | Error e) {
+                // 包括 OutOfMemoryError 等，保证任务总能结束并清理临时文件
+                fail(e.getMessage() == null ? e.toString() : e.getMessage(), part);
+                e.printStackTrace();
+            }
+        }
+
+        private void fail(String message, File part) {
+            elapsedNanos = System.nanoTime() - startNanos;
+            part.delete();
+            errorMessage = message;
+            status = Status.FAILED;
+            System.err.println("导出失败: " + name + " - " + message);
+        }
+
+        private void moveIntoPlace(File part) throws IOException {
+            try {
+                Files.move(part.toPath(), target.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(part.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        private void logThroughput() {
+            double seconds = Math.max(elapsedNanos, 1) / 1e9;
+            System.out.println(String.format("导出完成: %s, %d 行, %.1f KB, 耗时 %.2f 秒, %.0f 行/秒, %.2f MB/秒",
+                    name, rowsWritten.get(), bytesWritten.get() / 1024.0, seconds,
+                    rowsWritten.get() / seconds, bytesWritten.get() / 1048576.0 / seconds));
+        }
+
+        /**
+         * 请求取消；导出器在下一个检查点中止，临时文件随后被删除
+         */
+        public void cancel() {
+            cancelRequested = true;
+        }
+
+        @Override
+        public void onStart(long totalRows) {
+            this.totalRows = totalRows;
+        }
+
+        @Override
+        public void onRows(long rows) {
+            rowsWritten.addAndGet(rows);
+        }
+
+        @Override
+        public void onBytes(long bytes) {
+            bytesWritten.addAndGet(bytes);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelRequested || Thread.currentThread().isInterrupted();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public File getTarget() {
+            return target;
+        }
+
+        public long getRowsWritten() {
+            return rowsWritten.get();
+        }
+
+        public long getBytesWritten() {
+            return bytesWritten.get();
+        }
+
+        public long getTotalRows() {
+            return totalRows;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public boolean isDone() {
+            return status != Status.RUNNING;
+        }
+
+        public String getErrorMessage() {
+            return errorMessage;
+        }
+
+        /**
+         * 已耗时（毫秒）；运行中为当前耗时
+         */
+        public long getElapsedMillis() {
+            if (startNanos == 0) return 0;
+            long nanos = isDone() ? elapsedNanos : System.nanoTime() - startNanos;
+            return nanos / 1_000_000;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package service;
+
+/**
+ * 导出进度监听
+ * 导出器在写出过程中回调：开始时给出总行数，之后增量上报已写行数与输出字节数，
+ * 并通过 {@link #isCancelled()} 询问是否应中止。回调可能来自多个工作线程，实现须线程安全。
+ */
+public interface ExportListener {
+
+    /** 不关心进度、永不取消的空监听 */
+    ExportListener NONE = new ExportListener() {
+        @Override
+        public void onStart(long totalRows) {
+        }
+
+        @Override
+        public void onRows(long rows) {
+        }
+
+        @Override
+        public void onBytes(long bytes) {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+    };
+
+    /**
+     * 导出开始
+     * @param totalRows 预计写出的数据行数（不含表头）
+     */
+    void onStart(long totalRows);
+
+    /**
+     * 新写出的数据行数（增量）
+     */
+    void onRows(long rows);
+
+    /**
+     * 新输出到文件的字节数（增量）
+     */
+    void onBytes(long bytes);
+
+    /**
+     * 是否已请求取消；导出器在行与文件条目之间检查
+     */
+    boolean isCancelled();
+}
@@ -1,6 +1,5 @@
 package service;
 
-import model.Course;
 import model.Student;
 
 import java.io.BufferedWriter;
@@ -26,47 +25,27 @@ public class ExportUtil {
      * @return 成功/失败
      */
     public static boolean exportMajorRanking(StudentManager studentManager, String major, File targetFile) {
-        List<Student> students = studentManager.getStudentsByMajorRanked(major);
-        if (students.isEmpty()) return false;
-        return exportRankingInternal(students, major, targetFile);
+        RankingService.Ranking ranking = studentManager.getMajorRanking(major);
+        if (ranking.isEmpty()) return false;
+        return exportRankingInternal(ranking, major, targetFile);
     }
 
     /**
      * 导出全体学生按 GPA 排名
      */
     public static boolean exportAllRanking(StudentManager studentManager, File targetFile) {
-        List<Student> students = new ArrayList<>(studentManager.getAllStudents());
-        students.sort((a,b) -> Double.compare(b.getGpa(), a.getGpa()));
-        return exportRankingInternal(students, "全部学生", targetFile);
+        return exportRankingInternal(studentManager.getOverallRanking(), "全部学生", targetFile);
     }
 
-    private static boolean exportRankingInternal(List<Student> students, String title, File targetFile) {
-        // 收集所有课程名
-        LinkedHashSet<String> courseNames = new LinkedHashSet<>();
-        for (Student s : students) {
-            if (s.getCourses() != null) {
-                for (Course c : s.getCourses()) {
-                    courseNames.add(c.getCourseName());
-                }
-            }
-        }
-
-        // 处理并列排名: GPA 相同使用同一排名值
-        List<Student> sorted = new ArrayList<>(students);
-        // 已排序传入：专业排名时已排序，全集排名这里也排序
-        // 重新计算并列排名
-        Map<String,Integer> rankMap = new HashMap<>(); // studentId -> rank
-        double prevGpa = -1;
-        int rank = 1;
-        int actualRank = 1;
-        for (Student s : sorted) {
-            if (s.getGpa() != prevGpa) {
-                actualRank = rank;
-                prevGpa = s.getGpa();
-            }
-            rankMap.put(s.getStudentId(), actualRank);
-            rank++;
-        }
+    private static boolean exportRankingInternal(RankingService.Ranking ranking, String title, File targetFile) {
+        long start = Metrics.start();
+        ServiceEvents.ExportPhase collect = ServiceEvents.exportPhase("CSV", "collect");
+        // 课程列规划（课程名 -> 列下标只计算一次）
+        RankingExportPlan plan = RankingExportPlan.of(ranking.getStudents());
+        collect.rows = ranking.size();
+        collect.commit();
+        ServiceEvents.ExportPhase write = ServiceEvents.exportPhase("CSV", "write sheet");
+        write.sheet = title;
 
         // 准备写出
         ensureParent(targetFile);
@@ -76,56 +55,51 @@ public class ExportUtil {
             writer.write(title + "排名导出" + "\n");
             writer.write("导出时间," + new Date() + "\n\n");
 
-            // 表头
-            List<String> headers = new ArrayList<>();
-            headers.add("排名");
-            headers.add("学号");
-            headers.add("姓名");
-            headers.add("性别");
-            headers.add("年龄");
-            headers.add("专业");
-            headers.add("班级");
-            headers.add("联系电话");
-            headers.add("总学分");
-            headers.add("课程数");
-            // 动态课程列（课程名）
-            headers.addAll(courseNames);
-            headers.add("加权平均分(GPA)");
-            writer.write(toCsvRow(headers));
+            // 表头（固定列 + 动态课程列 + GPA）
+            writer.write(toCsvRow(plan.headers()));
 
-            // 数据行
-            for (Student s : sorted) {
-                List<String> row = new ArrayList<>();
-                row.add(String.valueOf(rankMap.get(s.getStudentId())));
-                row.add(s.getStudentId());
-                row.add(s.getName());
-                row.add(s.getGender());
-                row.add(String.valueOf(s.getAge()));
-                row.add(s.getMajor());
-                row.add(s.getClassNumber());
-                row.add(s.getPhoneNumber());
-                row.add(String.format(Locale.CHINA, "%.1f", s.getTotalCredits()));
-                row.add(String.valueOf(s.getCourseCount()));
-                // 课程成绩映射
-                Map<String, Course> courseMap = s.getCourses() == null ? Collections.emptyMap() : s.getCourses().stream()
-                        .collect(Collectors.toMap(Course::getCourseName, c -> c, (a,b)->a));
-                for (String cname : courseNames) {
-                    Course c = courseMap.get(cname);
-                    if (c == null) {
-                        row.add("");
-                    } else {
-                        row.add(String.format(Locale.CHINA, "%.1f", c.getScore()));
+            // 数据行：复用同一行缓冲区与成绩数组
+            StringBuilder line = new StringBuilder(256);
+            double[] scores = plan.newRowBuffer();
+            for (int i = 0; i < ranking.size(); i++) {
+                Student s = ranking.get(i);
+                line.setLength(0);
+                line.append(ranking.getRank(i)).append(',');
+                appendCsv(line, s.getStudentId()).append(',');
+                appendCsv(line, s.getName()).append(',');
+                appendCsv(line, s.getGender()).append(',');
+                line.append(s.getAge()).append(',');
+                appendCsv(line, s.getMajor()).append(',');
+                appendCsv(line, s.getClassNumber()).append(',');
+                appendCsv(line, s.getPhoneNumber()).append(',');
+                RankingExportPlan.appendFixed(line, s.getTotalCredits(), 1);
+                line.append(',').append(s.getCourseCount());
+                // 课程成绩按预先分配的列填入
+                plan.fillScores(s, scores);
+                for (double score : scores) {
+                    line.append(',');
+                    if (!Double.isNaN(score)) {
+                        RankingExportPlan.appendFixed(line, score, 1);
                     }
                 }
-                row.add(String.format(Locale.CHINA, "%.2f", s.getGpa()));
-                writer.write(toCsvRow(row));
+                line.append(',');
+                RankingExportPlan.appendFixed(line, s.getGpa(), 2);
+                line.append('\n');
+                writer.append(line);
             }
 
             writer.flush();
+            Metrics.count("export.csv.rows", ranking.size());
             return true;
         } catch (IOException e) {
             e.printStackTrace();
+            Metrics.count("export.csv.failed");
             return false;
+        } finally {
+            Metrics.stop("export.csv", start);
+            write.rows = ranking.size();
+            write.bytes = targetFile.length();
+            write.commit();
         }
     }
 
@@ -133,6 +107,14 @@ public class ExportUtil {
         return cells.stream().map(ExportUtil::escapeCsv).collect(Collectors.joining(",")) + "\n";
     }
 
+    private static StringBuilder appendCsv(StringBuilder sb, String s) {
+        if (s == null) return sb;
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0) {
+            return sb.append(s);
+        }
+        return sb.append(escapeCsv(s));
+    }
+
     private static String escapeCsv(String s) {
         if (s == null) return "";
         boolean needQuote = s.contains(",") || s.contains("\"") || s.contains("\n");
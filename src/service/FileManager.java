@@ -2,15 +2,107 @@ package service;
 
 import model.Student;
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * 文件管理类
  * 负责学生数据的文件读写操作
+ *
+ * 多个进程共用同一数据文件时：读写期间持有旁路锁文件（数据文件名 + ".lock"）上的
+ * {@link FileChannel#lock} 建议锁（读共享、写独占）；文件头记录版本号，连同修改时间与大小
+ * 判断文件是否被其他进程写过。保存前发现外部修改时，逐行比对每条记录的指纹，只解析发生变化的行，
+ * 按学号合并后再写入；同一学生在两边都被修改时拒绝保存。
+ * {@link #startWatching} 用 {@link WatchService} 监视数据文件，被其他程序改写后在后台以同样方式
+ * 只解析变化的记录，交给调用方增量应用。
  */
 public class FileManager {
+    private static final String VERSION_PREFIX = "# 版本:";
+    // 同一进程内按文件路径互斥（FileChannel 锁只在进程之间有效）
+    private static final Map<String, Object> PATH_MONITORS = new ConcurrentHashMap<>();
+    // 文件事件停止后再等待的时间，避免读到其他程序写了一半的文件
+    private static final long WATCH_SETTLE_MILLIS = 200;
+
     private String filePath;
+    // 最近一次成功保存的耗时与完成时间（毫秒），供监控读取
+    private volatile long lastSaveMillis = -1;
+    private volatile long lastSaveTime;
+
+    // 最近一次读取或写入时的文件状态：版本号、修改时间、大小，以及 学号 -> 行指纹
+    private long knownVersion = -1;
+    private long knownModified = -1;
+    private long knownSize = -1;
+    private Map<String, Long> knownRecords = new HashMap<>();
+    private Consumer<Changes> mergeHandler;
+    private volatile Set<String> lastConflicts = Collections.emptySet();
+    private WatchService watchService;
+
+    /**
+     * 其他进程写入的变更（相对最近一次读取或写入）：新增或修改的学生（已解析）与被删除的学号
+     */
+    public static final class Changes {
+        private final List<Student> upserted = new ArrayList<>();
+        private final Set<String> removed = new LinkedHashSet<>();
+        // 学号 -> 新行指纹，删除为 null
+        private final Map<String, Long> fingerprints = new HashMap<>();
+        // 变更对应的文件状态，以及计算变更时所对照的已知状态
+        private final long version;
+        private final long modified;
+        private final long size;
+        private final long baseVersion;
+        private final long baseModified;
+        private final long baseSize;
+
+        Changes(long version, long modified, long size, long baseVersion, long baseModified, long baseSize) {
+            this.version = version;
+            this.modified = modified;
+            this.size = size;
+            this.baseVersion = baseVersion;
+            this.baseModified = baseModified;
+            this.baseSize = baseSize;
+        }
+
+        public List<Student> getUpserted() {
+            return upserted;
+        }
+
+        public Set<String> getRemoved() {
+            return removed;
+        }
+
+        public boolean isEmpty() {
+            return upserted.isEmpty() && removed.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return "新增或修改 " + upserted.size() + " 条，删除 " + removed.size() + " 条";
+        }
+    }
 
     public FileManager(String filePath) {
         this.filePath = filePath;
@@ -39,64 +131,451 @@ public class FileManager {
         }
     }
 
+    /**
+     * 设置保存前发现外部修改时的合并处理：把变更应用到即将保存的学生列表（按学号替换、追加、删除）。
+     * 未设置时发现外部修改即拒绝保存
+     */
+    public void setMergeHandler(Consumer<Changes> mergeHandler) {
+        this.mergeHandler = mergeHandler;
+    }
+
+    /**
+     * 最近一次被拒绝的保存中，两边都修改过的学号
+     */
+    public Set<String> getLastConflicts() {
+        return lastConflicts;
+    }
+
     /**
      * 从文件中读取所有学生数据
      * @return 学生列表
      */
     public List<Student> loadStudents() {
+        long start = Metrics.start();
+        ServiceEvents.FileLoad event = new ServiceEvents.FileLoad();
+        event.begin();
         List<Student> students = new ArrayList<>();
 
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(new FileInputStream(filePath), "UTF-8"))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (!line.isEmpty() && !line.startsWith("#")) {
-                    try {
-                        Student student = Student.fromCSV(line);
-                        students.add(student);
-                    } catch (Exception e) {
-                        System.err.println("解析学生数据失败: " + line + " - " + e.getMessage());
+        synchronized (monitor()) {
+            try {
+                withLock(true, () -> {
+                    Map<String, Long> records = new HashMap<>();
+                    long version = -1;
+                    long modified = new File(filePath).lastModified();
+                    long size = new File(filePath).length();
+                    try (BufferedReader reader = new BufferedReader(
+                            new InputStreamReader(new FileInputStream(filePath), "UTF-8"))) {
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            line = line.trim();
+                            if (line.startsWith(VERSION_PREFIX)) {
+                                version = parseVersion(line);
+                            } else if (!line.isEmpty() && !line.startsWith("#")) {
+                                try {
+                                    Student student = Student.fromCSV(line);
+                                    students.add(student);
+                                    // 以规范格式（toCSV）记录指纹，与保存时本进程一方的指纹可比
+                                    records.putIfAbsent(student.getStudentId(), fingerprint(student.toCSV()));
+                                } catch (Exception e) {
+                                    System.err.println("解析学生数据失败: " + line + " - " + e.getMessage());
+                                }
+                            }
+                        }
                     }
-                }
+                    remember(version, modified, size, records);
+                    return null;
+                });
+            } catch (FileNotFoundException e) {
+                System.err.println("文件不存在: " + filePath);
+            } catch (IOException e) {
+                System.err.println("读取文件失败: " + e.getMessage());
+                e.printStackTrace();
             }
-        } catch (FileNotFoundException e) {
-            System.err.println("文件不存在: " + filePath);
-        } catch (IOException e) {
-            System.err.println("读取文件失败: " + e.getMessage());
-            e.printStackTrace();
         }
 
+        Metrics.stop("file.load", start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = filePath;
+            event.bytes = new File(filePath).length();
+            event.students = students.size();
+            event.commit();
+        }
         return students;
     }
 
     /**
-     * 将学生数据保存到文件
+     * 将学生数据保存到文件；与其他进程的修改冲突时拒绝保存，冲突学号见 {@link #getLastConflicts}
      * @param students 学生列表
      * @return 是否保存成功
      */
     public boolean saveStudents(List<Student> students) {
+        return saveStudents(students, false);
+    }
+
+    /**
+     * 将学生数据保存到文件
+     * @param students 学生列表
+     * @param discardConflicting 为 true 时两边都修改过的学生以数据文件中的版本为准（放弃本进程对它们的修改，
+     *                           由合并处理写回 students），其余修改照常合并后保存
+     * @return 是否保存成功
+     */
+    public boolean saveStudents(List<Student> students, boolean discardConflicting) {
+        long start = Metrics.start();
+        long saveStart = System.nanoTime();
+        ServiceEvents.FileSave event = new ServiceEvents.FileSave();
+        event.begin();
+        try {
+            synchronized (monitor()) {
+                boolean saved = withLock(false, () -> {
+                    long diskVersion = knownVersion;
+                    // 尚未读取过该文件时直接覆盖（与以往行为一致）
+                    if (knownModified != -1 && changedOnDisk()) {
+                        Changes changes = readChanges();
+                        diskVersion = changes.version;
+                        if (!changes.isEmpty() && !merge(changes, students, discardConflicting)) {
+                            return false;
+                        }
+                    }
+                    write(students, Math.max(diskVersion, knownVersion) + 1);
+                    lastConflicts = Collections.emptySet();
+                    return true;
+                });
+                if (!saved) {
+                    Metrics.count("file.save.conflict");
+                    return false;
+                }
+            }
+            lastSaveMillis = (System.nanoTime() - saveStart) / 1_000_000;
+            lastSaveTime = System.currentTimeMillis();
+            event.success = true;
+            return true;
+        } catch (IOException e) {
+            System.err.println("保存文件失败: " + e.getMessage());
+            e.printStackTrace();
+            Metrics.count("file.save.failed");
+            return false;
+        } finally {
+            Metrics.stop("file.save", start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.path = filePath;
+                event.bytes = new File(filePath).length();
+                event.students = students.size();
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * 写入全部学生并记录新的文件状态（调用方持有写锁）。
+     * 先写到同目录的临时文件，再整体替换数据文件，写入中途失败不会留下截断的数据文件
+     */
+    private void write(List<Student> students, long version) throws IOException {
+        Map<String, Long> records = new HashMap<>(students.size() * 2);
+        File file = new File(filePath).getAbsoluteFile();
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
         try (BufferedWriter writer = new BufferedWriter(
-                new OutputStreamWriter(new FileOutputStream(filePath), "UTF-8"))) {
+                new OutputStreamWriter(new FileOutputStream(temp), "UTF-8"))) {
 
             // 写入注释说明
             writer.write("# 学生信息管理系统数据文件");
             writer.newLine();
             writer.write("# 新格式: 学号,姓名,性别,年龄,专业,班级,联系电话,[课程1:学分:成绩|课程2:学分:成绩|...]");
             writer.newLine();
+            writer.write(VERSION_PREFIX + " " + version);
+            writer.newLine();
 
             // 写入学生数据
             for (Student student : students) {
-                writer.write(student.toCSV());
+                String line = student.toCSV();
+                writer.write(line);
                 writer.newLine();
+                records.putIfAbsent(student.getStudentId(), fingerprint(line));
             }
 
-            return true;
+            writer.flush();
         } catch (IOException e) {
-            System.err.println("保存文件失败: " + e.getMessage());
-            e.printStackTrace();
+            temp.delete();
+            throw e;
+        }
+        try {
+            Files.move(temp.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+        remember(version, file.lastModified(), file.length(), records);
+    }
+
+    /**
+     * 按学号合并外部变更：同一学生在本进程也被修改且内容不同则为冲突，拒绝保存（discardConflicting
+     * 时改为采用数据文件中的版本）；否则交给合并处理应用到 students
+     */
+    private boolean merge(Changes changes, List<Student> students, boolean discardConflicting) {
+        Set<String> touched = new HashSet<>(changes.fingerprints.keySet());
+        Map<String, Long> mine = new HashMap<>();
+        for (Student student : students) {
+            if (touched.contains(student.getStudentId())) {
+                mine.putIfAbsent(student.getStudentId(), fingerprint(student.toCSV()));
+            }
+        }
+        Set<String> conflicts = new LinkedHashSet<>();
+        for (String id : touched) {
+            Long base = knownRecords.get(id);
+            Long own = mine.get(id);
+            if (!Objects.equals(own, base) && !Objects.equals(own, changes.fingerprints.get(id))) {
+                conflicts.add(id);
+            }
+        }
+        if (mergeHandler == null || (!conflicts.isEmpty() && !discardConflicting)) {
+            lastConflicts = Collections.unmodifiableSet(conflicts);
+            System.err.println("保存被拒绝: 数据文件已被其他程序修改（" + changes + "）"
+                    + (conflicts.isEmpty() ? "" : "，以下学生两边都有修改: " + conflicts));
             return false;
         }
+        // 合并处理按学号应用全部外部变更，冲突的学生因此采用数据文件中的版本
+        mergeHandler.accept(changes);
+        if (!conflicts.isEmpty()) {
+            System.out.println("已放弃本程序对以下学生的修改，改用数据文件中的版本: " + conflicts);
+        }
+        System.out.println("已合并其他程序对数据文件的修改: " + changes);
+        return true;
+    }
+
+    /**
+     * 文件在最近一次读取或写入之后是否被修改过（比较大小、修改时间与文件头版本号）
+     */
+    private boolean changedOnDisk() throws IOException {
+        File file = new File(filePath);
+        if (file.length() != knownSize || file.lastModified() != knownModified) {
+            return true;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(filePath), "UTF-8"))) {
+            String line;
+            while ((line = reader.readLine()) != null && line.startsWith("#")) {
+                if (line.startsWith(VERSION_PREFIX)) {
+                    return parseVersion(line) != knownVersion;
+                }
+            }
+        }
+        return knownVersion != -1;
+    }
+
+    /**
+     * 逐行比对指纹，只解析与最近一次读取或写入不同的记录；不在文件中的已知学号视为删除。
+     * 已知指纹是规范格式（toCSV）的指纹：原行指纹不同时解析该行，再按规范格式比对，
+     * 只是格式不同（如手工编辑的空格、数字写法）的行不算修改
+     */
+    private Changes readChanges() throws IOException {
+        File file = new File(filePath);
+        long modified = file.lastModified();
+        long size = file.length();
+        long version = -1;
+        List<String> changedLines = new ArrayList<>();
+        Set<String> seen = new HashSet<>(knownRecords.size() * 2);
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(filePath), "UTF-8"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.startsWith(VERSION_PREFIX)) {
+                    version = parseVersion(line);
+                } else if (!line.isEmpty() && !line.startsWith("#")) {
+                    int comma = line.indexOf(',');
+                    String id = comma < 0 ? line : line.substring(0, comma).trim();
+                    if (seen.add(id) && !Objects.equals(knownRecords.get(id), fingerprint(line))) {
+                        changedLines.add(line);
+                    }
+                }
+            }
+        }
+        Changes changes = new Changes(version, modified, size, knownVersion, knownModified, knownSize);
+        for (String line : changedLines) {
+            try {
+                Student student = Student.fromCSV(line);
+                long canonical = fingerprint(student.toCSV());
+                if (!Objects.equals(knownRecords.get(student.getStudentId()), canonical)) {
+                    changes.upserted.add(student);
+                    changes.fingerprints.put(student.getStudentId(), canonical);
+                }
+            } catch (Exception e) {
+                System.err.println("解析学生数据失败: " + line + " - " + e.getMessage());
+            }
+        }
+        for (String id : knownRecords.keySet()) {
+            if (!seen.contains(id)) {
+                changes.removed.add(id);
+                changes.fingerprints.put(id, null);
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * 开始监视数据文件：被其他程序改写后（事件平息 {@value #WATCH_SETTLE_MILLIS} 毫秒后）在后台线程
+     * 计算变更并回调；本进程自己的保存不会触发回调。调用方在自己的线程应用变更前须先调用
+     * {@link #acknowledge}，返回 false 时说明期间文件状态已变化（如保存时已合并），应丢弃该变更
+     */
+    public synchronized void startWatching(Consumer<Changes> onChange) throws IOException {
+        if (watchService != null) {
+            return;
+        }
+        Path file = Paths.get(filePath).toAbsolutePath();
+        Path name = file.getFileName();
+        WatchService service = FileSystems.getDefault().newWatchService();
+        file.getParent().register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watchService = service;
+        Thread watcher = new Thread(() -> watch(service, name, onChange), "sims-file-watch");
+        watcher.setDaemon(true);
+        watcher.start();
+        System.out.println("开始监视数据文件: " + file);
+    }
+
+    public synchronized void stopWatching() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                System.err.println("停止监视数据文件失败: " + e.getMessage());
+            }
+            watchService = null;
+        }
+    }
+
+    private void watch(WatchService service, Path name, Consumer<Changes> onChange) {
+        try {
+            while (true) {
+                if (!takeEvents(service.take(), name)) {
+                    continue;
+                }
+                // 等待事件平息（其他程序可能分多次写入）
+                WatchKey key;
+                while ((key = service.poll(WATCH_SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    takeEvents(key, name);
+                }
+                Changes changes = checkForChanges();
+                if (changes != null) {
+                    onChange.accept(changes);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // 停止监视
+        }
+    }
+
+    private static boolean takeEvents(WatchKey key, Path name) {
+        boolean matched = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            matched |= event.kind() == StandardWatchEventKinds.OVERFLOW || name.equals(event.context());
+        }
+        key.reset();
+        return matched;
+    }
+
+    /**
+     * 文件被其他程序改写时返回相对已知状态的变更，否则返回 null
+     */
+    private Changes checkForChanges() {
+        synchronized (monitor()) {
+            try {
+                return withLock(true, () -> {
+                    if (knownModified == -1 || !new File(filePath).exists() || !changedOnDisk()) {
+                        return null;
+                    }
+                    long start = Metrics.start();
+                    Changes changes = readChanges();
+                    Metrics.stop("file.reload", start);
+                    return changes;
+                });
+            } catch (IOException e) {
+                System.err.println("读取数据文件变更失败: " + e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 确认变更即将被应用：仅当已知文件状态仍是计算变更时的状态才更新为变更后的状态并返回 true
+     */
+    public boolean acknowledge(Changes changes) {
+        synchronized (monitor()) {
+            if (knownVersion != changes.baseVersion || knownModified != changes.baseModified
+                    || knownSize != changes.baseSize) {
+                return false;
+            }
+            for (Map.Entry<String, Long> e : changes.fingerprints.entrySet()) {
+                if (e.getValue() == null) {
+                    knownRecords.remove(e.getKey());
+                } else {
+                    knownRecords.put(e.getKey(), e.getValue());
+                }
+            }
+            knownVersion = changes.version;
+            knownModified = changes.modified;
+            knownSize = changes.size;
+            return true;
+        }
+    }
+
+    private void remember(long version, long modified, long size, Map<String, Long> records) {
+        knownVersion = version;
+        knownModified = modified;
+        knownSize = size;
+        knownRecords = records;
+    }
+
+    private interface LockedAction<T> {
+        T run() throws IOException;
+    }
+
+    /**
+     * 在旁路锁文件上持有建议锁执行（读共享、写独占）；无法创建锁文件时（如只读目录）不加锁执行
+     */
+    private <T> T withLock(boolean shared, LockedAction<T> action) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(Paths.get(filePath + ".lock"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            return action.run();
+        }
+        try (FileChannel lockChannel = channel) {
+            FileLock lock = lockChannel.lock(0, Long.MAX_VALUE, shared);
+            try {
+                return action.run();
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    private Object monitor() {
+        return PATH_MONITORS.computeIfAbsent(new File(filePath).getAbsolutePath(), k -> new Object());
+    }
+
+    private static long parseVersion(String line) {
+        try {
+            return Long.parseLong(line.substring(VERSION_PREFIX.length()).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 行指纹（64 位 FNV-1a）
+     */
+    private static long fingerprint(String line) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < line.length(); i++) {
+            hash ^= line.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
     }
 
     /**
@@ -104,6 +583,9 @@ public class FileManager {
      * @return 是否备份成功
      */
     public boolean backupData() {
+        long start = Metrics.start();
+        ServiceEvents.FileBackup event = new ServiceEvents.FileBackup();
+        event.begin();
         try {
             File sourceFile = new File(filePath);
             if (!sourceFile.exists()) {
@@ -113,29 +595,63 @@ public class FileManager {
             String backupPath = filePath + ".backup";
             File backupFile = new File(backupPath);
 
-            try (FileInputStream fis = new FileInputStream(sourceFile);
-                 FileOutputStream fos = new FileOutputStream(backupFile)) {
+            synchronized (monitor()) {
+                withLock(true, () -> {
+                    try (FileInputStream fis = new FileInputStream(sourceFile);
+                         FileOutputStream fos = new FileOutputStream(backupFile)) {
 
-                byte[] buffer = new byte[1024];
-                int length;
-                while ((length = fis.read(buffer)) > 0) {
-                    fos.write(buffer, 0, length);
-                }
+                        byte[] buffer = new byte[1024];
+                        int length;
+                        while ((length = fis.read(buffer)) > 0) {
+                            fos.write(buffer, 0, length);
+                            event.bytes += length;
+                        }
+                    }
+                    return null;
+                });
             }
 
+            event.success = true;
             return true;
         } catch (IOException e) {
             System.err.println("备份文件失败: " + e.getMessage());
+            Metrics.count("file.backup.failed");
             return false;
+        } finally {
+            Metrics.stop("file.backup", start);
+            event.path = filePath;
+            event.commit();
         }
     }
 
+    /**
+     * 数据文件大小（字节）
+     */
+    public long getFileSize() {
+        return new File(filePath).length();
+    }
+
+    /**
+     * 最近一次成功保存的耗时（毫秒），尚未保存过为 -1
+     */
+    public long getLastSaveMillis() {
+        return lastSaveMillis;
+    }
+
+    /**
+     * 最近一次成功保存的完成时间（毫秒），尚未保存过为 0
+     */
+    public long getLastSaveTime() {
+        return lastSaveTime;
+    }
+
     public String getFilePath() {
         return filePath;
     }
 
     public void setFilePath(String filePath) {
         this.filePath = filePath;
+        remember(-1, -1, -1, new HashMap<>());
         ensureFileExists();
     }
 }
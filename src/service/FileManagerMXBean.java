@@ -0,0 +1,21 @@
+package service;
+
+/**
+ * 数据文件监控接口（JConsole / VisualVM 中显示为 sims:type=FileManager）
+ */
+public interface FileManagerMXBean {
+    /** 数据文件路径 */
+    String getFilePath();
+
+    /** 数据文件大小（字节） */
+    long getFileSize();
+
+    /** 最近一次成功保存的耗时（毫秒），尚未保存过为 -1 */
+    long getLastSaveMillis();
+
+    /** 最近一次成功保存的完成时间（毫秒），尚未保存过为 0 */
+    long getLastSaveTime();
+
+    /** 备份数据文件 */
+    boolean backup();
+}
@@ -0,0 +1,374 @@
+package service;
+
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * 成绩导入台账
+ * 记录每次成功导入的文件内容摘要（流式 SHA-256）以及每个来源文件最近一次导入的逐行指纹：
+ * <ul>
+ *     <li>内容与已完整导入过的文件相同：直接跳过，不再解析；</li>
+ *     <li>同一来源文件内容有变化：只应用指纹不在上次记录中的行。</li>
+ * </ul>
+ * 台账保持紧凑：每个来源文件只保留最近一次的指纹（排序去重的 long 数组），
+ * 来源数与历史摘要数均有上限，超出时淘汰最早的记录。二进制格式，先写临时文件再替换。
+ * 同一目录下的多个数据文件共用一个台账，摘要与来源记录都以目标数据文件区分，
+ * 导入到一个数据文件的内容不会使另一个数据文件的导入被跳过。
+ */
+public class ImportLedger {
+    private static final int MAGIC = 0x53494C47; // "SILG"
+    /** 2: 记录按目标数据文件区分 */
+    private static final int VERSION = 2;
+    /** 保留逐行指纹的来源文件数上限 */
+    private static final int MAX_SOURCES = 256;
+    /** 保留的历史内容摘要数上限 */
+    private static final int MAX_DIGESTS = 4096;
+
+    /**
+     * 一个来源文件最近一次导入的记录
+     */
+    private static final class SourceEntry {
+        final String sourcePath;
+        final byte[] digest;
+        final long importedAt;
+        final long[] fingerprints;
+
+        SourceEntry(String sourcePath, byte[] digest, long importedAt, long[] fingerprints) {
+            this.sourcePath = sourcePath;
+            this.digest = digest;
+            this.importedAt = importedAt;
+            this.fingerprints = fingerprints;
+        }
+    }
+
+    /**
+     * 导入前的台账查询结果
+     */
+    public static final class Lookup {
+        private final byte[] digest;
+        private final long duplicateOf;
+        private final long[] previousFingerprints;
+
+        private Lookup(byte[] digest, long duplicateOf, long[] previousFingerprints) {
+            this.digest = digest;
+            this.duplicateOf = duplicateOf;
+            this.previousFingerprints = previousFingerprints;
+        }
+
+        /** 内容是否与已完整导入过的文件相同 */
+        public boolean isAlreadyImported() {
+            return duplicateOf > 0;
+        }
+
+        /** 相同内容上次导入的时间（毫秒），未导入过为 0 */
+        public long getPreviousImportTime() {
+            return duplicateOf;
+        }
+
+        /** 本文件的 SHA-256 摘要（十六进制） */
+        public String getDigestHex() {
+            return toHex(digest);
+        }
+
+        /** 该行指纹是否已在同一来源上次导入中出现 */
+        boolean isKnownRow(long fingerprint) {
+            return previousFingerprints != null && Arrays.binarySearch(previousFingerprints, fingerprint) >= 0;
+        }
+    }
+
+    private final File ledgerFile;
+    // 目标数据文件的规范路径，作为所有记录键的前缀
+    private final String targetKey;
+    // 目标数据文件+来源文件 -> 最近一次导入；按最近使用排序：最早的在前，超出上限时从头淘汰
+    private final LinkedHashMap<String, SourceEntry> sources = new LinkedHashMap<>(16, 0.75f, true);
+    // 目标数据文件+已完整导入（无问题行）的内容摘要 -> 导入时间
+    private final LinkedHashMap<String, Long> completeDigests = new LinkedHashMap<>();
+    private boolean loaded;
+
+    /**
+     * @param ledgerFile 台账文件
+     * @param targetFile 成绩导入到的数据文件
+     */
+    public ImportLedger(File ledgerFile, File targetFile) {
+        this.ledgerFile = ledgerFile;
+        this.targetKey = canonicalPath(targetFile);
+    }
+
+    /**
+     * 一个待写入台账的导入记录
+     */
+    public static final class Record {
+        final File sourceFile;
+        final Lookup lookup;
+        final long[] fingerprints;
+        final boolean complete;
+
+        /**
+         * @param sourceFile 已导入的文件
+         * @param lookup 导入前的查询结果（提供摘要）
+         * @param fingerprints 本文件全部已接受行的指纹（可无序、可重复）
+         * @param complete 文件是否没有任何问题行；只有完整导入的内容才会在再次导入时整体跳过
+         */
+        public Record(File sourceFile, Lookup lookup, long[] fingerprints, boolean complete) {
+            this.sourceFile = sourceFile;
+            this.lookup = lookup;
+            this.fingerprints = fingerprints;
+            this.complete = complete;
+        }
+    }
+
+    /**
+     * 计算文件摘要并查询台账；摘要在锁外计算，多个文件可并行查询
+     * @param sourceFile 待导入文件
+     * @param ignoreHistory 为 true 时不做跳过与逐行比对（强制重新导入），仍会计算摘要以便记录
+     */
+    public Lookup lookup(File sourceFile, boolean ignoreHistory) throws IOException {
+        byte[] digest = digest(sourceFile);
+        if (ignoreHistory) {
+            return new Lookup(digest, 0, null);
+        }
+        return find(sourceFile, digest);
+    }
+
+    private synchronized Lookup find(File sourceFile, byte[] digest) {
+        ensureLoaded();
+        Long previous = completeDigests.get(digestKey(digest));
+        if (previous != null) {
+            return new Lookup(digest, previous, null);
+        }
+        SourceEntry entry = sources.get(sourceKey(sourceFile));
+        return new Lookup(digest, 0, entry == null ? null : entry.fingerprints);
+    }
+
+    /**
+     * 记录一次成功导入并写回台账
+     * @param sourceFile 已导入的文件
+     * @param lookup 导入前的查询结果（提供摘要）
+     * @param fingerprints 本文件全部已接受行的指纹（可无序、可重复）
+     * @param complete 文件是否没有任何问题行；只有完整导入的内容才会在再次导入时整体跳过
+     */
+    public void record(File sourceFile, Lookup lookup, long[] fingerprints, boolean complete) {
+        recordAll(Collections.singletonList(new Record(sourceFile, lookup, fingerprints, complete)));
+    }
+
+    /**
+     * 记录一批文件的导入（多文件导入），只写回一次台账
+     */
+    public synchronized void recordAll(List<Record> records) {
+        ensureLoaded();
+        long now = System.currentTimeMillis();
+        for (Record record : records) {
+            String key = sourceKey(record.sourceFile);
+            sources.remove(key);
+            sources.put(key, new SourceEntry(key, record.lookup.digest, now, sortedUnique(record.fingerprints)));
+            if (record.complete) {
+                String digest = digestKey(record.lookup.digest);
+                completeDigests.remove(digest);
+                completeDigests.put(digest, now);
+            }
+        }
+        compact();
+        save();
+    }
+
+    /**
+     * 计算文件的 SHA-256（流式，不整体载入内存）
+     */
+    public static byte[] digest(File file) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = new DigestInputStream(new FileInputStream(file), md)) {
+            while (in.read(buffer) != -1) {
+                // 读取过程中已更新摘要
+            }
+        }
+        return md.digest();
+    }
+
+    /**
+     * 行指纹：对 学号/课程名/学分/成绩 计算 64 位 FNV-1a 哈希（与格式、空白、逗号全半角无关）
+     */
+    static long fingerprint(String studentId, String courseName, double credit, double score) {
+        long h = 0xcbf29ce484222325L;
+        h = mix(h, studentId);
+        h = mix(h, courseName);
+        h = mix(h, Double.doubleToLongBits(credit));
+        h = mix(h, Double.doubleToLongBits(score));
+        return h;
+    }
+
+    private static long mix(long h, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= 0x1F; // 字段分隔，避免 "ab"+"c" 与 "a"+"bc" 相同
+        return h * 0x100000001b3L;
+    }
+
+    private static long mix(long h, long v) {
+        for (int i = 0; i < 8; i++) {
+            h ^= (v >>> (i * 8)) & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    // 路径中不会出现 '\0'，用作目标与来源/摘要之间的分隔
+    private String sourceKey(File file) {
+        return targetKey + '\0' + canonicalPath(file);
+    }
+
+    private String digestKey(byte[] digest) {
+        return targetKey + '\0' + toHex(digest);
+    }
+
+    private static String canonicalPath(File file) {
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException e) {
+            return file.getAbsolutePath();
+        }
+    }
+
+    private static long[] sortedUnique(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int n = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (n == 0 || sorted[n - 1] != sorted[i]) {
+                sorted[n++] = sorted[i];
+            }
+        }
+        return n == sorted.length ? sorted : Arrays.copyOf(sorted, n);
+    }
+
+    private void compact() {
+        Iterator<String> sourceIt = sources.keySet().iterator();
+        while (sources.size() > MAX_SOURCES && sourceIt.hasNext()) {
+            sourceIt.next();
+            sourceIt.remove();
+        }
+        Iterator<String> digestIt = completeDigests.keySet().iterator();
+        while (completeDigests.size() > MAX_DIGESTS && digestIt.hasNext()) {
+            digestIt.next();
+            digestIt.remove();
+        }
+    }
+
+    /**
+     * 保留逐行指纹的来源文件数
+     */
+    public synchronized int getSourceCount() {
+        ensureLoaded();
+        return sources.size();
+    }
+
+    /**
+     * 已记录的完整导入内容摘要数
+     */
+    public synchronized int getDigestCount() {
+        ensureLoaded();
+        return completeDigests.size();
+    }
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        loaded = true;
+        if (!ledgerFile.exists()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(ledgerFile)))) {
+            if (in.readInt() != MAGIC) {
+                System.err.println("导入台账格式不识别，已忽略: " + ledgerFile.getPath());
+                return;
+            }
+            if (in.readInt() != VERSION) {
+                // 旧版台账未记录导入到哪个数据文件，无法判断是否适用于本数据文件
+                System.err.println("导入台账为旧版格式（未区分数据文件），已忽略: " + ledgerFile.getPath());
+                return;
+            }
+            int digestCount = in.readInt();
+            for (int i = 0; i < digestCount; i++) {
+                String key = in.readUTF();
+                completeDigests.put(key, in.readLong());
+            }
+            int sourceCount = in.readInt();
+            for (int i = 0; i < sourceCount; i++) {
+                String path = in.readUTF();
+                byte[] digest = new byte[32];
+                in.readFully(digest);
+                long importedAt = in.readLong();
+                long[] fingerprints = new long[in.readInt()];
+                for (int j = 0; j < fingerprints.length; j++) {
+                    fingerprints[j] = in.readLong();
+                }
+                sources.put(path, new SourceEntry(path, digest, importedAt, fingerprints));
+            }
+        } catch (IOException e) {
+            // 台账损坏只影响去重，不影响导入本身
+            System.err.println("读取导入台账失败，已忽略: " + e.getMessage());
+            sources.clear();
+            completeDigests.clear();
+        }
+    }
+
+    private void save() {
+        File parent = ledgerFile.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        File tmp = new File(parent, ledgerFile.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(completeDigests.size());
+            for (Map.Entry<String, Long> e : completeDigests.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeLong(e.getValue());
+            }
+            out.writeInt(sources.size());
+            for (SourceEntry entry : sources.values()) {
+                out.writeUTF(entry.sourcePath);
+                out.write(entry.digest);
+                out.writeLong(entry.importedAt);
+                out.writeInt(entry.fingerprints.length);
+                for (long fp : entry.fingerprints) {
+                    out.writeLong(fp);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("保存导入台账失败: " + e.getMessage());
+            tmp.delete();
+            return;
+        }
+        try {
+            try {
+                Files.move(tmp.toPath(), ledgerFile.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), ledgerFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("保存导入台账失败: " + e.getMessage());
+            tmp.delete();
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,72 @@
+package service;
+
+import java.util.List;
+
+/**
+ * 成绩导入进度监听
+ * 导入引擎在执行过程中回调：开始时给出文件总字节数，之后增量上报已读字节、已解析行与已应用课程数，
+ * 并分批推送问题行说明（条数有上限，超出部分只写入报告文件）。
+ * 通过 {@link #isCancelled()} 询问是否应中止；进入应用阶段后不再响应取消。
+ * 回调可能来自读取线程与调用线程，实现须线程安全。
+ */
+public interface ImportListener {
+
+    /** 不关心进度、永不取消的空监听 */
+    ImportListener NONE = new ImportListener() {
+        @Override
+        public void onStart(long totalBytes) {
+        }
+
+        @Override
+        public void onBytesRead(long bytes) {
+        }
+
+        @Override
+        public void onRowsParsed(long rows) {
+        }
+
+        @Override
+        public void onRowsApplied(long rows) {
+        }
+
+        @Override
+        public void onProblems(List<String> problems) {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+    };
+
+    /**
+     * 开始读取
+     * @param totalBytes 文件总字节数
+     */
+    void onStart(long totalBytes);
+
+    /**
+     * 新读取的字节数（增量）
+     */
+    void onBytesRead(long bytes);
+
+    /**
+     * 新解析完成的行数（增量）
+     */
+    void onRowsParsed(long rows);
+
+    /**
+     * 新应用到学生的课程数（增量）
+     */
+    void onRowsApplied(long rows);
+
+    /**
+     * 一批问题行说明
+     */
+    void onProblems(List<String> problems);
+
+    /**
+     * 是否已请求取消
+     */
+    boolean isCancelled();
+}
@@ -0,0 +1,111 @@
+package service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 成绩导入进度句柄
+ * 作为 {@link ImportListener} 交给导入引擎，界面定时读取计数计算吞吐量与剩余时间；
+ * 问题行批次转交给构造时给定的接收方（如 SwingWorker 的 publish）。
+ */
+public class ImportProgress implements ImportListener {
+    private final Consumer<List<String>> problemSink;
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong rowsParsed = new AtomicLong();
+    private final AtomicLong rowsApplied = new AtomicLong();
+    private volatile long totalBytes;
+    private volatile long startNanos;
+    private volatile boolean cancelRequested;
+
+    /**
+     * @param problemSink 问题行批次接收方，可为 null
+     */
+    public ImportProgress(Consumer<List<String>> problemSink) {
+        this.problemSink = problemSink;
+    }
+
+    /**
+     * 请求取消；导入在下一批次处中止，不应用任何修改
+     */
+    public void cancel() {
+        cancelRequested = true;
+    }
+
+    @Override
+    public void onStart(long totalBytes) {
+        this.totalBytes = totalBytes;
+        this.startNanos = System.nanoTime();
+    }
+
+    @Override
+    public void onBytesRead(long bytes) {
+        bytesRead.addAndGet(bytes);
+    }
+
+    @Override
+    public void onRowsParsed(long rows) {
+        rowsParsed.addAndGet(rows);
+    }
+
+    @Override
+    public void onRowsApplied(long rows) {
+        rowsApplied.addAndGet(rows);
+    }
+
+    @Override
+    public void onProblems(List<String> problems) {
+        if (problemSink != null) {
+            problemSink.accept(problems);
+        }
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelRequested || Thread.currentThread().isInterrupted();
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    public long getRowsParsed() {
+        return rowsParsed.get();
+    }
+
+    public long getRowsApplied() {
+        return rowsApplied.get();
+    }
+
+    /**
+     * 已耗时（毫秒），尚未开始为 0
+     */
+    public long getElapsedMillis() {
+        return startNanos == 0 ? 0 : (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    /**
+     * 解析吞吐量（行/秒）
+     */
+    public double getRowsPerSecond() {
+        long elapsed = getElapsedMillis();
+        return elapsed == 0 ? 0 : rowsParsed.get() * 1000.0 / elapsed;
+    }
+
+    /**
+     * 按读取字节速度估算的剩余时间（毫秒），无法估算时为 -1
+     */
+    public long getEtaMillis() {
+        long elapsed = getElapsedMillis();
+        long read = bytesRead.get();
+        if (elapsed == 0 || read == 0 || totalBytes == 0) {
+            return -1;
+        }
+        long remaining = Math.max(totalBytes - read, 0);
+        return (long) (remaining * (double) elapsed / read);
+    }
+}
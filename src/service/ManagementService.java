@@ -0,0 +1,218 @@
+package service;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * JMX 注册：把 StudentManager 与其数据文件以 MXBean 形式注册到平台 MBeanServer，
+ * 供 JConsole / VisualVM 查看实时数据并触发保存、备份、重建排名。
+ * StudentManager 不是线程安全的，凡是遍历名单或修改数据的调用都交给 owner 执行器
+ * （桌面程序中为事件调度线程），JMX 线程只等待结果。
+ */
+public final class ManagementService {
+    public static final String STUDENT_MANAGER_NAME = "sims:type=StudentManager";
+    public static final String FILE_MANAGER_NAME = "sims:type=FileManager";
+    /** 等待 owner 执行器的最长时间 */
+    private static final long CALL_TIMEOUT_SECONDS = 30;
+
+    private ManagementService() {
+    }
+
+    /**
+     * 注册监控 Bean；已注册时先替换为新的实例
+     * @param manager 学生管理器
+     * @param owner 执行名单访问与修改操作的执行器（如 SwingUtilities::invokeLater）
+     * @return 是否注册成功
+     */
+    public static boolean register(StudentManager manager, Executor owner) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            registerReplacing(server, new StudentManagerBean(manager, owner), new ObjectName(STUDENT_MANAGER_NAME));
+            registerReplacing(server, new FileManagerBean(manager, owner), new ObjectName(FILE_MANAGER_NAME));
+            System.out.println("已注册 JMX 监控: " + STUDENT_MANAGER_NAME + ", " + FILE_MANAGER_NAME);
+            return true;
+        } catch (JMException e) {
+            System.err.println("注册 JMX 监控失败: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 注销监控 Bean
+     */
+    public static void unregister() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (String name : new String[]{STUDENT_MANAGER_NAME, FILE_MANAGER_NAME}) {
+            try {
+                ObjectName objectName = new ObjectName(name);
+                if (server.isRegistered(objectName)) server.unregisterMBean(objectName);
+            } catch (JMException e) {
+                System.err.println("注销 JMX 监控失败: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void registerReplacing(MBeanServer server, Object bean, ObjectName name) throws JMException {
+        try {
+            server.registerMBean(bean, name);
+        } catch (InstanceAlreadyExistsException e) {
+            server.unregisterMBean(name);
+            server.registerMBean(bean, name);
+        }
+    }
+
+    /**
+     * 在 owner 执行器上执行并等待结果
+     */
+    private static <T> T call(Executor owner, Callable<T> task) {
+        FutureTask<T> future = new FutureTask<>(task);
+        owner.execute(future);
+        try {
+            return future.get(CALL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("操作被中断");
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            throw new IllegalStateException("操作超时（界面线程繁忙）");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("操作失败: " + e.getCause().getMessage());
+        }
+    }
+
+    private static final class StudentManagerBean implements StudentManagerMXBean {
+        private final StudentManager manager;
+        private final Executor owner;
+
+        StudentManagerBean(StudentManager manager, Executor owner) {
+            this.manager = manager;
+            this.owner = owner;
+        }
+
+        @Override
+        public int getStudentCount() {
+            return manager.getStudentCount();
+        }
+
+        @Override
+        public int getCourseCount() {
+            return call(owner, manager::getCourseCount);
+        }
+
+        @Override
+        public int getCachedMajorRankings() {
+            return manager.getRankingService().getCachedMajorCount();
+        }
+
+        @Override
+        public double getRankingCacheHitRatio() {
+            long hits = getRankingCacheHits();
+            long total = hits + getRankingCacheMisses();
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        @Override
+        public long getRankingCacheHits() {
+            return manager.getRankingService().getHitCount();
+        }
+
+        @Override
+        public long getRankingCacheMisses() {
+            return manager.getRankingService().getMissCount();
+        }
+
+        @Override
+        public int getLedgerSourceCount() {
+            return manager.getImportLedger().getSourceCount();
+        }
+
+        @Override
+        public int getLedgerDigestCount() {
+            return manager.getImportLedger().getDigestCount();
+        }
+
+        @Override
+        public int getPendingChanges() {
+            return manager.getPendingChanges();
+        }
+
+        @Override
+        public long getLastImportLines() {
+            return manager.getLastImportLines();
+        }
+
+        @Override
+        public long getLastImportMillis() {
+            return manager.getLastImportNanos() / 1_000_000;
+        }
+
+        @Override
+        public double getLastImportLinesPerSecond() {
+            long nanos = manager.getLastImportNanos();
+            return nanos == 0 ? 0 : manager.getLastImportLines() * 1e9 / nanos;
+        }
+
+        @Override
+        public double getLastImportMegabytesPerSecond() {
+            long nanos = manager.getLastImportNanos();
+            return nanos == 0 ? 0 : manager.getLastImportBytes() / (1024.0 * 1024.0) * 1e9 / nanos;
+        }
+
+        @Override
+        public boolean flush() {
+            return call(owner, manager::saveData);
+        }
+
+        @Override
+        public void rebuildIndex() {
+            call(owner, () -> {
+                manager.rebuildRankings();
+                return null;
+            });
+        }
+    }
+
+    private static final class FileManagerBean implements FileManagerMXBean {
+        private final StudentManager manager;
+        private final Executor owner;
+
+        FileManagerBean(StudentManager manager, Executor owner) {
+            this.manager = manager;
+            this.owner = owner;
+        }
+
+        @Override
+        public String getFilePath() {
+            return manager.getFileManager().getFilePath();
+        }
+
+        @Override
+        public long getFileSize() {
+            return manager.getFileManager().getFileSize();
+        }
+
+        @Override
+        public long getLastSaveMillis() {
+            return manager.getFileManager().getLastSaveMillis();
+        }
+
+        @Override
+        public long getLastSaveTime() {
+            return manager.getFileManager().getLastSaveTime();
+        }
+
+        @Override
+        public boolean backup() {
+            return call(owner, manager::backupData);
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 成绩文件内存映射读取器
+ * 读取线程把文件按窗口映射到内存，并切成以换行结尾的片段（只在片段边界附近查找换行，不逐字节扫描）；
+ * 解析线程直接在 UTF-8 字节上查找换行与字段分隔符（半角逗号 0x2C、全角逗号 EF BC 8C），
+ * 跳过空白（ASCII 空白、BOM EF BB BF、全角空格 E3 80 80），不为整行构造字符串：
+ * 只有学号与课程名会生成 String，学分与成绩直接从字节解析为 double。
+ * 解析规则与原先按行 "去空白 + 按逗号拆分" 完全一致（包括末尾空字段被忽略）。
+ */
+final class MappedScoreReader {
+    /** 每个片段的目标字节数 */
+    static final int SLICE_BYTES = 1 << 20;
+    /** 每次映射的窗口大小（单个 MappedByteBuffer 不能超过 2GB） */
+    static final long WINDOW_BYTES = 256L << 20;
+
+    /** 能精确表示的 10 的幂（用于数值快速解析） */
+    private static final double[] POW10 = new double[23];
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    /**
+     * 映射窗口中的一段完整行 [start, end)
+     */
+    static final class Slice {
+        final ByteBuffer buffer;
+        final int start;
+        final int end;
+
+        Slice(ByteBuffer buffer, int start, int end) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+        }
+
+        int length() {
+            return end - start;
+        }
+    }
+
+    /**
+     * 片段接收方
+     */
+    interface SliceSink {
+        /** @return 是否继续读取 */
+        boolean accept(Slice slice) throws InterruptedException;
+    }
+
+    private MappedScoreReader() {
+    }
+
+    /**
+     * 映射文件并按行边界切片，依次交给接收方
+     */
+    static void split(Path file, SliceSink sink) throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                long length = Math.min(WINDOW_BYTES, size - position);
+                boolean lastWindow = position + length == size;
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int limit = (int) length;
+                if (!lastWindow) {
+                    // 窗口末尾的不完整行留给下一个窗口；整个窗口没有换行时只能整体交出
+                    int lastLineEnd = previousLineEnd(window, limit);
+                    if (lastLineEnd > 0) limit = lastLineEnd;
+                }
+                int start = 0;
+                while (start < limit) {
+                    int end = Math.min(start + SLICE_BYTES, limit);
+                    if (end < limit) {
+                        int next = nextLineStart(window, end, limit);
+                        end = next < 0 ? limit : next;
+                    }
+                    if (!sink.accept(new Slice(window, start, end))) {
+                        return;
+                    }
+                    start = end;
+                }
+                position += limit;
+            }
+        }
+    }
+
+    /**
+     * 最后一个换行之后的位置；没有换行时返回 0
+     */
+    private static int previousLineEnd(ByteBuffer buffer, int limit) {
+        for (int i = limit - 1; i >= 0; i--) {
+            if (buffer.get(i) == '\n') return i + 1;
+        }
+        return 0;
+    }
+
+    /**
+     * 从 from 开始查找换行，返回其后一个位置；找不到时返回 -1
+     */
+    private static int nextLineStart(ByteBuffer buffer, int from, int limit) {
+        for (int i = from; i < limit; i++) {
+            if (buffer.get(i) == '\n') return i + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * 解析一个片段；记录与错误中的行号为片段内行号（从 1 开始），由消费方加上片段起始行
+     */
+    static ScoreImporter.ParsedBatch parse(Slice slice) {
+        return new SliceParser(slice).parse();
+    }
+
+    /**
+     * 单个片段的解析状态（每个解析任务一个实例，不共享）
+     */
+    private static final class SliceParser {
+        private final ByteBuffer buf;
+        private final Slice slice;
+        private final ScoreImporter.ParsedBatch parsed = new ScoreImporter.ParsedBatch();
+        private byte[] scratch = new byte[256];
+        // 前 4 个字段的范围；字段总数与最后一个非空字段
+        private final int[] fieldStart = new int[4];
+        private final int[] fieldEnd = new int[4];
+        private int fieldCount;
+        private int lastNonEmptyField;
+        private boolean fieldHasContent;
+
+        SliceParser(Slice slice) {
+            this.slice = slice;
+            this.buf = slice.buffer;
+        }
+
+        ScoreImporter.ParsedBatch parse() {
+            int pos = slice.start;
+            long line = 0;
+            while (pos < slice.end) {
+                line++;
+                int eol = parseLine(pos, line);
+                // 与 BufferedReader.readLine 一致：\n、\r、\r\n 都是行结束
+                pos = eol + 1 < slice.end && buf.get(eol) == '\r' && buf.get(eol + 1) == '\n' ? eol + 2 : eol + 1;
+            }
+            parsed.lineCount = line;
+            return parsed;
+        }
+
+        /**
+         * 单遍扫描一行，返回行结束符位置（或片段末尾）
+         */
+        private int parseLine(int lineStart, long line) {
+            fieldCount = 0;
+            lastNonEmptyField = -1;
+            fieldHasContent = false;
+            int fieldBegin = lineStart;
+            int firstNonBlank = -1;
+            int end = slice.end;
+            int i = lineStart;
+            while (i < end) {
+                byte b = buf.get(i);
+                if (b == '\n' || b == '\r') break;
+                int separator = separatorLength(i, b, end);
+                if (separator > 0) {
+                    if (firstNonBlank < 0) firstNonBlank = i;
+                    closeField(fieldBegin, i);
+                    i += separator;
+                    fieldBegin = i;
+                    continue;
+                }
+                int blank = whitespaceLength(i, b, end);
+                if (blank > 0) {
+                    i += blank;
+                    continue;
+                }
+                if (firstNonBlank < 0) firstNonBlank = i;
+                fieldHasContent = true;
+                i++;
+            }
+            int eol = i;
+            // 空行与 # 注释
+            if (firstNonBlank < 0 || buf.get(firstNonBlank) == '#') {
+                return eol;
+            }
+            closeField(fieldBegin, eol);
+            // 与 String.split 一致：末尾的空字段不计
+            if (lastNonEmptyField + 1 != 4) {
+                parsed.errors.add(new ScoreImporter.LineError(line,
+                        "跳过无效行(字段数量!=4): " + lineText(lineStart, eol)));
+                return eol;
+            }
+            try {
+                String studentId = text(fieldStart[0], fieldEnd[0]);
+                String courseName = text(fieldStart[1], fieldEnd[1]);
+                double credit = number(fieldStart[2], fieldEnd[2]);
+                double score = number(fieldStart[3], fieldEnd[3]);
+                parsed.records.add(new ScoreImporter.ScoreRecord(line, studentId, courseName, credit, score));
+            } catch (NumberFormatException e) {
+                parsed.errors.add(new ScoreImporter.LineError(line,
+                        "解析失败: " + lineText(lineStart, eol) + " - " + e.getMessage()));
+            }
+            return eol;
+        }
+
+        private void closeField(int begin, int end) {
+            if (fieldCount < 4) {
+                fieldStart[fieldCount] = begin;
+                fieldEnd[fieldCount] = end;
+            }
+            if (fieldHasContent) {
+                lastNonEmptyField = fieldCount;
+            }
+            fieldCount++;
+            fieldHasContent = false;
+        }
+
+        /** 半角逗号或全角逗号（EF BC 8C）的字节长度，不是分隔符时为 0 */
+        private int separatorLength(int i, byte b, int end) {
+            if (b == ',') return 1;
+            if (b == (byte) 0xEF && i + 2 < end
+                    && buf.get(i + 1) == (byte) 0xBC && buf.get(i + 2) == (byte) 0x8C) {
+                return 3;
+            }
+            return 0;
+        }
+
+        /** 空白的字节长度：ASCII 空白、BOM（EF BB BF）、全角空格（E3 80 80）；不是空白时为 0 */
+        private int whitespaceLength(int i, byte b, int end) {
+            if (b == ' ' || (b >= 0x09 && b <= 0x0D)) return 1;
+            if (b == (byte) 0xEF && i + 2 < end
+                    && buf.get(i + 1) == (byte) 0xBB && buf.get(i + 2) == (byte) 0xBF) {
+                return 3;
+            }
+            if (b == (byte) 0xE3 && i + 2 < end
+                    && buf.get(i + 1) == (byte) 0x80 && buf.get(i + 2) == (byte) 0x80) {
+                return 3;
+            }
+            return 0;
+        }
+
+        /**
+         * 把字段中的非空白字节复制到暂存区，返回长度
+         */
+        private int copyWithoutBlanks(int begin, int end) {
+            if (scratch.length < end - begin) {
+                scratch = new byte[Math.max(end - begin, scratch.length * 2)];
+            }
+            int n = 0;
+            int i = begin;
+            while (i < end) {
+                byte b = buf.get(i);
+                int blank = whitespaceLength(i, b, end);
+                if (blank > 0) {
+                    i += blank;
+                    continue;
+                }
+                scratch[n++] = b;
+                i++;
+            }
+            return n;
+        }
+
+        private String text(int begin, int end) {
+            int n = copyWithoutBlanks(begin, end);
+            return new String(scratch, 0, n, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * 解析数值：[+-]数字[.数字] 且有效位数不超过 15 时直接计算（结果与 Double.parseDouble 相同），
+         * 其余写法（指数、NaN 等）或非法输入交给 Double.parseDouble，异常信息保持一致
+         */
+        private double number(int begin, int end) {
+            int n = copyWithoutBlanks(begin, end);
+            int i = 0;
+            boolean negative = false;
+            if (n > 0 && (scratch[0] == '-' || scratch[0] == '+')) {
+                negative = scratch[0] == '-';
+                i++;
+            }
+            long mantissa = 0;
+            int digits = 0;
+            int fractionDigits = 0;
+            boolean dot = false;
+            boolean sawDigit = false;
+            boolean simple = true;
+            for (; i < n && simple; i++) {
+                byte b = scratch[i];
+                if (b >= '0' && b <= '9') {
+                    sawDigit = true;
+                    if (mantissa != 0 || b != '0') {
+                        // 前导零不计入有效位
+                        digits++;
+                    }
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (dot) fractionDigits++;
+                } else if (b == '.' && !dot) {
+                    dot = true;
+                } else {
+                    simple = false;
+                }
+            }
+            if (simple && sawDigit && digits <= 15 && fractionDigits < POW10.length) {
+                double value = mantissa / POW10[fractionDigits];
+                return negative ? -value : value;
+            }
+            return Double.parseDouble(new String(scratch, 0, n, StandardCharsets.UTF_8));
+        }
+
+        /** 出错行的原文（去首尾空白），仅用于错误说明 */
+        private String lineText(int begin, int end) {
+            if (scratch.length < end - begin) {
+                scratch = new byte[Math.max(end - begin, scratch.length * 2)];
+            }
+            for (int i = begin; i < end; i++) {
+                scratch[i - begin] = buf.get(i);
+            }
+            return new String(scratch, 0, end - begin, StandardCharsets.UTF_8).trim();
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package service;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 服务层运行指标：按操作名记录计数器与耗时直方图（p50/p99/最大值）。
+ * 直方图按对数分桶（每个 2 的幂区间再分 16 个子桶，相对误差不超过 6.25%），记录只做原子自增，不加锁。
+ * 默认关闭：关闭时 {@link #start()} 返回 0，{@link #stop} 与 {@link #count} 只读一次开关即返回。
+ * 启用方式：-Dsims.metrics=true 或 {@link #setEnabled(boolean)}；
+ * 指定 -Dsims.metrics.file=路径 时程序退出前把指标写入该文件，也可随时调用 {@link #dump(File)}。
+ * 用法：
+ * <pre>
+ * long start = Metrics.start();
+ * try { ... } finally { Metrics.stop("file.save", start); }
+ * </pre>
+ */
+public final class Metrics {
+    private static volatile boolean enabled = Boolean.getBoolean("sims.metrics");
+
+    private static final ConcurrentHashMap<String, Histogram> TIMERS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+
+    static {
+        String file = System.getProperty("sims.metrics.file");
+        if (file != null && !file.trim().isEmpty()) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                if (!TIMERS.isEmpty() || !COUNTERS.isEmpty()) dump(new File(file.trim()));
+            }, "metrics-dump"));
+        }
+    }
+
+    private Metrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * 开始计时
+     * @return 起始时间（纳秒）；未启用时返回 0
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * 结束计时并记入操作的直方图；start 为 0（开始时未启用）时忽略
+     */
+    public static void stop(String operation, long start) {
+        if (start == 0L || !enabled) return;
+        record(operation, System.nanoTime() - start);
+    }
+
+    /**
+     * 直接记录一次耗时（纳秒）
+     */
+    public static void record(String operation, long nanos) {
+        if (!enabled) return;
+        Histogram h = TIMERS.get(operation);
+        if (h == null) {
+            h = TIMERS.computeIfAbsent(operation, k -> new Histogram());
+        }
+        h.record(nanos);
+    }
+
+    public static void count(String counter) {
+        count(counter, 1);
+    }
+
+    public static void count(String counter, long delta) {
+        if (!enabled) return;
+        LongAdder adder = COUNTERS.get(counter);
+        if (adder == null) {
+            adder = COUNTERS.computeIfAbsent(counter, k -> new LongAdder());
+        }
+        adder.add(delta);
+    }
+
+    /**
+     * 计数器当前值，不存在时为 0
+     */
+    public static long getCount(String counter) {
+        LongAdder adder = COUNTERS.get(counter);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    /**
+     * 某个操作的耗时统计快照，不存在时返回 null
+     */
+    public static Stats getStats(String operation) {
+        Histogram h = TIMERS.get(operation);
+        return h == null ? null : h.snapshot(operation);
+    }
+
+    /**
+     * 全部操作的耗时统计快照（按操作名排序）
+     */
+    public static List<Stats> snapshot() {
+        List<Stats> list = new ArrayList<>();
+        for (Map.Entry<String, Histogram> e : new TreeMap<>(TIMERS).entrySet()) {
+            list.add(e.getValue().snapshot(e.getKey()));
+        }
+        return list;
+    }
+
+    /**
+     * 全部计数器（按名称排序）
+     */
+    public static Map<String, Long> counters() {
+        Map<String, Long> map = new TreeMap<>();
+        COUNTERS.forEach((k, v) -> map.put(k, v.sum()));
+        return map;
+    }
+
+    /**
+     * 清空全部指标
+     */
+    public static void reset() {
+        TIMERS.clear();
+        COUNTERS.clear();
+    }
+
+    /**
+     * 文本格式的指标报告
+     */
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("# 运行指标 ").append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()))
+                .append('\n');
+        sb.append(String.format("%-28s %10s %12s %12s %12s %12s%n",
+                "操作", "次数", "平均(ms)", "p50(ms)", "p99(ms)", "最大(ms)"));
+        for (Stats s : snapshot()) {
+            sb.append(String.format("%-28s %10d %12.3f %12.3f %12.3f %12.3f%n",
+                    s.getName(), s.getCount(), s.getMeanNanos() / 1e6,
+                    s.getP50Nanos() / 1e6, s.getP99Nanos() / 1e6, s.getMaxNanos() / 1e6));
+        }
+        Map<String, Long> counters = counters();
+        if (!counters.isEmpty()) {
+            sb.append('\n').append(String.format("%-28s %12s%n", "计数器", "值"));
+            counters.forEach((k, v) -> sb.append(String.format("%-28s %12d%n", k, v)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 把指标报告写入文件
+     * @return 是否写入成功
+     */
+    public static boolean dump(File file) {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) parent.mkdirs();
+        try (BufferedWriter writer = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            writer.write(report());
+            System.out.println("运行指标已写入: " + file.getPath());
+            return true;
+        } catch (IOException e) {
+            System.err.println("写入运行指标失败: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 一个操作的耗时统计（纳秒）；分位数为所在桶的上界（不超过最大值）
+     */
+    public static final class Stats {
+        private final String name;
+        private final long count;
+        private final long totalNanos;
+        private final long p50Nanos;
+        private final long p99Nanos;
+        private final long maxNanos;
+
+        Stats(String name, long count, long totalNanos, long p50Nanos, long p99Nanos, long maxNanos) {
+            this.name = name;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.p50Nanos = p50Nanos;
+            this.p99Nanos = p99Nanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public double getMeanNanos() {
+            return count == 0 ? 0 : (double) totalNanos / count;
+        }
+
+        public long getP50Nanos() {
+            return p50Nanos;
+        }
+
+        public long getP99Nanos() {
+            return p99Nanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d 次, 平均 %.3f ms, p50 %.3f ms, p99 %.3f ms, 最大 %.3f ms",
+                    name, count, getMeanNanos() / 1e6, p50Nanos / 1e6, p99Nanos / 1e6, maxNanos / 1e6);
+        }
+    }
+
+    /**
+     * 对数分桶直方图：值 v < 16 时直接作为桶号；否则以最高位 e 与其后 4 位 m 定桶 (e-3)*16+m
+     */
+    static final class Histogram {
+        private static final int SUB_BITS = 4;
+        private static final int SUB_COUNT = 1 << SUB_BITS;
+        private static final int BUCKETS = (63 - SUB_BITS + 1) * SUB_COUNT;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long value) {
+            if (value < 0) value = 0;
+            buckets.incrementAndGet(bucket(value));
+            count.increment();
+            total.add(value);
+            long current = max.get();
+            while (value > current && !max.compareAndSet(current, value)) {
+                current = max.get();
+            }
+        }
+
+        static int bucket(long value) {
+            if (value < SUB_COUNT) return (int) value;
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+            return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+        }
+
+        /** 桶内最大值 */
+        static long upperBound(int bucket) {
+            if (bucket < SUB_COUNT) return bucket;
+            int exponent = bucket / SUB_COUNT + SUB_BITS - 1;
+            long sub = bucket % SUB_COUNT;
+            long width = 1L << (exponent - SUB_BITS);
+            return ((SUB_COUNT + sub) << (exponent - SUB_BITS)) + width - 1;
+        }
+
+        Stats snapshot(String name) {
+            long[] copy = new long[BUCKETS];
+            long n = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                copy[i] = buckets.get(i);
+                n += copy[i];
+            }
+            long maxValue = max.get();
+            return new Stats(name, n, total.sum(),
+                    percentile(copy, n, 0.50, maxValue), percentile(copy, n, 0.99, maxValue), maxValue);
+        }
+
+        private static long percentile(long[] counts, long n, double quantile, long maxValue) {
+            if (n == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(quantile * n));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(upperBound(i), maxValue);
+            }
+            return maxValue;
+        }
+    }
+}
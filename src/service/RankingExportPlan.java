@@ -0,0 +1,108 @@
+package service;
+
+import model.Course;
+import model.Student;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+
+/**
+ * 排名导出列规划
+ * 为所有出现过的课程名一次性分配列下标（按出现顺序），
+ * 写出每行时直接把学生课程成绩填入可复用的成绩数组，CSV 与 XLSX 导出共用。
+ */
+public class RankingExportPlan {
+    /** 排名表固定列（课程列与 GPA 列追加在其后） */
+    static final String[] FIXED_HEADERS = {
+            "排名","学号","姓名","性别","年龄","专业","班级","联系电话","总学分","课程数"};
+    static final String GPA_HEADER = "加权平均分(GPA)";
+
+    private final List<String> courseNames;
+    private final Map<String, Integer> courseColumns;
+
+    private RankingExportPlan(List<String> courseNames, Map<String, Integer> courseColumns) {
+        this.courseNames = courseNames;
+        this.courseColumns = courseColumns;
+    }
+
+    /**
+     * 扫描一次学生列表，按出现顺序为课程名分配列下标
+     */
+    public static RankingExportPlan of(List<Student> students) {
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        for (Student s : students) {
+            if (s.getCourses() == null) continue;
+            for (Course c : s.getCourses()) {
+                if (!columns.containsKey(c.getCourseName())) {
+                    columns.put(c.getCourseName(), names.size());
+                    names.add(c.getCourseName());
+                }
+            }
+        }
+        return new RankingExportPlan(Collections.unmodifiableList(names), columns);
+    }
+
+    public List<String> getCourseNames() {
+        return courseNames;
+    }
+
+    public int getCourseCount() {
+        return courseNames.size();
+    }
+
+    /**
+     * 完整表头：固定列 + 课程列 + GPA 列
+     */
+    public List<String> headers() {
+        List<String> headers = new ArrayList<>(FIXED_HEADERS.length + courseNames.size() + 1);
+        headers.addAll(Arrays.asList(FIXED_HEADERS));
+        headers.addAll(courseNames);
+        headers.add(GPA_HEADER);
+        return headers;
+    }
+
+    public int columnCount() {
+        return FIXED_HEADERS.length + courseNames.size() + 1;
+    }
+
+    /**
+     * 创建一行成绩缓冲区；每个写出线程各持有一个并在行间复用
+     */
+    public double[] newRowBuffer() {
+        return new double[courseNames.size()];
+    }
+
+    /**
+     * 将学生成绩填入缓冲区，未修读的课程为 NaN。
+     * 同名课程重复出现时保留第一条（与之前 toMap 合并规则一致）。
+     */
+    public double[] fillScores(Student student, double[] row) {
+        Arrays.fill(row, Double.NaN);
+        if (student.getCourses() == null) return row;
+        for (Course c : student.getCourses()) {
+            Integer col = courseColumns.get(c.getCourseName());
+            if (col != null && Double.isNaN(row[col])) {
+                row[col] = c.getScore();
+            }
+        }
+        return row;
+    }
+
+    /**
+     * 按固定小数位追加数值，输出与 String.format(Locale.CHINA, "%.Nf") 相同：按十进制表示四舍五入
+     * （如 1.005 保留两位为 1.01），负数舍入为零时保留负号；NaN 与无穷输出 "NaN"、"Infinity"、"-Infinity"
+     */
+    static void appendFixed(StringBuilder sb, double value, int scale) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            sb.append(value);
+            return;
+        }
+        BigDecimal rounded = BigDecimal.valueOf(value).setScale(scale, RoundingMode.HALF_UP);
+        if (rounded.signum() == 0 && Double.compare(value, 0.0) < 0) {
+            sb.append('-');
+        }
+        sb.append(rounded.toPlainString());
+    }
+}
@@ -0,0 +1,253 @@
+package service;
+
+import model.Course;
+import model.Student;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * 排名服务
+ * 统一计算 GPA 并列排名（GPA 相同名次相同，下一名次跳过并列人数，如 1,2,2,4）。
+ * 一次按 GPA 降序排序即可同时得到全体排名与所有专业排名；结果缓存到
+ * 影响 GPA 的修改发生为止，修改只使对应专业（以及全体排名）失效。
+ */
+public class RankingService {
+
+    /**
+     * 一个范围（全体或某专业）的排名结果。顺序与名次创建后不变，但其中的学生是名单中的实时对象，
+     * 之后的编辑（如课程管理）会直接改动它们；交给后台线程前先用 {@link #snapshot()} 取副本
+     */
+    public static final class Ranking {
+        private final List<Student> students;
+        private final int[] ranks;
+        private final double averageGpa;
+        private final int scoredCount;
+
+        private Ranking(List<Student> students, int[] ranks, double averageGpa, int scoredCount) {
+            this.students = Collections.unmodifiableList(students);
+            this.ranks = ranks;
+            this.averageGpa = averageGpa;
+            this.scoredCount = scoredCount;
+        }
+
+        /** 按 GPA 降序排列的学生（只读） */
+        public List<Student> getStudents() {
+            return students;
+        }
+
+        public Student get(int index) {
+            return students.get(index);
+        }
+
+        /** 第 index 位学生的并列排名 */
+        public int getRank(int index) {
+            return ranks[index];
+        }
+
+        public int size() {
+            return students.size();
+        }
+
+        public boolean isEmpty() {
+            return students.isEmpty();
+        }
+
+        public double getAverageGpa() {
+            return averageGpa;
+        }
+
+        /** 已录入成绩（课程数 > 0）的人数 */
+        public int getScoredCount() {
+            return scoredCount;
+        }
+
+        /**
+         * 复制每个学生（含课程）得到的排名副本，之后对名单的修改不影响副本，可交给后台导出线程
+         */
+        public Ranking snapshot() {
+            List<Student> copies = new ArrayList<>(students.size());
+            for (Student s : students) {
+                Student copy = new Student(s.getStudentId(), s.getName(), s.getGender(), s.getAge(),
+                        s.getMajor(), s.getClassNumber(), s.getPhoneNumber());
+                List<Course> courses = new ArrayList<>(s.getCourseCount());
+                for (Course c : s.getCourses()) {
+                    courses.add(new Course(c.getCourseName(), c.getCredit(), c.getScore()));
+                }
+                copy.setCourses(courses);
+                copies.add(copy);
+            }
+            return new Ranking(copies, ranks, averageGpa, scoredCount);
+        }
+    }
+
+    /**
+     * 逐个追加已排序学生并计算并列排名
+     */
+    private static final class Builder {
+        private final List<Student> students = new ArrayList<>();
+        private int[] ranks = new int[16];
+        private double prevGpa = -1;
+        private int actualRank = 1;
+        private double gpaSum;
+        private int scoredCount;
+
+        void add(Student s) {
+            int position = students.size() + 1;
+            if (s.getGpa() != prevGpa) {
+                actualRank = position;
+                prevGpa = s.getGpa();
+            }
+            if (students.size() == ranks.length) {
+                ranks = Arrays.copyOf(ranks, ranks.length * 2);
+            }
+            ranks[students.size()] = actualRank;
+            students.add(s);
+            gpaSum += s.getGpa();
+            if (s.getCourseCount() > 0) scoredCount++;
+        }
+
+        Ranking build() {
+            int n = students.size();
+            return new Ranking(students, Arrays.copyOf(ranks, n), n == 0 ? 0 : gpaSum / n, scoredCount);
+        }
+    }
+
+    private static final Comparator<Student> BY_GPA_DESC = (a, b) -> Double.compare(b.getGpa(), a.getGpa());
+
+    private final Supplier<List<Student>> roster;
+    private Ranking overall;
+    private final Map<String, Ranking> majors = new HashMap<>();
+    // 缓存命中统计（方法均已同步）
+    private long hits;
+    private long misses;
+
+    /**
+     * @param roster 提供当前学生名单（由 StudentManager 持有）
+     */
+    public RankingService(Supplier<List<Student>> roster) {
+        this.roster = roster;
+    }
+
+    /**
+     * 全体学生排名
+     */
+    public synchronized Ranking getOverall() {
+        if (overall == null) {
+            misses++;
+            rebuildAll();
+        } else {
+            hits++;
+        }
+        return overall;
+    }
+
+    /**
+     * 指定专业排名；仅该专业失效时只重排该专业
+     */
+    public synchronized Ranking getMajor(String major) {
+        Ranking ranking = majors.get(major);
+        if (ranking != null) {
+            hits++;
+            return ranking;
+        }
+        misses++;
+        if (overall == null && majors.isEmpty()) {
+            rebuildAll();
+            ranking = majors.get(major);
+            return ranking != null ? ranking : new Builder().build();
+        }
+        long start = Metrics.start();
+        ServiceEvents.ExportPhase event = ServiceEvents.exportPhase(null, "rank");
+        List<Student> members = new ArrayList<>();
+        for (Student s : roster.get()) {
+            if (s.getMajor().equals(major)) members.add(s);
+        }
+        members.sort(BY_GPA_DESC);
+        Builder builder = new Builder();
+        for (Student s : members) builder.add(s);
+        ranking = builder.build();
+        if (!ranking.isEmpty()) {
+            majors.put(major, ranking);
+        }
+        Metrics.stop("ranking.major", start);
+        event.sheet = major;
+        event.rows = ranking.size();
+        event.commit();
+        return ranking;
+    }
+
+    /**
+     * 所有专业的排名（按专业名排序）
+     */
+    public synchronized SortedMap<String, Ranking> getAllMajors() {
+        if (overall == null) {
+            misses++;
+            rebuildAll();
+        } else {
+            hits++;
+        }
+        return Collections.unmodifiableSortedMap(new TreeMap<>(majors));
+    }
+
+    /**
+     * 某专业学生的 GPA 或专业归属发生变化
+     */
+    public synchronized void invalidateMajor(String major) {
+        if (major != null) majors.remove(major);
+        overall = null;
+    }
+
+    /**
+     * 名单整体变化（重新加载等）
+     */
+    public synchronized void invalidateAll() {
+        majors.clear();
+        overall = null;
+    }
+
+    /**
+     * 已缓存的专业排名数
+     */
+    public synchronized int getCachedMajorCount() {
+        return majors.size();
+    }
+
+    /**
+     * 缓存命中次数
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * 缓存未命中（重新计算）次数
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * 一次排序，同时生成全体排名与全部专业排名（有序全集按专业稳定拆分，组内仍为 GPA 降序）
+     */
+    private void rebuildAll() {
+        long start = Metrics.start();
+        ServiceEvents.ExportPhase event = ServiceEvents.exportPhase(null, "rank");
+        List<Student> all = new ArrayList<>(roster.get());
+        all.sort(BY_GPA_DESC);
+        Builder overallBuilder = new Builder();
+        Map<String, Builder> majorBuilders = new HashMap<>();
+        for (Student s : all) {
+            overallBuilder.add(s);
+            majorBuilders.computeIfAbsent(s.getMajor(), k -> new Builder()).add(s);
+        }
+        overall = overallBuilder.build();
+        majors.clear();
+        for (Map.Entry<String, Builder> e : majorBuilders.entrySet()) {
+            majors.put(e.getKey(), e.getValue().build());
+        }
+        Metrics.stop("ranking.rebuild", start);
+        event.rows = all.size();
+        event.commit();
+    }
+}
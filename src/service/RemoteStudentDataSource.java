@@ -0,0 +1,719 @@
+package service;
+
+import model.DuplicateCoursePolicy;
+import model.Student;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 远程数据源：通过本机回环地址访问持有数据文件的服务进程（server.SimsServer，HTTP/JSON）。
+ * 全部学生（含课程）缓存在本地快照中，以服务端数据版本（X-Sims-Version 响应头）判断是否过期：
+ * 距上次确认超过 {@link #VERSION_CHECK_MILLIS} 才请求一次 /api/version；本进程的增删改在版本
+ * 连续时直接修补快照，不重新下载。快照按页获取，同时请求 {@link #MAX_CONCURRENT_PAGES} 页。
+ * 排名基于快照在本地计算（与服务端同一套 {@link RankingService}），导出因此无需再访问服务；
+ * 搜索、统计、按学号查找与成绩导入由服务端执行。方法阻塞调用线程，界面经 {@link #async} 在后台执行。
+ * 令牌过期（401）时用登录时的用户名密码重新登录一次。
+ */
+public class RemoteStudentDataSource implements StudentDataSource {
+    /** 每页条数（服务端上限） */
+    static final int PAGE_SIZE = 1000;
+    /** 同时请求的页数 */
+    static final int MAX_CONCURRENT_PAGES = 4;
+    /** 快照版本确认间隔 */
+    static final long VERSION_CHECK_MILLIS = 1000;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration IMPORT_TIMEOUT = Duration.ofMinutes(30);
+    private static final String VERSION_HEADER = "X-Sims-Version";
+
+    private final URI base;
+    private final String username;
+    private final String password;
+    private final HttpClient client;
+    private final ExecutorService executor;
+    private volatile String token;
+
+    // 快照与排序方式（在 this 上同步，网络请求不在锁内进行）；快照保持服务端顺序，排名按此顺序计算
+    private List<Student> snapshot;
+    private long snapshotVersion = -1;
+    private long lastChecked;
+    private volatile long knownVersion = -1;
+    private Comparator<Student> order;
+    private final RankingService rankingService = new RankingService(() -> snapshot);
+    private final StudentEventPublisher events = new StudentEventPublisher();
+
+    private RemoteStudentDataSource(URI base, String username, String password) {
+        this.base = base;
+        this.username = username;
+        this.password = password;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(2, r -> {
+            Thread t = new Thread(r, "sims-remote-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        // HttpClient 使用自己的默认线程池：后台调用线程会阻塞等待响应，共用同一线程池可能互相等待
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    /**
+     * 连接服务并登录
+     * @param url 服务地址，如 http://127.0.0.1:8080
+     * @throws IOException 无法连接或登录失败
+     */
+    public static RemoteStudentDataSource connect(String url, String username, String password) throws IOException {
+        RemoteStudentDataSource source = new RemoteStudentDataSource(
+                URI.create(url.endsWith("/") ? url : url + "/"), username, password);
+        try {
+            source.login();
+        } catch (RuntimeException e) {
+            source.executor.shutdown();
+            throw new IOException("无法登录服务 " + url + ": " + e.getMessage(), e);
+        }
+        System.out.println("已连接服务: " + url);
+        return source;
+    }
+
+    public String getServerUrl() {
+        return base.toString();
+    }
+
+    /**
+     * 本进程发起的修改产生的变更事件（其他客户端的修改不会推送）
+     */
+    @Override
+    public StudentEventPublisher getEvents() {
+        return events;
+    }
+
+    /**
+     * 释放后台线程
+     */
+    public void close() {
+        executor.shutdown();
+    }
+
+    @Override
+    public <T> CompletableFuture<T> async(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(call, executor);
+    }
+
+    // ---------------------------------------------------------------- 查询
+
+    @Override
+    public int getStudentCount() {
+        synchronized (this) {
+            if (snapshot != null && System.currentTimeMillis() - lastChecked <= VERSION_CHECK_MILLIS
+                    && knownVersion == snapshotVersion) {
+                return snapshot.size();
+            }
+        }
+        Map<?, ?> version = (Map<?, ?>) get("api/version");
+        synchronized (this) {
+            lastChecked = System.currentTimeMillis();
+        }
+        return ((Number) version.get("students")).intValue();
+    }
+
+    @Override
+    public List<Student> getAllStudents() {
+        List<Student> current = snapshot();
+        synchronized (this) {
+            List<Student> all = new ArrayList<>(current);
+            if (order != null) {
+                all.sort(order);
+            }
+            return all;
+        }
+    }
+
+    @Override
+    public List<Student> getStudents(int offset, int limit) {
+        Map<?, ?> page = (Map<?, ?>) get("api/students?courses=true&offset=" + Math.max(0, offset)
+                + "&size=" + Math.max(1, Math.min(limit, PAGE_SIZE)));
+        return students(page);
+    }
+
+    @Override
+    public Student findStudentById(String studentId) {
+        Object json = call("GET", "api/students/" + encode(studentId), null, REQUEST_TIMEOUT, true);
+        return json == null ? null : Student.fromMap((Map<?, ?>) json);
+    }
+
+    @Override
+    public List<Student> searchByName(String name) {
+        return searchBy("name", name);
+    }
+
+    @Override
+    public List<Student> searchByMajor(String major) {
+        return searchBy("major", major);
+    }
+
+    @Override
+    public List<Student> searchByClass(String classNumber) {
+        return searchBy("class", classNumber);
+    }
+
+    @Override
+    public List<Student> search(String keyword) {
+        return searchBy("all", keyword);
+    }
+
+    private List<Student> searchBy(String field, String keyword) {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            return getAllStudents();
+        }
+        return fetchAll("api/students?courses=true&field=" + field + "&q=" + encode(keyword)).students;
+    }
+
+    /**
+     * 统计信息；JSON 整数还原为 Long，与进程内实现的类型一致
+     */
+    @Override
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (Map.Entry<?, ?> e : ((Map<?, ?>) get("api/stats")).entrySet()) {
+            Object value = e.getValue();
+            if (value instanceof Map) {
+                Map<String, Object> nested = new LinkedHashMap<>();
+                for (Map.Entry<?, ?> item : ((Map<?, ?>) value).entrySet()) {
+                    nested.put(item.getKey().toString(), wholeToLong(item.getValue()));
+                }
+                value = nested;
+            }
+            stats.put(e.getKey().toString(), wholeToLong(value));
+        }
+        return stats;
+    }
+
+    @Override
+    public List<String> getAllMajors() {
+        List<String> majors = new ArrayList<>();
+        for (Object major : (List<?>) get("api/majors")) {
+            majors.add(major.toString());
+        }
+        return majors;
+    }
+
+    @Override
+    public RankingService.Ranking getMajorRanking(String major) {
+        snapshot();
+        synchronized (this) {
+            return rankingService.getMajor(major);
+        }
+    }
+
+    @Override
+    public RankingService.Ranking getOverallRanking() {
+        snapshot();
+        synchronized (this) {
+            return rankingService.getOverall();
+        }
+    }
+
+    @Override
+    public SortedMap<String, RankingService.Ranking> getAllMajorRankings() {
+        snapshot();
+        synchronized (this) {
+            return rankingService.getAllMajors();
+        }
+    }
+
+    // ---------------------------------------------------------------- 排序（只影响本地显示顺序）
+
+    @Override
+    public synchronized void sortByStudentId() {
+        order = Comparator.comparing(Student::getStudentId);
+    }
+
+    @Override
+    public synchronized void sortByName() {
+        order = Comparator.comparing(Student::getName);
+    }
+
+    @Override
+    public synchronized void sortByAge() {
+        order = Comparator.comparingInt(Student::getAge);
+    }
+
+    @Override
+    public synchronized void sortByGPA() {
+        order = (s1, s2) -> Double.compare(s2.getGpa(), s1.getGpa());
+    }
+
+    // ---------------------------------------------------------------- 修改
+
+    @Override
+    public boolean addStudent(Student student) {
+        if (student == null) {
+            throw new IllegalArgumentException("学生对象不能为空");
+        }
+        long before = knownVersion;
+        call("POST", "api/students", student.toMap(true), REQUEST_TIMEOUT, false);
+        patch(before, null, student);
+        events.publish(new StudentEvent.StudentAdded(student));
+        return true;
+    }
+
+    @Override
+    public boolean updateStudent(Student updatedStudent) {
+        if (updatedStudent == null) {
+            throw new IllegalArgumentException("学生对象不能为空");
+        }
+        return put(updatedStudent, false);
+    }
+
+    @Override
+    public boolean saveCourseChanges(Student student) {
+        student.calculateGPA();
+        return put(student, true);
+    }
+
+    private boolean put(Student student, boolean coursesOnly) {
+        Student previous = cached(student.getStudentId());
+        long before = knownVersion;
+        Object json = call("PUT", "api/students/" + encode(student.getStudentId()), student.toMap(true),
+                REQUEST_TIMEOUT, true);
+        if (json == null) {
+            return false;
+        }
+        patch(before, student.getStudentId(), student);
+        events.publish(coursesOnly ? new StudentEvent.CoursesChanged(student)
+                : new StudentEvent.StudentUpdated(previous != null ? previous : student, student));
+        return true;
+    }
+
+    @Override
+    public boolean deleteStudent(String studentId) {
+        Student previous = cached(studentId);
+        if (previous == null) {
+            previous = findStudentById(studentId);
+        }
+        long before = knownVersion;
+        Object json = call("DELETE", "api/students/" + encode(studentId), null, REQUEST_TIMEOUT, true);
+        if (json == null) {
+            return false;
+        }
+        patch(before, studentId, null);
+        if (previous != null) {
+            events.publish(new StudentEvent.StudentRemoved(previous));
+        }
+        return true;
+    }
+
+    /**
+     * 快照中的学生（不触发重新获取），不在快照中返回 null
+     */
+    private synchronized Student cached(String studentId) {
+        if (snapshot != null) {
+            for (Student s : snapshot) {
+                if (s.getStudentId().equals(studentId)) return s;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean backupData() {
+        try {
+            call("POST", "api/backup", null, REQUEST_TIMEOUT, false);
+            return true;
+        } catch (RuntimeException e) {
+            System.err.println("备份失败: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 成绩导入：逐个上传成绩文件（上传字节计入读取进度），再由服务端合并导入、只保存一次。
+     * 服务端只返回前若干条问题行，写入本地报告文件
+     */
+    @Override
+    public ScoreImporter.BatchResult importScores(List<String> filePaths, ScoreImporter.Mode mode,
+                                                  DuplicateCoursePolicy policy, File reportFile,
+                                                  boolean reimport, ImportListener listener) {
+        long totalBytes = 0;
+        for (String path : filePaths) {
+            totalBytes += new File(path).length();
+        }
+        listener.onStart(totalBytes);
+        List<String> ids = new ArrayList<>(filePaths.size());
+        try {
+            for (String path : filePaths) {
+                if (listener.isCancelled()) {
+                    return failedImport(filePaths, mode, policy, reportFile, "导入已取消", true);
+                }
+                ids.add(upload(new File(path), listener));
+            }
+            if (listener.isCancelled()) {
+                return failedImport(filePaths, mode, policy, reportFile, "导入已取消", true);
+            }
+        } catch (RuntimeException e) {
+            return failedImport(filePaths, mode, policy, reportFile, "上传成绩文件失败: " + e.getMessage(), false);
+        }
+
+        Map<?, ?> summary = (Map<?, ?>) call("POST", "api/import?uploads=" + String.join(",", ids)
+                + "&mode=" + mode.name() + "&policy=" + policy.name() + "&reimport=" + reimport,
+                null, IMPORT_TIMEOUT, false);
+        ScoreImporter.BatchResult batch = ScoreImporter.BatchResult.fromSummary(summary, filePaths, reportFile);
+        ScoreImporter.ImportResult total = batch.getTotal();
+        listener.onRowsParsed(total.getLinesRead());
+        listener.onRowsApplied(total.getImportedCount());
+        List<String> problems = new ArrayList<>();
+        if (summary.get("problems") instanceof List) {
+            for (Object problem : (List<?>) summary.get("problems")) {
+                problems.add(problem.toString());
+            }
+        }
+        if (!problems.isEmpty()) {
+            listener.onProblems(problems);
+        }
+        writeReport(reportFile, filePaths, total, problems);
+        if (total.isCommitted() && total.getStudentsUpdated() > 0) {
+            // 服务端不返回涉及的专业，视为全部专业
+            events.publish(new StudentEvent.BulkImportCompleted(Collections.emptySet(), total.getStudentsUpdated()));
+        }
+        System.out.println("成绩导入（服务端）: " + total);
+        return batch;
+    }
+
+    private String upload(File file, ImportListener listener) {
+        HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.ofInputStream(() -> {
+            try {
+                return new FilterInputStream(Files.newInputStream(file.toPath())) {
+                    @Override
+                    public int read(byte[] b, int off, int len) throws IOException {
+                        int n = super.read(b, off, len);
+                        if (n > 0) listener.onBytesRead(n);
+                        return n;
+                    }
+                };
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        Map<?, ?> json = (Map<?, ?>) send(() -> request("api/uploads?name=" + encode(file.getName()), IMPORT_TIMEOUT)
+                .POST(body).build(), false);
+        return json.get("upload").toString();
+    }
+
+    private static ScoreImporter.BatchResult failedImport(List<String> filePaths, ScoreImporter.Mode mode,
+                                                          DuplicateCoursePolicy policy, File reportFile,
+                                                          String message, boolean cancelled) {
+        Map<String, Object> total = new LinkedHashMap<>();
+        total.put("mode", mode.name());
+        total.put("policy", policy.name());
+        total.put("cancelled", cancelled);
+        total.put("failure", message);
+        if (!cancelled) {
+            System.err.println(message);
+        }
+        return ScoreImporter.BatchResult.fromSummary(Map.of("total", total), filePaths, reportFile);
+    }
+
+    private static void writeReport(File reportFile, List<String> filePaths, ScoreImporter.ImportResult total,
+                                    List<String> problems) {
+        if (reportFile == null) {
+            for (String problem : problems) {
+                System.err.println(problem);
+            }
+            return;
+        }
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(reportFile), StandardCharsets.UTF_8))) {
+            writer.write("# 成绩导入校验报告（服务端导入，仅列出前 " + problems.size() + " 条问题行）");
+            writer.newLine();
+            for (String path : filePaths) {
+                writer.write("# 文件: " + path);
+                writer.newLine();
+            }
+            for (String problem : problems) {
+                writer.write(problem);
+                writer.newLine();
+            }
+            writer.write("# " + total);
+            writer.newLine();
+        } catch (IOException e) {
+            System.err.println("写入校验报告失败: " + e.getMessage());
+        }
+    }
+
+    // ---------------------------------------------------------------- 快照
+
+    /**
+     * 当前快照；版本过期或尚未下载时重新获取。请求在锁外进行，获取完成后在锁内替换快照，
+     * 获取期间已被本进程修改修补到更新版本的快照不会被较旧的结果覆盖
+     */
+    private List<Student> snapshot() {
+        boolean check;
+        synchronized (this) {
+            check = snapshot != null && System.currentTimeMillis() - lastChecked > VERSION_CHECK_MILLIS;
+        }
+        if (check) {
+            get("api/version");
+            synchronized (this) {
+                lastChecked = System.currentTimeMillis();
+            }
+        }
+        synchronized (this) {
+            if (snapshot != null && knownVersion == snapshotVersion) {
+                return snapshot;
+            }
+        }
+        Fetched fetched = fetchAll("api/students?courses=true");
+        synchronized (this) {
+            if (snapshot == null || fetched.version >= snapshotVersion) {
+                snapshot = fetched.students;
+                snapshotVersion = fetched.version;
+                lastChecked = System.currentTimeMillis();
+                rankingService.invalidateAll();
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * 本进程修改成功后修补快照：仅当修改前快照是最新的、且服务端版本只前进了一步（即没有
+     * 其他客户端的修改夹在中间）时直接修补，否则留待下次访问时重新获取
+     * @param removedId 被替换或删除的学号，新增时为 null
+     * @param added 新增或替换后的学生，删除时为 null
+     */
+    private synchronized void patch(long before, String removedId, Student added) {
+        if (snapshot == null || before != snapshotVersion || knownVersion != before + 1) {
+            return;
+        }
+        int index = -1;
+        if (removedId != null) {
+            for (int i = 0; i < snapshot.size(); i++) {
+                if (snapshot.get(i).getStudentId().equals(removedId)) {
+                    index = i;
+                    break;
+                }
+            }
+            if (index < 0) {
+                return;
+            }
+            rankingService.invalidateMajor(snapshot.get(index).getMajor());
+        }
+        if (added != null) {
+            rankingService.invalidateMajor(added.getMajor());
+        }
+        if (index >= 0 && added != null) {
+            snapshot.set(index, added);
+        } else if (index >= 0) {
+            snapshot.remove(index);
+        } else {
+            snapshot.add(added);
+        }
+        snapshotVersion = knownVersion;
+    }
+
+    private static final class Fetched {
+        final List<Student> students;
+        final long version;
+
+        Fetched(List<Student> students, long version) {
+            this.students = students;
+            this.version = version;
+        }
+    }
+
+    /**
+     * 分页获取全部结果：第一页得到总数后其余页并发请求；各页版本不一致（获取期间有修改）时重试，
+     * 连续三次不一致则失败，不返回混合了不同版本的数据
+     */
+    private Fetched fetchAll(String path) {
+        for (int attempt = 0; ; attempt++) {
+            HttpResponse<String> first = sendRaw(() -> request(path + "&page=0&size=" + PAGE_SIZE, REQUEST_TIMEOUT)
+                    .GET().build());
+            Map<?, ?> firstPage = (Map<?, ?>) body(first, false);
+            long version = versionOf(first);
+            int total = ((Number) firstPage.get("total")).intValue();
+            List<Student> all = new ArrayList<>(total);
+            all.addAll(students(firstPage));
+            int pages = (total + PAGE_SIZE - 1) / PAGE_SIZE;
+            boolean consistent = true;
+            for (int from = 1; from < pages && consistent; from += MAX_CONCURRENT_PAGES) {
+                List<CompletableFuture<HttpResponse<String>>> window = new ArrayList<>();
+                for (int page = from; page < Math.min(pages, from + MAX_CONCURRENT_PAGES); page++) {
+                    HttpRequest request = request(path + "&page=" + page + "&size=" + PAGE_SIZE, REQUEST_TIMEOUT)
+                            .GET().build();
+                    window.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)));
+                }
+                for (CompletableFuture<HttpResponse<String>> future : window) {
+                    HttpResponse<String> response;
+                    try {
+                        response = future.join();
+                    } catch (CompletionException e) {
+                        throw new UncheckedIOException("无法访问服务 " + base + ": " + e.getCause().getMessage(),
+                                e.getCause() instanceof IOException ? (IOException) e.getCause()
+                                        : new IOException(e.getCause()));
+                    }
+                    all.addAll(students((Map<?, ?>) body(response, false)));
+                    consistent &= versionOf(response) == version;
+                }
+            }
+            if (consistent) {
+                return new Fetched(all, version);
+            }
+            if (attempt >= 2) {
+                throw new IllegalStateException("服务端数据在获取期间持续变化，请稍后重试");
+            }
+        }
+    }
+
+    private static List<Student> students(Map<?, ?> page) {
+        List<?> items = (List<?>) page.get("items");
+        List<Student> students = new ArrayList<>(items.size());
+        for (Object item : items) {
+            students.add(Student.fromMap((Map<?, ?>) item));
+        }
+        return students;
+    }
+
+    // ---------------------------------------------------------------- HTTP
+
+    private void login() {
+        Map<String, Object> credentials = new LinkedHashMap<>();
+        credentials.put("username", username);
+        credentials.put("password", password);
+        HttpRequest request = HttpRequest.newBuilder(base.resolve("api/login"))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json; charset=UTF-8")
+                .POST(HttpRequest.BodyPublishers.ofString(Json.write(credentials), StandardCharsets.UTF_8))
+                .build();
+        Map<?, ?> json = (Map<?, ?>) body(execute(request), false);
+        token = json.get("token").toString();
+    }
+
+    private HttpRequest.Builder request(String path, Duration timeout) {
+        return HttpRequest.newBuilder(base.resolve(path))
+                .timeout(timeout)
+                .header("Authorization", "Bearer " + token);
+    }
+
+    private Object get(String path) {
+        return call("GET", path, null, REQUEST_TIMEOUT, false);
+    }
+
+    private Object call(String method, String path, Object jsonBody, Duration timeout, boolean notFoundAsNull) {
+        return send(() -> {
+            HttpRequest.BodyPublisher body = jsonBody == null ? HttpRequest.BodyPublishers.noBody()
+                    : HttpRequest.BodyPublishers.ofString(Json.write(jsonBody), StandardCharsets.UTF_8);
+            return request(path, timeout)
+                    .header("Content-Type", "application/json; charset=UTF-8")
+                    .method(method, body)
+                    .build();
+        }, notFoundAsNull);
+    }
+
+    private Object send(Supplier<HttpRequest> request, boolean notFoundAsNull) {
+        return body(sendRaw(request), notFoundAsNull);
+    }
+
+    /**
+     * 发送请求；令牌过期时重新登录并重发一次
+     */
+    private HttpResponse<String> sendRaw(Supplier<HttpRequest> request) {
+        HttpResponse<String> response = execute(request.get());
+        if (response.statusCode() == 401) {
+            login();
+            response = execute(request.get());
+        }
+        return response;
+    }
+
+    private HttpResponse<String> execute(HttpRequest request) {
+        try {
+            HttpResponse<String> response = client.send(request,
+                    HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            versionOf(response);
+            return response;
+        } catch (IOException e) {
+            throw new UncheckedIOException("无法访问服务 " + base + ": " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("请求被中断");
+        }
+    }
+
+    /**
+     * 解析响应体；错误响应转换为异常：400/409 为 IllegalArgumentException（与进程内实现的参数错误一致），
+     * 其余为 IllegalStateException
+     */
+    private static Object body(HttpResponse<String> response, boolean notFoundAsNull) {
+        int status = response.statusCode();
+        if (status == 404 && notFoundAsNull) {
+            return null;
+        }
+        String text = response.body();
+        Object json;
+        try {
+            json = text == null || text.isEmpty() ? null : Json.parse(text);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("服务返回了无法解析的内容（HTTP " + status + "）");
+        }
+        if (status >= 200 && status < 300) {
+            return json;
+        }
+        String message = json instanceof Map && ((Map<?, ?>) json).get("error") != null
+                ? ((Map<?, ?>) json).get("error").toString() : "HTTP " + status;
+        if (status == 400 || status == 409) {
+            throw new IllegalArgumentException(message);
+        }
+        throw new IllegalStateException(message);
+    }
+
+    /**
+     * 读取响应中的数据版本并记录最新值
+     */
+    private long versionOf(HttpResponse<?> response) {
+        long version = response.headers().firstValue(VERSION_HEADER).map(Long::parseLong).orElse(-1L);
+        if (version > knownVersion) {
+            knownVersion = version;
+        }
+        return version;
+    }
+
+    private static Object wholeToLong(Object value) {
+        if (value instanceof Double && (Double) value == Math.rint((Double) value)) {
+            return ((Double) value).longValue();
+        }
+        return value;
+    }
+
+    private static String encode(String s) {
+        return URLEncoder.encode(s, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+}
@@ -0,0 +1,1198 @@
+package service;
+
+import model.Course;
+import model.DuplicateCoursePolicy;
+import model.Student;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 成绩导入引擎（流水线）
+ * <ol>
+ *     <li>读取阶段：独立线程把文件内存映射并按行边界切片（见 {@link MappedScoreReader}）；
+ *     .xlsx 文件由 StAX 流式读取工作表，按行块交出（见 {@link XlsxScoreReader}）；</li>
+ *     <li>解析阶段：线程池并行在 UTF-8 字节上直接解析各片段，只为学号与课程名构造字符串；</li>
+ *     <li>校验阶段：调用线程按批次顺序单线程消费，核对学号与重复课程，合格记录写入紧凑暂存区，
+ *     问题行写入报告；</li>
+ *     <li>应用阶段：每个学生只追加一次课程、只重算一次 GPA，并只保存一次。</li>
+ * </ol>
+ * 读取与解析之间使用有界队列，内存占用与文件大小无关：暂存区只保存合格记录
+ * （学生引用 + 课程名编号 + 两个 double），问题行直接写出到报告文件。
+ * <p>
+ * 三种模式：{@link Mode#BEST_EFFORT} 跳过问题行导入其余记录（原有行为）；
+ * {@link Mode#DRY_RUN} 只校验并生成报告，不做任何修改；
+ * {@link Mode#ALL_OR_NOTHING} 全部记录通过校验才一次性应用，保存失败时回滚内存修改。
+ * <p>
+ * 同名课程按 {@link DuplicateCoursePolicy} 处理：文件内重复在暂存区按 (学生, 课程) 键 O(1) 合并，
+ * 与已有课程的重复在应用时通过学生的课程名索引 O(1) 合并。
+ * <p>
+ * 配置了 {@link ImportLedger} 时：内容与已完整导入过的文件相同则直接跳过；
+ * 同一文件修改后再次导入，只应用与上次记录指纹不同的行。
+ * <p>
+ * 多文件导入（{@link #importFiles}）：各文件的读取线程在有界线程池中并发运行，共用同一个解析线程池；
+ * 校验仍按文件顺序单线程进行（结果与逐个导入一致、可复现），所有文件的合格记录进入同一暂存区，
+ * 只做一次应用与一次保存。跨文件的同名课程与文件内重复同样按策略合并。
+ */
+public class ScoreImporter {
+    /** 推送给监听方的问题行上限，其余只写入报告文件 */
+    private static final int MAX_STREAMED_PROBLEMS = 1000;
+    /** 每批推送的问题行数 */
+    private static final int PROBLEM_BATCH = 100;
+    /** 应用阶段上报进度的间隔（课程数） */
+    private static final int APPLY_REPORT_EVERY = 4096;
+    /** 多文件导入时同时读取的文件数上限 */
+    private static final int MAX_CONCURRENT_FILES = 4;
+    /** 读取结束标记 */
+    private static final Future<ParsedBatch> END_OF_INPUT = CompletableFuture.completedFuture(null);
+
+    /**
+     * 导入模式
+     */
+    public enum Mode {
+        /** 跳过问题行，导入其余记录 */
+        BEST_EFFORT("尽量导入"),
+        /** 仅校验并输出报告，不修改数据 */
+        DRY_RUN("仅校验"),
+        /** 全部通过校验才导入，否则不导入任何记录 */
+        ALL_OR_NOTHING("全部或不导入");
+
+        private final String displayName;
+
+        Mode(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    /**
+     * 导入结果汇总
+     */
+    public static class ImportResult {
+        private final Mode mode;
+        private final DuplicateCoursePolicy policy;
+        private int validCount;
+        private int importedCount;
+        private int invalidCount;
+        private int unknownStudentCount;
+        private int duplicateCount;
+        private int studentsUpdated;
+        private int addedCount;
+        private int replacedCount;
+        private int keptCount;
+        private long linesRead;
+        private long elapsedMillis;
+        private int unchangedCount;
+        private boolean committed;
+        private boolean skipped;
+        private boolean cancelled;
+        private long previousImportTime;
+        private String failureMessage;
+        private File reportFile;
+        private String filePath;
+
+        ImportResult(Mode mode, DuplicateCoursePolicy policy) {
+            this.mode = mode;
+            this.policy = policy;
+        }
+
+        public Mode getMode() {
+            return mode;
+        }
+
+        /** 同名课程处理策略 */
+        public DuplicateCoursePolicy getPolicy() {
+            return policy;
+        }
+
+        /** 新增的课程数 */
+        public int getAddedCount() {
+            return addedCount;
+        }
+
+        /** 取代已有同名课程的数量 */
+        public int getReplacedCount() {
+            return replacedCount;
+        }
+
+        /** 因策略保留原记录（未取代）的数量 */
+        public int getKeptCount() {
+            return keptCount;
+        }
+
+        /** 通过校验的成绩条数 */
+        public int getValidCount() {
+            return validCount;
+        }
+
+        /** 实际导入的成绩条数（仅校验或整体回退时为 0） */
+        public int getImportedCount() {
+            return importedCount;
+        }
+
+        /** 格式错误被跳过的行数 */
+        public int getInvalidCount() {
+            return invalidCount;
+        }
+
+        /** 学号不存在被跳过的行数 */
+        public int getUnknownStudentCount() {
+            return unknownStudentCount;
+        }
+
+        /** 重复课程行数：追加策略下文件内重复或与已有课程同名（仅校验类模式检查），覆盖策略下文件内重复 */
+        public int getDuplicateCount() {
+            return duplicateCount;
+        }
+
+        /** 问题行总数 */
+        public int getProblemCount() {
+            return invalidCount + unknownStudentCount + duplicateCount;
+        }
+
+        /** 课程发生变化的学生数 */
+        public int getStudentsUpdated() {
+            return studentsUpdated;
+        }
+
+        public long getLinesRead() {
+            return linesRead;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /** 与上次导入相同、因此未再应用的行数 */
+        public int getUnchangedCount() {
+            return unchangedCount;
+        }
+
+        /** 文件内容已导入过，整体跳过 */
+        public boolean isSkipped() {
+            return skipped;
+        }
+
+        /** 导入被取消，未应用任何修改 */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /** 整体跳过时，相同内容上次导入的时间（毫秒） */
+        public long getPreviousImportTime() {
+            return previousImportTime;
+        }
+
+        /** 修改是否已应用并保存 */
+        public boolean isCommitted() {
+            return committed;
+        }
+
+        /** 读取或保存失败的原因，成功时为 null */
+        public String getFailureMessage() {
+            return failureMessage;
+        }
+
+        /** 问题报告文件，未指定时为 null */
+        public File getReportFile() {
+            return reportFile;
+        }
+
+        /** 成绩文件路径；多文件导入的汇总结果为 null */
+        public String getFilePath() {
+            return filePath;
+        }
+
+        /**
+         * 转换为汇总映射（JSON 对象形式，本机服务返回给远程客户端）
+         */
+        public Map<String, Object> toSummary() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("file", filePath == null ? null : new File(filePath).getName());
+            map.put("mode", mode.name());
+            map.put("policy", policy.name());
+            map.put("committed", committed);
+            map.put("skipped", skipped);
+            map.put("cancelled", cancelled);
+            map.put("previousImportTime", previousImportTime);
+            map.put("failure", failureMessage);
+            map.put("linesRead", linesRead);
+            map.put("valid", validCount);
+            map.put("imported", importedCount);
+            map.put("added", addedCount);
+            map.put("replaced", replacedCount);
+            map.put("kept", keptCount);
+            map.put("unchanged", unchangedCount);
+            map.put("studentsUpdated", studentsUpdated);
+            map.put("invalid", invalidCount);
+            map.put("unknownStudents", unknownStudentCount);
+            map.put("duplicates", duplicateCount);
+            map.put("problemCount", getProblemCount());
+            map.put("elapsedMillis", elapsedMillis);
+            return map;
+        }
+
+        /**
+         * 由汇总映射还原（远程导入），缺少的字段取默认值
+         * @param filePath 本地成绩文件路径
+         * @param reportFile 本地问题报告文件
+         */
+        static ImportResult fromSummary(Map<?, ?> map, String filePath, File reportFile) {
+            Object mode = map.get("mode");
+            Object policy = map.get("policy");
+            ImportResult r = new ImportResult(
+                    mode == null ? Mode.BEST_EFFORT : Mode.valueOf(mode.toString()),
+                    policy == null ? DuplicateCoursePolicy.DEFAULT : DuplicateCoursePolicy.valueOf(policy.toString()));
+            r.filePath = filePath;
+            r.reportFile = reportFile;
+            r.committed = Boolean.TRUE.equals(map.get("committed"));
+            r.skipped = Boolean.TRUE.equals(map.get("skipped"));
+            r.cancelled = Boolean.TRUE.equals(map.get("cancelled"));
+            r.previousImportTime = summaryNumber(map, "previousImportTime");
+            Object failure = map.get("failure");
+            r.failureMessage = failure == null ? null : failure.toString();
+            r.linesRead = summaryNumber(map, "linesRead");
+            r.validCount = (int) summaryNumber(map, "valid");
+            r.importedCount = (int) summaryNumber(map, "imported");
+            r.addedCount = (int) summaryNumber(map, "added");
+            r.replacedCount = (int) summaryNumber(map, "replaced");
+            r.keptCount = (int) summaryNumber(map, "kept");
+            r.unchangedCount = (int) summaryNumber(map, "unchanged");
+            r.studentsUpdated = (int) summaryNumber(map, "studentsUpdated");
+            r.invalidCount = (int) summaryNumber(map, "invalid");
+            r.unknownStudentCount = (int) summaryNumber(map, "unknownStudents");
+            r.duplicateCount = (int) summaryNumber(map, "duplicates");
+            r.elapsedMillis = summaryNumber(map, "elapsedMillis");
+            return r;
+        }
+
+        private static long summaryNumber(Map<?, ?> map, String key) {
+            Object value = map.get(key);
+            return value instanceof Number ? ((Number) value).longValue() : 0;
+        }
+
+        @Override
+        public String toString() {
+            if (skipped) {
+                return String.format("[%s/%s] 文件内容已于 %tF %<tT 导入过，已跳过",
+                        mode.getDisplayName(), policy.getDisplayName(), previousImportTime);
+            }
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("[%s/%s] 读取 %d 行, 通过校验 %d 条, 导入 %d 条, 格式错误 %d 行, 学号不存在 %d 行",
+                    mode.getDisplayName(), policy.getDisplayName(), linesRead, validCount, importedCount,
+                    invalidCount, unknownStudentCount));
+            if (duplicateCount > 0 || mode != Mode.BEST_EFFORT) {
+                sb.append(", 重复课程 ").append(duplicateCount).append(" 行");
+            }
+            if (unchangedCount > 0) {
+                sb.append(", 与上次导入相同 ").append(unchangedCount).append(" 行");
+            }
+            if (importedCount > 0 && policy != DuplicateCoursePolicy.APPEND) {
+                sb.append(String.format(", 新增 %d, 覆盖 %d, 保留原记录 %d", addedCount, replacedCount, keptCount));
+            }
+            sb.append(String.format(", 涉及 %d 名学生, 耗时 %d ms", studentsUpdated, elapsedMillis));
+            if (failureMessage != null) {
+                sb.append(", 失败: ").append(failureMessage);
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * 多文件导入结果：逐文件结果与汇总
+     * 逐文件的新增/覆盖/保留数按暂存记录的来源文件统计；跨文件重复合并后的记录计入先出现的文件
+     */
+    public static class BatchResult {
+        private final List<ImportResult> files = new ArrayList<>();
+        private final ImportResult total;
+        private long applyMillis;
+
+        BatchResult(Mode mode, DuplicateCoursePolicy policy) {
+            this(new ImportResult(mode, policy));
+        }
+
+        private BatchResult(ImportResult total) {
+            this.total = total;
+        }
+
+        /** 逐文件结果，顺序与传入的文件列表一致 */
+        public List<ImportResult> getFiles() {
+            return Collections.unmodifiableList(files);
+        }
+
+        /** 全部文件的汇总（导入条数、策略结果、是否保存等以此为准） */
+        public ImportResult getTotal() {
+            return total;
+        }
+
+        /** 应用与保存耗时（毫秒） */
+        public long getApplyMillis() {
+            return applyMillis;
+        }
+
+        /** 因内容已导入过而跳过的文件数 */
+        public int getSkippedFileCount() {
+            int skipped = 0;
+            for (ImportResult file : files) {
+                if (file.skipped) skipped++;
+            }
+            return skipped;
+        }
+
+        /**
+         * 转换为汇总映射：total、files（逐文件汇总）与 applyMillis
+         */
+        public Map<String, Object> toSummary() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("total", total.toSummary());
+            List<Object> list = new ArrayList<>(files.size());
+            for (ImportResult file : files) {
+                list.add(file.toSummary());
+            }
+            map.put("files", list);
+            map.put("applyMillis", applyMillis);
+            return map;
+        }
+
+        /**
+         * 由汇总映射还原（远程导入）
+         * @param filePaths 本地成绩文件路径，顺序与汇总中的 files 一致
+         */
+        static BatchResult fromSummary(Map<?, ?> map, List<String> filePaths, File reportFile) {
+            Map<?, ?> totalMap = map.get("total") instanceof Map ? (Map<?, ?>) map.get("total") : map;
+            ImportResult total = ImportResult.fromSummary(totalMap,
+                    filePaths.size() == 1 ? filePaths.get(0) : null, reportFile);
+            BatchResult batch = new BatchResult(total);
+            Object files = map.get("files");
+            if (files instanceof List) {
+                List<?> list = (List<?>) files;
+                for (int i = 0; i < list.size(); i++) {
+                    batch.files.add(ImportResult.fromSummary((Map<?, ?>) list.get(i),
+                            i < filePaths.size() ? filePaths.get(i) : null, reportFile));
+                }
+            }
+            batch.applyMillis = ImportResult.summaryNumber(map, "applyMillis");
+            return batch;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("共 %d 个文件", files.size()));
+            int skipped = getSkippedFileCount();
+            if (skipped > 0) {
+                sb.append("（跳过 ").append(skipped).append(" 个）");
+            }
+            sb.append(", 应用与保存耗时 ").append(applyMillis).append(" ms");
+            for (ImportResult file : files) {
+                sb.append('\n').append(new File(file.filePath).getName()).append(": ").append(file);
+            }
+            sb.append("\n合计: ").append(total);
+            return sb.toString();
+        }
+    }
+
+    /**
+     * 一条解析成功的成绩记录；lineNumber 为所在片段内的行号
+     */
+    static final class ScoreRecord {
+        final long lineNumber;
+        final String studentId;
+        final String courseName;
+        final double credit;
+        final double score;
+        final long fingerprint;
+
+        ScoreRecord(long lineNumber, String studentId, String courseName, double credit, double score) {
+            this.lineNumber = lineNumber;
+            this.studentId = studentId;
+            this.courseName = courseName;
+            this.credit = credit;
+            this.score = score;
+            this.fingerprint = ImportLedger.fingerprint(studentId, courseName, credit, score);
+        }
+    }
+
+    /** 格式错误的行：片段内行号 + 说明 */
+    static final class LineError {
+        final long lineNumber;
+        final String detail;
+
+        LineError(long lineNumber, String detail) {
+            this.lineNumber = lineNumber;
+            this.detail = detail;
+        }
+    }
+
+    /** 解析阶段产出：成功记录 + 无效行说明（CSV 行号为片段内行号，由消费方换算；XLSX 为 Excel 行号） */
+    static final class ParsedBatch {
+        final List<ScoreRecord> records = new ArrayList<>();
+        final List<LineError> errors = new ArrayList<>();
+        long lineCount;
+        /** 行号是否已是文件内的绝对行号 */
+        boolean absoluteLineNumbers;
+        /** 问题行位置前缀（如工作表名），CSV 为空 */
+        String location = "";
+    }
+
+    /**
+     * 校验通过的记录暂存区：按列存放，课程名去重编号，避免每行一个 Course 对象
+     */
+    private static final class Staging {
+        private Student[] owners = new Student[1024];
+        private int[] courseIds = new int[1024];
+        private double[] credits = new double[1024];
+        private double[] scores = new double[1024];
+        private int[] sources = new int[1024];
+        private int size;
+        private final Map<String, Integer> courseIdByName = new HashMap<>();
+        private final List<String> courseNames = new ArrayList<>();
+
+        int courseId(String name) {
+            Integer id = courseIdByName.get(name);
+            if (id == null) {
+                id = courseNames.size();
+                courseIdByName.put(name, id);
+                courseNames.add(name);
+            }
+            return id;
+        }
+
+        void add(Student owner, int courseId, double credit, double score, int source) {
+            if (size == owners.length) {
+                int capacity = size * 2;
+                owners = Arrays.copyOf(owners, capacity);
+                courseIds = Arrays.copyOf(courseIds, capacity);
+                credits = Arrays.copyOf(credits, capacity);
+                scores = Arrays.copyOf(scores, capacity);
+                sources = Arrays.copyOf(sources, capacity);
+            }
+            owners[size] = owner;
+            courseIds[size] = courseId;
+            credits[size] = credit;
+            scores[size] = score;
+            sources[size] = source;
+            size++;
+        }
+
+        /** 暂存记录来自第几个文件 */
+        int source(int slot) {
+            return sources[slot];
+        }
+
+        Student owner(int slot) {
+            return owners[slot];
+        }
+
+        double score(int slot) {
+            return scores[slot];
+        }
+
+        void set(int slot, double credit, double score) {
+            credits[slot] = credit;
+            scores[slot] = score;
+        }
+
+        /**
+         * 按学生分组后的暂存位置：学生按首次出现排序，组内保持原顺序（计数排序，O(n)）
+         */
+        int[] groupedSlots() {
+            Map<Student, Integer> groups = new HashMap<>();
+            int[] groupOf = new int[size];
+            int[] counts = new int[size + 1];
+            for (int i = 0; i < size; i++) {
+                Integer group = groups.get(owners[i]);
+                if (group == null) {
+                    group = groups.size();
+                    groups.put(owners[i], group);
+                }
+                groupOf[i] = group;
+                counts[group + 1]++;
+            }
+            for (int g = 1; g < counts.length; g++) {
+                counts[g] += counts[g - 1];
+            }
+            int[] slots = new int[size];
+            for (int i = 0; i < size; i++) {
+                slots[counts[groupOf[i]]++] = i;
+            }
+            return slots;
+        }
+
+        /** 按分组顺序展开为课程对象；遍历顺序与 slots 一致 */
+        Map<Student, List<Course>> toCoursesByStudent(int[] slots) {
+            Map<Student, List<Course>> grouped = new LinkedHashMap<>();
+            for (int slot : slots) {
+                grouped.computeIfAbsent(owners[slot], k -> new ArrayList<>())
+                        .add(new Course(courseNames.get(courseIds[slot]), credits[slot], scores[slot]));
+            }
+            return grouped;
+        }
+    }
+
+    /**
+     * 可增长的 long 数组（已接受行的指纹）
+     */
+    private static final class LongBuffer {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * 键为非零 long、值为 int 的开放寻址哈希表，用于 (学生序号, 课程编号) -> 暂存位置
+     */
+    private static final class LongIntMap {
+        private long[] keys = new long[1 << 12];
+        private int[] values = new int[1 << 12];
+        private int size;
+
+        /** @return 已有的值；不存在时放入 value 并返回 -1 */
+        int putIfAbsent(long key, int value) {
+            if ((size + 1) * 2 > keys.length) {
+                rehash();
+            }
+            int mask = keys.length - 1;
+            int i = mix(key) & mask;
+            while (keys[i] != 0) {
+                if (keys[i] == key) return values[i];
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+            size++;
+            return -1;
+        }
+
+        private void rehash() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) putIfAbsent(oldKeys[i], oldValues[i]);
+            }
+        }
+
+        private static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    /**
+     * 单个文件的读取状态：读取线程写入解析结果队列，校验线程按顺序消费
+     * （lookup 由读取线程在放入第一个队列元素之前设置，经队列对消费方可见）
+     */
+    private static final class FileJob {
+        final int index;
+        final String filePath;
+        /** 问题行前缀：单文件为空，多文件为文件名 */
+        final String label;
+        final ImportResult result;
+        final BlockingQueue<Future<ParsedBatch>> queue;
+        final LongBuffer accepted = new LongBuffer();
+        ImportLedger.Lookup lookup;
+        volatile long startNanos;
+
+        FileJob(int index, String filePath, String label, ImportResult result, int queueCapacity) {
+            this.index = index;
+            this.filePath = filePath;
+            this.label = label;
+            this.result = result;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        }
+    }
+
+    /**
+     * 校验阶段跨文件共享的状态（仅由校验线程访问）
+     */
+    private static final class Validation {
+        final Map<String, Student> index;
+        // 追加策略在校验类模式下把任何同名课程视为问题；其余策略只需合并重复
+        final boolean append;
+        final boolean trackDuplicates;
+        // 学生序号从 1 开始，保证组合键非零
+        final Map<Student, Integer> ordinals = new HashMap<>();
+        final LongIntMap staged = new LongIntMap();
+        final Staging staging = new Staging();
+
+        Validation(Map<String, Student> index, Mode mode, DuplicateCoursePolicy policy) {
+            this.index = index;
+            this.append = policy == DuplicateCoursePolicy.APPEND;
+            this.trackDuplicates = !append || mode != Mode.BEST_EFFORT;
+        }
+
+        /** 校验期间按需建立的课程名索引不再需要 */
+        void releaseCourseIndexes() {
+            if (append) {
+                for (Student student : ordinals.keySet()) {
+                    student.releaseCourseIndex();
+                }
+            }
+        }
+    }
+
+    /**
+     * 问题行输出：指定报告文件时写入文件，否则输出到标准错误；
+     * 同时按批推送给监听方，超过上限后只写报告文件（报告文件即溢出文件）
+     */
+    private static final class ProblemReport implements Closeable {
+        private final BufferedWriter writer;
+        private final File reportFile;
+        private final ImportListener listener;
+        private final List<String> pending = new ArrayList<>(PROBLEM_BATCH);
+        private int streamed;
+
+        ProblemReport(File reportFile, List<String> sourcePaths, Mode mode, DuplicateCoursePolicy policy,
+                      ImportListener listener) throws IOException {
+            this.reportFile = reportFile;
+            this.listener = listener;
+            if (reportFile == null) {
+                writer = null;
+                return;
+            }
+            writer = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(reportFile), StandardCharsets.UTF_8));
+            writer.write("# 成绩导入校验报告");
+            writer.newLine();
+            if (sourcePaths.size() == 1) {
+                writer.write("# 文件: " + sourcePaths.get(0));
+                writer.newLine();
+            } else {
+                writer.write("# 文件: 共 " + sourcePaths.size() + " 个");
+                writer.newLine();
+                for (String path : sourcePaths) {
+                    writer.write("#   " + path);
+                    writer.newLine();
+                }
+            }
+            writer.write("# 模式: " + mode.getDisplayName() + ", 同名课程: " + policy.getDisplayName());
+            writer.newLine();
+        }
+
+        void problem(String message) throws IOException {
+            if (streamed < MAX_STREAMED_PROBLEMS) {
+                pending.add(message);
+                if (++streamed == MAX_STREAMED_PROBLEMS) {
+                    pending.add("问题行过多，后续问题仅" + (reportFile == null
+                            ? "输出到控制台" : "写入报告文件: " + reportFile.getAbsolutePath()));
+                }
+                if (pending.size() >= PROBLEM_BATCH) flush();
+            }
+            if (writer == null) {
+                System.err.println(message);
+                return;
+            }
+            writer.write(message);
+            writer.newLine();
+        }
+
+        /** 把已积累的问题行推送给监听方 */
+        void flush() {
+            if (pending.isEmpty()) return;
+            listener.onProblems(new ArrayList<>(pending));
+            pending.clear();
+        }
+
+        void summary(Object result) throws IOException {
+            if (writer == null) return;
+            for (String line : result.toString().split("\n")) {
+                writer.write("# " + line);
+                writer.newLine();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+            if (writer != null) writer.close();
+        }
+    }
+
+    private final StudentManager studentManager;
+    private final ImportLedger ledger;
+
+    public ScoreImporter(StudentManager studentManager) {
+        this(studentManager, null);
+    }
+
+    /**
+     * @param ledger 导入台账，为 null 时不做重复导入检测
+     */
+    public ScoreImporter(StudentManager studentManager, ImportLedger ledger) {
+        this.studentManager = studentManager;
+        this.ledger = ledger;
+    }
+
+    /**
+     * 尽量导入成绩文件：学号,课程名,学分,成绩（兼容全角逗号、BOM 与多余空白），
+     * .xlsx 文件逐个工作表读取 A-D 列（见 {@link XlsxScoreReader}）；同名课程直接追加，问题行输出到标准错误
+     */
+    public ImportResult importFile(String filePath) {
+        return importFile(filePath, Mode.BEST_EFFORT, DuplicateCoursePolicy.APPEND, null);
+    }
+
+    /**
+     * 按指定模式与同名课程策略导入成绩文件
+     * @param filePath 成绩文件路径
+     * @param mode 导入模式
+     * @param policy 同名课程处理策略
+     * @param reportFile 问题报告输出文件；为 null 时问题行输出到标准错误
+     * @return 导入结果汇总
+     */
+    public ImportResult importFile(String filePath, Mode mode, DuplicateCoursePolicy policy, File reportFile) {
+        return importFile(filePath, mode, policy, reportFile, false);
+    }
+
+    /**
+     * 按指定模式与同名课程策略导入成绩文件
+     * @param reimport 为 true 时忽略台账中的历史记录（强制整体重新导入），导入后仍更新台账
+     */
+    public ImportResult importFile(String filePath, Mode mode, DuplicateCoursePolicy policy, File reportFile,
+                                   boolean reimport) {
+        return importFile(filePath, mode, policy, reportFile, reimport, ImportListener.NONE);
+    }
+
+    /**
+     * 按指定模式与同名课程策略导入成绩文件，并回调进度、推送问题行
+     * @param listener 进度监听；读取与校验阶段可取消，取消后不应用任何修改
+     */
+    public ImportResult importFile(String filePath, Mode mode, DuplicateCoursePolicy policy, File reportFile,
+                                   boolean reimport, ImportListener listener) {
+        return importFiles(Collections.singletonList(filePath), mode, policy, reportFile, reimport, listener)
+                .getTotal();
+    }
+
+    /**
+     * 一次导入多个成绩文件：并发读取与解析，按文件顺序校验，合并后只应用一次、保存一次
+     * @param filePaths 成绩文件路径（目录可先用 {@link #listScoreFiles(File)} 展开）
+     * @param reportFile 全部文件共用的问题报告，问题行以文件名开头；为 null 时输出到标准错误
+     * @return 逐文件结果与汇总；任一文件读取失败或取消时不应用任何修改
+     */
+    public BatchResult importFiles(List<String> filePaths, Mode mode, DuplicateCoursePolicy policy,
+                                   File reportFile, boolean reimport, ImportListener listener) {
+        long start = System.nanoTime();
+        ServiceEvents.ImportBatch event = new ServiceEvents.ImportBatch();
+        event.begin();
+        boolean single = filePaths.size() == 1;
+        BatchResult batch = new BatchResult(mode, policy);
+        ImportResult total = batch.total;
+        total.reportFile = reportFile;
+        total.filePath = single ? filePaths.get(0) : null;
+        if (filePaths.isEmpty()) {
+            total.failureMessage = "没有可导入的成绩文件";
+            System.err.println(total.failureMessage);
+            return batch;
+        }
+
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+        int concurrentFiles = Math.min(filePaths.size(), MAX_CONCURRENT_FILES);
+        // 各文件队列容量之和与单文件导入相当，同时读取多个文件时内存占用不随文件数增长
+        int queueCapacity = Math.max(2, threads * 2 / concurrentFiles);
+        List<FileJob> jobs = new ArrayList<>(filePaths.size());
+        long totalBytes = 0;
+        for (String path : filePaths) {
+            ImportResult fileResult = new ImportResult(mode, policy);
+            fileResult.reportFile = reportFile;
+            fileResult.filePath = path;
+            batch.files.add(fileResult);
+            String label = single ? "" : new File(path).getName() + " ";
+            jobs.add(new FileJob(jobs.size(), path, label, fileResult, queueCapacity));
+            totalBytes += new File(path).length();
+        }
+
+        Validation validation = null;
+        boolean readComplete = false;
+        try (ProblemReport report = new ProblemReport(reportFile, filePaths, mode, policy, listener)) {
+            ExecutorService parsers = Executors.newFixedThreadPool(threads, daemonFactory("score-import-parse"));
+            ExecutorService readers = Executors.newFixedThreadPool(concurrentFiles,
+                    daemonFactory("score-import-reader"));
+            FileJob current = null;
+            try {
+                listener.onStart(totalBytes);
+                validation = new Validation(studentManager.buildStudentIndex(), mode, policy);
+                // 读取线程池按提交顺序执行，校验线程等待的文件总是已开始或已读完，不会互相等待
+                for (FileJob job : jobs) {
+                    readers.execute(() -> readFile(job, reimport, parsers, listener));
+                }
+                for (FileJob job : jobs) {
+                    current = job;
+                    validate(job, jobs, validation, report, listener);
+                    job.result.elapsedMillis = (System.nanoTime() - job.startNanos) / 1_000_000;
+                }
+                readComplete = true;
+            } catch (CancellationException e) {
+                total.cancelled = true;
+                total.failureMessage = "导入已取消";
+                for (int i = current.index; i < jobs.size(); i++) {
+                    jobs.get(i).result.cancelled = true;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                total.failureMessage = "导入被中断";
+            } catch (ExecutionException e) {
+                // 读取中途失败：放弃全部已暂存的记录，不做部分导入
+                current.result.failureMessage = "读取成绩文件失败: " + e.getCause().getMessage();
+                total.failureMessage = current.label + current.result.failureMessage;
+                System.err.println(total.failureMessage);
+            } finally {
+                readers.shutdownNow();
+                parsers.shutdownNow();
+                if (validation != null) validation.releaseCourseIndexes();
+            }
+
+            summarize(batch, validation);
+            if (readComplete) {
+                long applyStart = System.nanoTime();
+                apply(mode, policy, validation.staging, jobs, total, listener);
+                batch.applyMillis = (System.nanoTime() - applyStart) / 1_000_000;
+                if (ledger != null && isRecordable(mode, validation.staging, total)) {
+                    recordLedger(jobs);
+                }
+            }
+            total.elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            report.summary(single ? total : batch);
+        } catch (IOException e) {
+            // 报告文件无法写出：此前尚未应用任何修改，或修改已完成
+            total.failureMessage = "写入校验报告失败: " + e.getMessage();
+            System.err.println(total.failureMessage);
+        }
+        total.elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println(single ? "成绩导入: " + total : "成绩批量导入: " + batch);
+        studentManager.recordImport(total.linesRead, totalBytes, System.nanoTime() - start);
+        if (Metrics.isEnabled()) {
+            Metrics.record("import.batch", System.nanoTime() - start);
+            Metrics.count("import.files", filePaths.size());
+            Metrics.count("import.lines", total.linesRead);
+            Metrics.count("import.imported", total.getImportedCount());
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.mode = mode.name();
+            event.policy = policy.name();
+            event.files = filePaths.size();
+            event.bytes = totalBytes;
+            event.lines = total.linesRead;
+            event.valid = total.getValidCount();
+            event.imported = total.getImportedCount();
+            event.problems = total.getProblemCount();
+            event.cancelled = total.cancelled;
+            event.failure = total.failureMessage;
+            event.commit();
+        }
+        return batch;
+    }
+
+    /**
+     * 列出目录（含子目录）中的成绩文件：*.csv、*.txt 与 *.xlsx，不含校验报告 *.report.txt；按路径排序
+     */
+    public static List<String> listScoreFiles(File directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory.toPath())) {
+            return paths.filter(Files::isRegularFile)
+                    .map(Path::toString)
+                    .filter(ScoreImporter::isScoreFileName)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static boolean isScoreFileName(String path) {
+        String lower = path.toLowerCase();
+        return (lower.endsWith(".csv") || lower.endsWith(".txt") || lower.endsWith(".xlsx"))
+                && !lower.endsWith(".report.txt");
+    }
+
+    /**
+     * 流式校验一个文件：逐批核对学号与同名课程，合格记录进入共享暂存区，问题行写入报告
+     */
+    private void validate(FileJob job, List<FileJob> jobs, Validation v, ProblemReport report,
+                          ImportListener listener)
+            throws InterruptedException, ExecutionException, IOException {
+        ImportResult result = job.result;
+        Staging staging = v.staging;
+        int stagedBefore = staging.size;
+        while (true) {
+            Future<ParsedBatch> next = job.queue.take();
+            if (next == END_OF_INPUT) break;
+            if (listener.isCancelled()) throw new CancellationException();
+            ParsedBatch batch = next.get();
+            long base = batch.absoluteLineNumbers ? 0 : result.linesRead;
+            String prefix = job.label + batch.location;
+            result.linesRead += batch.lineCount;
+            listener.onRowsParsed(batch.lineCount);
+            for (LineError error : batch.errors) {
+                report.problem(prefix + "第 " + (base + error.lineNumber) + " 行 " + error.detail);
+            }
+            result.invalidCount += batch.errors.size();
+            for (ScoreRecord record : batch.records) {
+                String where = prefix + "第 " + (base + record.lineNumber) + " 行 ";
+                Student student = v.index.get(record.studentId);
+                if (student == null) {
+                    report.problem(where + "学号不存在: " + record.studentId);
+                    result.unknownStudentCount++;
+                    continue;
+                }
+                if (job.lookup != null && job.lookup.isKnownRow(record.fingerprint)) {
+                    // 与上次导入同一文件时完全相同的行，不再应用
+                    result.unchangedCount++;
+                    job.accepted.add(record.fingerprint);
+                    continue;
+                }
+                int courseId = staging.courseId(record.courseName);
+                if (v.trackDuplicates) {
+                    if (v.append && student.hasCourse(record.courseName)) {
+                        report.problem(where + "重复课程(已存在): " + record.studentId + " " + record.courseName);
+                        result.duplicateCount++;
+                        continue;
+                    }
+                    Integer ordinal = v.ordinals.get(student);
+                    if (ordinal == null) {
+                        ordinal = v.ordinals.size() + 1;
+                        v.ordinals.put(student, ordinal);
+                    }
+                    int slot = v.staged.putIfAbsent(key(ordinal, courseId), staging.size);
+                    if (slot >= 0) {
+                        if (mergeStaged(result.policy, staging, slot, record)) {
+                            job.accepted.add(record.fingerprint);
+                        } else {
+                            int source = staging.source(slot);
+                            String scope = source == job.index ? "文件内重复"
+                                    : "与 " + new File(jobs.get(source).filePath).getName() + " 重复";
+                            report.problem(where + "重复课程(" + scope + "): "
+                                    + record.studentId + " " + record.courseName);
+                            result.duplicateCount++;
+                        }
+                        continue;
+                    }
+                }
+                staging.add(student, courseId, record.credit, record.score, job.index);
+                job.accepted.add(record.fingerprint);
+            }
+            report.flush();
+        }
+        // 读取线程响应取消后以结束标记收尾，这里再确认一次
+        if (listener.isCancelled()) throw new CancellationException();
+        if (job.lookup != null && job.lookup.isAlreadyImported()) {
+            result.skipped = true;
+            result.previousImportTime = job.lookup.getPreviousImportTime();
+        }
+        result.validCount = staging.size - stagedBefore;
+    }
+
+    /**
+     * 同一学生同一课程再次出现（文件内或跨文件）：按策略合并到已暂存的记录
+     * @return 是否已合并；追加与覆盖策略不合并，由调用方记为重复
+     */
+    private static boolean mergeStaged(DuplicateCoursePolicy policy, Staging staging, int slot, ScoreRecord record) {
+        switch (policy) {
+            case KEEP_LATEST:
+                staging.set(slot, record.credit, record.score);
+                return true;
+            case KEEP_BEST:
+                if (record.score > staging.score(slot)) {
+                    staging.set(slot, record.credit, record.score);
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 把逐文件的校验计数汇总到总结果
+     */
+    private static void summarize(BatchResult batch, Validation validation) {
+        ImportResult total = batch.total;
+        boolean allSkipped = true;
+        for (ImportResult file : batch.files) {
+            total.linesRead += file.linesRead;
+            total.invalidCount += file.invalidCount;
+            total.unknownStudentCount += file.unknownStudentCount;
+            total.duplicateCount += file.duplicateCount;
+            total.unchangedCount += file.unchangedCount;
+            total.previousImportTime = Math.max(total.previousImportTime, file.previousImportTime);
+            allSkipped &= file.skipped;
+        }
+        total.skipped = allSkipped && total.failureMessage == null;
+        total.validCount = validation == null ? 0 : validation.staging.size;
+    }
+
+    /**
+     * 应用暂存区：仅校验模式不修改；全部或不导入模式存在问题行时整体放弃
+     */
+    private void apply(Mode mode, DuplicateCoursePolicy policy, Staging staging, List<FileJob> jobs,
+                       ImportResult total, ImportListener listener) {
+        if (mode == Mode.DRY_RUN || staging.size == 0) {
+            return;
+        }
+        if (mode == Mode.ALL_OR_NOTHING && total.getProblemCount() > 0) {
+            System.out.println("存在 " + total.getProblemCount() + " 个问题行，未导入任何记录");
+            return;
+        }
+        int[] slots = staging.groupedSlots();
+        Map<Student, List<Course>> coursesByStudent = staging.toCoursesByStudent(slots);
+        // 合并回调的顺序与 slots 一致，据此把结果归到来源文件
+        int[][] outcomes = new int[jobs.size()][DuplicateCoursePolicy.Outcome.values().length];
+        boolean atomic = mode == Mode.ALL_OR_NOTHING;
+        int[] merged = new int[1];
+        long[] unreported = new long[1];
+        boolean saved = studentManager.applyImportedCourses(coursesByStudent, policy, atomic, outcome -> {
+            outcomes[staging.source(slots[merged[0]++])][outcome.ordinal()]++;
+            if (++unreported[0] == APPLY_REPORT_EVERY) {
+                listener.onRowsApplied(unreported[0]);
+                unreported[0] = 0;
+            }
+        });
+        listener.onRowsApplied(unreported[0]);
+        if (saved || !atomic) {
+            total.importedCount = staging.size;
+            total.studentsUpdated = coursesByStudent.size();
+            // 同一学生的暂存记录相邻，按文件记下最后一个学生即可统计各文件涉及的学生数
+            Student[] lastStudent = new Student[jobs.size()];
+            for (int slot : slots) {
+                int source = staging.source(slot);
+                if (lastStudent[source] != staging.owner(slot)) {
+                    lastStudent[source] = staging.owner(slot);
+                    jobs.get(source).result.studentsUpdated++;
+                }
+            }
+            for (FileJob job : jobs) {
+                ImportResult result = job.result;
+                result.importedCount = result.validCount;
+                result.addedCount = outcomes[job.index][DuplicateCoursePolicy.Outcome.ADDED.ordinal()];
+                result.replacedCount = outcomes[job.index][DuplicateCoursePolicy.Outcome.REPLACED.ordinal()];
+                result.keptCount = outcomes[job.index][DuplicateCoursePolicy.Outcome.KEPT.ordinal()];
+                total.addedCount += result.addedCount;
+                total.replacedCount += result.replacedCount;
+                total.keptCount += result.keptCount;
+            }
+        }
+        total.committed = saved;
+        for (FileJob job : jobs) {
+            job.result.committed = saved && !job.result.skipped;
+        }
+        if (!saved) {
+            total.failureMessage = atomic ? "保存失败，已撤销本次导入" : "保存失败";
+        }
+    }
+
+    /**
+     * 本次导入是否应写入台账：仅校验、读取/保存失败、或全部或不导入被整体放弃时都不记录
+     */
+    private static boolean isRecordable(Mode mode, Staging staging, ImportResult total) {
+        if (mode == Mode.DRY_RUN || total.failureMessage != null) {
+            return false;
+        }
+        if (mode == Mode.ALL_OR_NOTHING && total.getProblemCount() > 0) {
+            return false;
+        }
+        return staging.size == 0 || total.committed;
+    }
+
+    /**
+     * 把本次导入的各文件（跳过的除外）一次写入台账
+     */
+    private void recordLedger(List<FileJob> jobs) {
+        List<ImportLedger.Record> records = new ArrayList<>();
+        for (FileJob job : jobs) {
+            if (job.lookup != null && !job.result.skipped) {
+                records.add(new ImportLedger.Record(new File(job.filePath), job.lookup,
+                        job.accepted.toArray(), job.result.getProblemCount() == 0));
+            }
+        }
+        if (!records.isEmpty()) {
+            ledger.recordAll(records);
+        }
+    }
+
+    private static long key(int studentOrdinal, int courseId) {
+        return ((long) studentOrdinal << 32) | (courseId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 读取阶段（每个文件一个任务）：查询台账，映射文件并按行边界切片，提交解析任务，
+     * 解析结果按提交顺序放入该文件的队列（队列有界，形成背压）
+     */
+    private void readFile(FileJob job, boolean reimport, ExecutorService parsers, ImportListener listener) {
+        job.startNanos = System.nanoTime();
+        try {
+            if (ledger != null) {
+                job.lookup = ledger.lookup(new File(job.filePath), reimport);
+                if (job.lookup.isAlreadyImported()) {
+                    listener.onBytesRead(new File(job.filePath).length());
+                    job.queue.put(END_OF_INPUT);
+                    return;
+                }
+            }
+            // 取消后不再读取；消费方检查取消标志后放弃本次导入
+            if (isXlsx(job.filePath)) {
+                XlsxScoreReader.read(Paths.get(job.filePath), (chunk, bytes) -> {
+                    job.queue.put(parsers.submit(() -> XlsxScoreReader.parse(chunk)));
+                    listener.onBytesRead(bytes);
+                    return !listener.isCancelled();
+                });
+            } else {
+                MappedScoreReader.split(Paths.get(job.filePath), slice -> {
+                    job.queue.put(parsers.submit(() -> MappedScoreReader.parse(slice)));
+                    listener.onBytesRead(slice.length());
+                    return !listener.isCancelled();
+                });
+            }
+            job.queue.put(END_OF_INPUT);
+        } catch (IOException e) {
+            putFailure(job.queue, e);
+        } catch (RuntimeException e) {
+            // 文件内容异常（如 XLSX 结构不完整）同样交给消费方，避免消费方一直等待
+            putFailure(job.queue, new IOException(e.toString(), e));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean isXlsx(String filePath) {
+        return filePath.toLowerCase().endsWith(".xlsx");
+    }
+
+    /**
+     * 以失败的 Future 把读取异常交给消费方
+     */
+    private static void putFailure(BlockingQueue<Future<ParsedBatch>> queue, IOException e) {
+        CompletableFuture<ParsedBatch> failed = new CompletableFuture<>();
+        failed.completeExceptionally(e);
+        try {
+            queue.put(failed);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ThreadFactory daemonFactory(String name) {
+        return r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,132 @@
+package service;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * 服务层 JFR 事件：数据文件读写与备份、成绩导入批次、导出各阶段、搜索。
+ * 在 JDK Mission Control 中位于 “学生信息管理系统” 分类下，可与 GC、线程阻塞等事件按时间对照。
+ * 未录制时 begin/commit 几乎没有开销；字段较贵的计算先用 shouldCommit() 判断。
+ */
+final class ServiceEvents {
+    static final String CATEGORY = "学生信息管理系统";
+
+    private ServiceEvents() {
+    }
+
+    @Name("sims.FileLoad")
+    @Label("加载数据文件")
+    @Category({CATEGORY, "数据文件"})
+    static class FileLoad extends Event {
+        @Label("文件")
+        String path;
+        @Label("文件大小")
+        @DataAmount
+        long bytes;
+        @Label("学生数")
+        int students;
+    }
+
+    @Name("sims.FileSave")
+    @Label("保存数据文件")
+    @Category({CATEGORY, "数据文件"})
+    static class FileSave extends Event {
+        @Label("文件")
+        String path;
+        @Label("文件大小")
+        @DataAmount
+        long bytes;
+        @Label("学生数")
+        int students;
+        @Label("成功")
+        boolean success;
+    }
+
+    @Name("sims.FileBackup")
+    @Label("备份数据文件")
+    @Category({CATEGORY, "数据文件"})
+    static class FileBackup extends Event {
+        @Label("文件")
+        String path;
+        @Label("备份大小")
+        @DataAmount
+        long bytes;
+        @Label("成功")
+        boolean success;
+    }
+
+    @Name("sims.ImportBatch")
+    @Label("成绩导入批次")
+    @Description("一次导入（一个或多个文件）：读取、解析、校验、应用与保存")
+    @Category({CATEGORY, "成绩导入"})
+    static class ImportBatch extends Event {
+        @Label("模式")
+        String mode;
+        @Label("同名课程策略")
+        String policy;
+        @Label("文件数")
+        int files;
+        @Label("文件总大小")
+        @DataAmount
+        long bytes;
+        @Label("读取行数")
+        long lines;
+        @Label("通过校验")
+        int valid;
+        @Label("导入条数")
+        int imported;
+        @Label("问题行数")
+        int problems;
+        @Label("已取消")
+        boolean cancelled;
+        @Label("失败原因")
+        String failure;
+    }
+
+    @Name("sims.ExportPhase")
+    @Label("导出阶段")
+    @Description("collect：整理课程列与共享字符串；rank：排名计算；write sheet：写出一个工作表；zip：写出其余部分并完成压缩包")
+    @Category({CATEGORY, "导出"})
+    static class ExportPhase extends Event {
+        @Label("格式")
+        String format;
+        @Label("阶段")
+        String phase;
+        @Label("工作表")
+        String sheet;
+        @Label("行数")
+        long rows;
+        @Label("字节数")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("sims.Search")
+    @Label("搜索")
+    @Category({CATEGORY, "查询"})
+    static class Search extends Event {
+        @Label("查询类型")
+        String kind;
+        @Label("关键字长度")
+        int keywordLength;
+        @Label("名单人数")
+        int rosterSize;
+        @Label("结果数")
+        int results;
+    }
+
+    /**
+     * 开始一个导出阶段事件
+     */
+    static ExportPhase exportPhase(String format, String phase) {
+        ExportPhase event = new ExportPhase();
+        event.format = format;
+        event.phase = phase;
+        event.begin();
+        return event;
+    }
+}
@@ -0,0 +1,126 @@
+package service;
+
+import model.DuplicateCoursePolicy;
+import model.Student;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * 学生数据访问接口：界面（主窗口、排名窗口、统计、成绩导入、课程管理）所用的全部数据操作。
+ * 进程内实现为 {@link StudentManager}；{@link RemoteStudentDataSource} 通过本机回环地址访问
+ * 持有数据文件的服务进程（server.SimsServer），多个界面共享同一份数据。
+ * 远程实现的调用可能较慢，界面对列表、搜索、排名、统计以及增删改都经 {@link #async(Supplier)} 在后台执行。
+ */
+public interface StudentDataSource {
+
+    int getStudentCount();
+
+    /**
+     * 全部学生（副本），顺序为当前排序方式
+     */
+    List<Student> getAllStudents();
+
+    /**
+     * 分页获取学生
+     * @param offset 起始位置
+     * @param limit 最多返回条数
+     */
+    List<Student> getStudents(int offset, int limit);
+
+    /**
+     * @return 学生对象，不存在时返回 null
+     */
+    Student findStudentById(String studentId);
+
+    List<Student> searchByName(String name);
+
+    List<Student> searchByMajor(String major);
+
+    List<Student> searchByClass(String classNumber);
+
+    /**
+     * 综合搜索（学号、姓名、专业、班级）
+     */
+    List<Student> search(String keyword);
+
+    /**
+     * @throws IllegalArgumentException 学号已存在
+     */
+    boolean addStudent(Student student);
+
+    boolean updateStudent(Student updatedStudent);
+
+    boolean deleteStudent(String studentId);
+
+    /**
+     * 学生课程被直接修改后调用（课程管理对话框）
+     */
+    boolean saveCourseChanges(Student student);
+
+    void sortByStudentId();
+
+    void sortByName();
+
+    void sortByAge();
+
+    void sortByGPA();
+
+    Map<String, Object> getStatistics();
+
+    boolean backupData();
+
+    /**
+     * 最近一次因与其他程序的修改冲突而被拒绝的保存中，两边都修改过的学号；没有冲突时为空
+     */
+    default Set<String> getSaveConflicts() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * 放弃本程序对冲突学生的修改，改用数据文件中的版本，并保存其余修改
+     * @return 是否保存成功；不在本进程保存数据的实现返回 false
+     */
+    default boolean resolveSaveConflicts() {
+        return false;
+    }
+
+    List<String> getAllMajors();
+
+    RankingService.Ranking getMajorRanking(String major);
+
+    RankingService.Ranking getOverallRanking();
+
+    SortedMap<String, RankingService.Ranking> getAllMajorRankings();
+
+    /**
+     * 一次导入多个成绩文件，合并后只应用一次、保存一次
+     */
+    ScoreImporter.BatchResult importScores(List<String> filePaths, ScoreImporter.Mode mode,
+                                           DuplicateCoursePolicy policy, File reportFile,
+                                           boolean reimport, ImportListener listener);
+
+    /**
+     * 数据变更事件；远程实现只包含本进程发起的修改
+     */
+    StudentEventPublisher getEvents();
+
+    /**
+     * 异步执行一次数据访问；进程内实现直接在调用线程执行并返回已完成的结果
+     */
+    default <T> CompletableFuture<T> async(Supplier<T> call) {
+        try {
+            return CompletableFuture.completedFuture(call.get());
+        } catch (RuntimeException e) {
+            CompletableFuture<T> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package service;
+
+import model.Student;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 学生数据变更事件，由 {@link StudentEventPublisher} 按学号合并后成批发布
+ */
+public abstract class StudentEvent {
+
+    StudentEvent() {
+    }
+
+    /**
+     * 是否可能影响指定专业的排名与人数
+     */
+    public abstract boolean affectsMajor(String major);
+
+    /** 新增学生 */
+    public static final class StudentAdded extends StudentEvent {
+        private final Student student;
+
+        public StudentAdded(Student student) {
+            this.student = student;
+        }
+
+        public Student getStudent() {
+            return student;
+        }
+
+        @Override
+        public boolean affectsMajor(String major) {
+            return major.equals(student.getMajor());
+        }
+    }
+
+    /** 学生信息被修改（可能同时修改了课程）；previous 为修改前的对象 */
+    public static final class StudentUpdated extends StudentEvent {
+        private final Student previous;
+        private final Student current;
+
+        public StudentUpdated(Student previous, Student current) {
+            this.previous = previous;
+            this.current = current;
+        }
+
+        public Student getPrevious() {
+            return previous;
+        }
+
+        public Student getCurrent() {
+            return current;
+        }
+
+        @Override
+        public boolean affectsMajor(String major) {
+            return major.equals(previous.getMajor()) || major.equals(current.getMajor());
+        }
+    }
+
+    /** 删除学生 */
+    public static final class StudentRemoved extends StudentEvent {
+        private final Student student;
+
+        public StudentRemoved(Student student) {
+            this.student = student;
+        }
+
+        public Student getStudent() {
+            return student;
+        }
+
+        @Override
+        public boolean affectsMajor(String major) {
+            return major.equals(student.getMajor());
+        }
+    }
+
+    /** 学生的课程/成绩变化（学生对象本身被修改，基本信息不变） */
+    public static final class CoursesChanged extends StudentEvent {
+        private final Student student;
+
+        public CoursesChanged(Student student) {
+            this.student = student;
+        }
+
+        public Student getStudent() {
+            return student;
+        }
+
+        @Override
+        public boolean affectsMajor(String major) {
+            return major.equals(student.getMajor());
+        }
+    }
+
+    /** 成绩批量导入完成 */
+    public static final class BulkImportCompleted extends StudentEvent {
+        private final Set<String> majors;
+        private final int studentsUpdated;
+
+        /**
+         * @param majors 涉及的专业，为空表示未知（视为全部专业）
+         */
+        public BulkImportCompleted(Set<String> majors, int studentsUpdated) {
+            this.majors = Collections.unmodifiableSet(new LinkedHashSet<>(majors));
+            this.studentsUpdated = studentsUpdated;
+        }
+
+        public Set<String> getMajors() {
+            return majors;
+        }
+
+        public int getStudentsUpdated() {
+            return studentsUpdated;
+        }
+
+        @Override
+        public boolean affectsMajor(String major) {
+            return majors.isEmpty() || majors.contains(major);
+        }
+
+        BulkImportCompleted merge(BulkImportCompleted other) {
+            Set<String> merged = new LinkedHashSet<>();
+            if (!majors.isEmpty() && !other.majors.isEmpty()) {
+                merged.addAll(majors);
+                merged.addAll(other.majors);
+            }
+            return new BulkImportCompleted(merged, studentsUpdated + other.studentsUpdated);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package service;
+
+import model.Student;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 学生数据变更事件发布者（{@link Flow.Publisher}）：每个订阅者每次请求得到一批事件。
+ * 订阅者处理上一批期间产生的事件按学号合并（如新增后又修改合并为一次新增、新增后又删除则抵消），
+ * 批量导入事件合并为一个，因此变更密集时订阅者收到的批次数与事件数都不会随变更次数增长。
+ * 发布方只在数据所有者线程调用 {@link #publish}；没有订阅者时发布几乎没有开销。
+ */
+public class StudentEventPublisher implements Flow.Publisher<List<StudentEvent>> {
+    private final List<EventSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * 订阅，事件在公共 ForkJoinPool 中投递
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super List<StudentEvent>> subscriber) {
+        subscribe(subscriber, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 订阅，事件在指定线程投递（界面传入 SwingUtilities::invokeLater）
+     */
+    public void subscribe(Flow.Subscriber<? super List<StudentEvent>> subscriber, Executor executor) {
+        EventSubscription subscription = new EventSubscription(subscriber, executor);
+        subscriptions.add(subscription);
+        executor.execute(() -> subscriber.onSubscribe(subscription));
+    }
+
+    public boolean hasSubscribers() {
+        return !subscriptions.isEmpty();
+    }
+
+    void publish(StudentEvent event) {
+        for (EventSubscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    /**
+     * 同一学号待投递的合并状态：修改前是否存在、修改前后的对象、是否只有课程变化
+     */
+    private static final class Pending {
+        final boolean existed;
+        final Student before;
+        Student after;
+        boolean coursesOnly;
+
+        Pending(boolean existed, Student before, Student after, boolean coursesOnly) {
+            this.existed = existed;
+            this.before = before;
+            this.after = after;
+            this.coursesOnly = coursesOnly;
+        }
+
+        StudentEvent toEvent() {
+            if (!existed) {
+                return after == null ? null : new StudentEvent.StudentAdded(after);
+            }
+            if (after == null) {
+                return new StudentEvent.StudentRemoved(before);
+            }
+            return coursesOnly ? new StudentEvent.CoursesChanged(after) : new StudentEvent.StudentUpdated(before, after);
+        }
+    }
+
+    private final class EventSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super List<StudentEvent>> subscriber;
+        private final Executor executor;
+        private final Map<String, Pending> pending = new LinkedHashMap<>();
+        private StudentEvent.BulkImportCompleted bulk;
+        private long demand;
+        // 已安排投递或正在投递（保证 onNext 不并发）
+        private boolean scheduled;
+        private boolean cancelled;
+
+        EventSubscription(Flow.Subscriber<? super List<StudentEvent>> subscriber, Executor executor) {
+            this.subscriber = subscriber;
+            this.executor = executor;
+        }
+
+        synchronized void offer(StudentEvent event) {
+            if (cancelled) {
+                return;
+            }
+            if (event instanceof StudentEvent.BulkImportCompleted) {
+                StudentEvent.BulkImportCompleted b = (StudentEvent.BulkImportCompleted) event;
+                bulk = bulk == null ? b : bulk.merge(b);
+            } else if (event instanceof StudentEvent.StudentAdded) {
+                Student s = ((StudentEvent.StudentAdded) event).getStudent();
+                Pending p = pending.get(s.getStudentId());
+                if (p == null) {
+                    pending.put(s.getStudentId(), new Pending(false, null, s, false));
+                } else {
+                    p.after = s;
+                    p.coursesOnly = false;
+                }
+            } else if (event instanceof StudentEvent.StudentUpdated) {
+                StudentEvent.StudentUpdated u = (StudentEvent.StudentUpdated) event;
+                Pending p = pending.get(u.getCurrent().getStudentId());
+                if (p == null) {
+                    pending.put(u.getCurrent().getStudentId(), new Pending(true, u.getPrevious(), u.getCurrent(), false));
+                } else {
+                    p.after = u.getCurrent();
+                    p.coursesOnly = false;
+                }
+            } else if (event instanceof StudentEvent.CoursesChanged) {
+                Student s = ((StudentEvent.CoursesChanged) event).getStudent();
+                Pending p = pending.get(s.getStudentId());
+                if (p == null) {
+                    pending.put(s.getStudentId(), new Pending(true, s, s, true));
+                } else {
+                    p.after = s;
+                }
+            } else if (event instanceof StudentEvent.StudentRemoved) {
+                Student s = ((StudentEvent.StudentRemoved) event).getStudent();
+                Pending p = pending.get(s.getStudentId());
+                if (p == null) {
+                    pending.put(s.getStudentId(), new Pending(true, s, null, false));
+                } else {
+                    p.after = null;
+                    p.coursesOnly = false;
+                }
+            }
+            schedule();
+        }
+
+        @Override
+        public synchronized void request(long n) {
+            if (cancelled) {
+                return;
+            }
+            if (n <= 0) {
+                cancel();
+                executor.execute(() -> subscriber.onError(new IllegalArgumentException("请求数必须为正数: " + n)));
+                return;
+            }
+            demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            schedule();
+        }
+
+        @Override
+        public synchronized void cancel() {
+            cancelled = true;
+            pending.clear();
+            bulk = null;
+            subscriptions.remove(this);
+        }
+
+        private void schedule() {
+            if (!scheduled && demand > 0 && (!pending.isEmpty() || bulk != null)) {
+                scheduled = true;
+                executor.execute(this::deliver);
+            }
+        }
+
+        private void deliver() {
+            List<StudentEvent> batch = new ArrayList<>();
+            synchronized (this) {
+                if (cancelled) {
+                    scheduled = false;
+                    return;
+                }
+                for (Pending p : pending.values()) {
+                    StudentEvent event = p.toEvent();
+                    if (event != null) batch.add(event);
+                }
+                if (bulk != null) batch.add(bulk);
+                pending.clear();
+                bulk = null;
+                if (!batch.isEmpty()) demand--;
+            }
+            try {
+                if (!batch.isEmpty()) {
+                    subscriber.onNext(batch);
+                }
+            } catch (RuntimeException e) {
+                System.err.println("处理数据变更事件失败: " + e.getMessage());
+                e.printStackTrace();
+            } finally {
+                synchronized (this) {
+                    scheduled = false;
+                    schedule();
+                }
+            }
+        }
+    }
+}
@@ -1,21 +1,36 @@
 package service;
 
 import model.Course;
+import model.DuplicateCoursePolicy;
 import model.Student;
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
  * 学生管理类
- * 负责学生数据的增删改查等业务逻辑
+ * 负责学生数据的增删改查等业务逻辑（进程内的 {@link StudentDataSource} 实现）
  */
-public class StudentManager {
+public class StudentManager implements StudentDataSource {
     private List<Student> students;
     private FileManager fileManager;
+    private final RankingService rankingService = new RankingService(() -> students);
+    private final StudentEventPublisher events = new StudentEventPublisher();
+    private ImportLedger importLedger;
+    // 已修改但尚未成功保存的变更数（保存失败时累积）
+    private final AtomicInteger pendingChanges = new AtomicInteger();
+    // 最近一次成绩导入的行数、字节数与耗时
+    private volatile long lastImportLines;
+    private volatile long lastImportBytes;
+    private volatile long lastImportNanos;
 
     public StudentManager(String dataFilePath) {
         this.fileManager = new FileManager(dataFilePath);
+        this.fileManager.setMergeHandler(this::applyExternalChanges);
         this.students = new ArrayList<>();
         loadData();
     }
@@ -25,6 +40,7 @@ public class StudentManager {
      */
     public void loadData() {
         students = fileManager.loadStudents();
+        rankingService.invalidateAll();
         System.out.println("成功加载 " + students.size() + " 条学生记录");
     }
 
@@ -33,7 +49,33 @@ public class StudentManager {
      * @return 是否保存成功
      */
     public boolean saveData() {
-        return fileManager.saveStudents(students);
+        boolean saved = fileManager.saveStudents(students);
+        if (saved) {
+            pendingChanges.set(0);
+        }
+        return saved;
+    }
+
+    /**
+     * 最近一次被拒绝的保存中，本进程与其他程序都修改过的学号（保存成功后为空）
+     */
+    @Override
+    public Set<String> getSaveConflicts() {
+        return fileManager.getLastConflicts();
+    }
+
+    /**
+     * 解决保存冲突：冲突的学生改用数据文件中的版本（放弃本进程对它们的修改并发布相应变更事件），
+     * 其余未保存的修改与其他程序的修改合并后保存
+     * @return 是否保存成功
+     */
+    @Override
+    public boolean resolveSaveConflicts() {
+        boolean saved = fileManager.saveStudents(students, true);
+        if (saved) {
+            pendingChanges.set(0);
+        }
+        return saved;
     }
 
     /**
@@ -52,6 +94,9 @@ public class StudentManager {
         }
 
         students.add(student);
+        rankingService.invalidateMajor(student.getMajor());
+        pendingChanges.incrementAndGet();
+        events.publish(new StudentEvent.StudentAdded(student));
         return saveData();
     }
 
@@ -67,6 +112,9 @@ public class StudentManager {
         }
 
         students.remove(student);
+        rankingService.invalidateMajor(student.getMajor());
+        pendingChanges.incrementAndGet();
+        events.publish(new StudentEvent.StudentRemoved(student));
         return saveData();
     }
 
@@ -87,6 +135,23 @@ public class StudentManager {
 
         int index = students.indexOf(existingStudent);
         students.set(index, updatedStudent);
+        rankingService.invalidateMajor(existingStudent.getMajor());
+        rankingService.invalidateMajor(updatedStudent.getMajor());
+        pendingChanges.incrementAndGet();
+        events.publish(new StudentEvent.StudentUpdated(existingStudent, updatedStudent));
+        return saveData();
+    }
+
+    /**
+     * 学生课程/成绩被直接修改后调用（如课程管理对话框）：使其专业排名失效并保存
+     * @param student 课程发生变化的学生
+     * @return 是否保存成功
+     */
+    public boolean saveCourseChanges(Student student) {
+        student.calculateGPA();
+        rankingService.invalidateMajor(student.getMajor());
+        pendingChanges.incrementAndGet();
+        events.publish(new StudentEvent.CoursesChanged(student));
         return saveData();
     }
 
@@ -110,13 +175,7 @@ public class StudentManager {
      * @return 匹配的学生列表
      */
     public List<Student> searchByName(String name) {
-        if (name == null || name.trim().isEmpty()) {
-            return new ArrayList<>(students);
-        }
-
-        return students.stream()
-                .filter(s -> s.getName().contains(name))
-                .collect(Collectors.toList());
+        return filter("姓名", name, s -> s.getName().contains(name));
     }
 
     /**
@@ -125,13 +184,7 @@ public class StudentManager {
      * @return 匹配的学生列表
      */
     public List<Student> searchByMajor(String major) {
-        if (major == null || major.trim().isEmpty()) {
-            return new ArrayList<>(students);
-        }
-
-        return students.stream()
-                .filter(s -> s.getMajor().contains(major))
-                .collect(Collectors.toList());
+        return filter("专业", major, s -> s.getMajor().contains(major));
     }
 
     /**
@@ -140,13 +193,7 @@ public class StudentManager {
      * @return 匹配的学生列表
      */
     public List<Student> searchByClass(String classNumber) {
-        if (classNumber == null || classNumber.trim().isEmpty()) {
-            return new ArrayList<>(students);
-        }
-
-        return students.stream()
-                .filter(s -> s.getClassNumber().contains(classNumber))
-                .collect(Collectors.toList());
+        return filter("班级", classNumber, s -> s.getClassNumber().contains(classNumber));
     }
 
     /**
@@ -155,16 +202,38 @@ public class StudentManager {
      * @return 匹配的学生列表
      */
     public List<Student> search(String keyword) {
+        return filter("综合", keyword, s -> s.getStudentId().contains(keyword) ||
+                s.getName().contains(keyword) ||
+                s.getMajor().contains(keyword) ||
+                s.getClassNumber().contains(keyword));
+    }
+
+    /**
+     * 按条件筛选学生；关键字为空时返回全部学生。记录耗时指标与 JFR 搜索事件
+     * @param kind 查询类型（用于事件）
+     */
+    private List<Student> filter(String kind, String keyword, Predicate<Student> matcher) {
+        long start = Metrics.start();
+        ServiceEvents.Search event = new ServiceEvents.Search();
+        event.begin();
+        List<Student> result;
         if (keyword == null || keyword.trim().isEmpty()) {
-            return new ArrayList<>(students);
+            result = new ArrayList<>(students);
+        } else {
+            result = students.stream()
+                    .filter(matcher)
+                    .collect(Collectors.toList());
         }
-
-        return students.stream()
-                .filter(s -> s.getStudentId().contains(keyword) ||
-                           s.getName().contains(keyword) ||
-                           s.getMajor().contains(keyword) ||
-                           s.getClassNumber().contains(keyword))
-                .collect(Collectors.toList());
+        Metrics.stop("student.search", start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.kind = kind;
+            event.keywordLength = keyword == null ? 0 : keyword.length();
+            event.rosterSize = students.size();
+            event.results = result.size();
+            event.commit();
+        }
+        return result;
     }
 
     /**
@@ -175,6 +244,18 @@ public class StudentManager {
         return new ArrayList<>(students);
     }
 
+    /**
+     * 分页获取学生，只复制请求的一段（服务端列表、大名单分页显示）
+     * @param offset 起始位置
+     * @param limit 最多返回条数
+     * @return 该页学生，offset 超出范围时为空列表
+     */
+    public List<Student> getStudents(int offset, int limit) {
+        int from = Math.max(0, Math.min(offset, students.size()));
+        int to = (int) Math.min((long) from + Math.max(0, limit), students.size());
+        return new ArrayList<>(students.subList(from, to));
+    }
+
     /**
      * 获取学生总数
      * @return 学生数量
@@ -209,29 +290,34 @@ public class StudentManager {
      * @return 统计信息Map
      */
     public Map<String, Object> getStatistics() {
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("总人数", students.size());
+        long start = Metrics.start();
+        try {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("总人数", students.size());
 
-        if (students.isEmpty()) {
-            return stats;
-        }
+            if (students.isEmpty()) {
+                return stats;
+            }
 
-        // 男女人数统计
-        long maleCount = students.stream().filter(s -> "男".equals(s.getGender())).count();
-        long femaleCount = students.stream().filter(s -> "女".equals(s.getGender())).count();
-        stats.put("男生人数", maleCount);
-        stats.put("女生人数", femaleCount);
+            // 男女人数统计
+            long maleCount = students.stream().filter(s -> "男".equals(s.getGender())).count();
+            long femaleCount = students.stream().filter(s -> "女".equals(s.getGender())).count();
+            stats.put("男生人数", maleCount);
+            stats.put("女生人数", femaleCount);
 
-        // 平均年龄
-        double avgAge = students.stream().mapToInt(Student::getAge).average().orElse(0);
-        stats.put("平均年龄", String.format("%.1f", avgAge));
+            // 平均年龄
+            double avgAge = students.stream().mapToInt(Student::getAge).average().orElse(0);
+            stats.put("平均年龄", String.format("%.1f", avgAge));
 
-        // 专业分布
-        Map<String, Long> majorDistribution = students.stream()
-                .collect(Collectors.groupingBy(Student::getMajor, Collectors.counting()));
-        stats.put("专业分布", majorDistribution);
+            // 专业分布
+            Map<String, Long> majorDistribution = students.stream()
+                    .collect(Collectors.groupingBy(Student::getMajor, Collectors.counting()));
+            stats.put("专业分布", majorDistribution);
 
-        return stats;
+            return stats;
+        } finally {
+            Metrics.stop("student.statistics", start);
+        }
     }
 
     /**
@@ -255,10 +341,29 @@ public class StudentManager {
      * @return 该专业学生列表,按GPA降序排列
      */
     public List<Student> getStudentsByMajorRanked(String major) {
-        return students.stream()
-                .filter(s -> s.getMajor().equals(major))
-                .sorted((s1, s2) -> Double.compare(s2.getGpa(), s1.getGpa()))
-                .collect(Collectors.toList());
+        return new ArrayList<>(rankingService.getMajor(major).getStudents());
+    }
+
+    /**
+     * 获取指定专业的并列排名结果(缓存,不可变)
+     * @param major 专业名称
+     */
+    public RankingService.Ranking getMajorRanking(String major) {
+        return rankingService.getMajor(major);
+    }
+
+    /**
+     * 获取全体学生的并列排名结果(缓存,不可变)
+     */
+    public RankingService.Ranking getOverallRanking() {
+        return rankingService.getOverall();
+    }
+
+    /**
+     * 获取所有专业的排名结果(按专业名排序)
+     */
+    public SortedMap<String, RankingService.Ranking> getAllMajorRankings() {
+        return rankingService.getAllMajors();
     }
 
     /**
@@ -274,7 +379,7 @@ public class StudentManager {
     }
 
     /**
-     * 获取学生在专业内的排名
+     * 获取学生在专业内的排名(GPA 相同名次相同)
      * @param studentId 学号
      * @return 排名(1为第一名),如果学生不存在或没有成绩返回-1
      */
@@ -284,10 +389,10 @@ public class StudentManager {
             return -1;
         }
 
-        List<Student> majorStudents = getStudentsByMajorRanked(student.getMajor());
-        for (int i = 0; i < majorStudents.size(); i++) {
-            if (majorStudents.get(i).getStudentId().equals(studentId)) {
-                return i + 1;
+        RankingService.Ranking ranking = rankingService.getMajor(student.getMajor());
+        for (int i = 0; i < ranking.size(); i++) {
+            if (ranking.get(i).getStudentId().equals(studentId)) {
+                return ranking.getRank(i);
             }
         }
         return -1;
@@ -299,59 +404,239 @@ public class StudentManager {
      * @return 导入成功的记录数
      */
     public int importScoresFromFile(String filePath) {
-        int successCount = 0;
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(new FileInputStream(filePath), "UTF-8"))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty() || line.startsWith("#")) {
-                    continue;
-                }
-
-                try {
-                    // 规范化行: 替换全角逗号、去除可能的 BOM、去除多余空格
-                    String normalized = line
-                            .replace('\uFEFF', ' ')               // 去除BOM
-                            .replace('\uFF0C', ',')               // 全角逗号
-                            .replace('，', ',')                     // 中文逗号（冗余）
-                            .trim();
-
-                    // 有些用户可能使用中文输入法输入空格或带中文逗号间隔
-                    // 再次压缩多余空白
-                    normalized = normalized.replaceAll("\s+", "");
-
-                    // 格式: 学号,课程名,学分,成绩
-                    String[] parts = normalized.split(",");
-                    if (parts.length != 4) {
-                        System.err.println("跳过无效行(字段数量!=4): " + line);
-                        continue;
-                    }
-
-                    String studentId = parts[0].trim();
-                    String courseName = parts[1].trim();
-                    double credit = Double.parseDouble(parts[2].trim());
-                    double score = Double.parseDouble(parts[3].trim());
-
-                    Student student = findStudentById(studentId);
-                    if (student != null) {
-                        student.addCourse(new Course(courseName, credit, score));
-                        successCount++;
-                    } else {
-                        System.err.println("学号不存在: " + studentId);
-                    }
-                } catch (Exception e) {
-                    System.err.println("解析行失败: " + line + " - " + e.getMessage());
-                }
+        return importScores(filePath).getImportedCount();
+    }
+
+    /**
+     * 导入成绩数据并返回汇总（读取/解析/应用流水线，见 {@link ScoreImporter}）
+     * @param filePath 成绩文件路径
+     * @return 导入结果汇总
+     */
+    public ScoreImporter.ImportResult importScores(String filePath) {
+        return new ScoreImporter(this).importFile(filePath);
+    }
+
+    /**
+     * 按指定模式与同名课程策略导入成绩，问题行写入报告文件
+     * @param filePath 成绩文件路径
+     * @param mode 导入模式（尽量导入 / 仅校验 / 全部或不导入）
+     * @param policy 同名课程处理策略
+     * @param reportFile 问题报告文件，为 null 时输出到标准错误
+     * @return 导入结果汇总
+     */
+    public ScoreImporter.ImportResult importScores(String filePath, ScoreImporter.Mode mode,
+                                                   DuplicateCoursePolicy policy, File reportFile) {
+        return importScores(filePath, mode, policy, reportFile, false);
+    }
+
+    /**
+     * 导入成绩并使用导入台账：已导入过的相同文件直接跳过，修改过的文件只应用变化的行
+     * @param reimport 为 true 时忽略台账历史，整体重新导入
+     */
+    public ScoreImporter.ImportResult importScores(String filePath, ScoreImporter.Mode mode,
+                                                   DuplicateCoursePolicy policy, File reportFile,
+                                                   boolean reimport) {
+        return importScores(filePath, mode, policy, reportFile, reimport, ImportListener.NONE);
+    }
+
+    /**
+     * 导入成绩（使用导入台账），并回调进度、推送问题行；监听方可在应用阶段之前取消
+     */
+    public ScoreImporter.ImportResult importScores(String filePath, ScoreImporter.Mode mode,
+                                                   DuplicateCoursePolicy policy, File reportFile,
+                                                   boolean reimport, ImportListener listener) {
+        return new ScoreImporter(this, getImportLedger())
+                .importFile(filePath, mode, policy, reportFile, reimport, listener);
+    }
+
+    /**
+     * 一次导入多个成绩文件（使用导入台账）：并发解析，合并后只应用一次、保存一次
+     * @param filePaths 成绩文件路径
+     * @param reportFile 全部文件共用的问题报告，为 null 时输出到标准错误
+     * @return 逐文件结果与汇总
+     */
+    public ScoreImporter.BatchResult importScores(List<String> filePaths, ScoreImporter.Mode mode,
+                                                  DuplicateCoursePolicy policy, File reportFile,
+                                                  boolean reimport, ImportListener listener) {
+        return new ScoreImporter(this, getImportLedger())
+                .importFiles(filePaths, mode, policy, reportFile, reimport, listener);
+    }
+
+    /**
+     * 导入台账，与数据文件放在同一目录（同目录的数据文件共用，记录按数据文件区分）
+     */
+    synchronized ImportLedger getImportLedger() {
+        if (importLedger == null) {
+            File dataFile = new File(fileManager.getFilePath());
+            File dataDir = dataFile.getAbsoluteFile().getParentFile();
+            importLedger = new ImportLedger(new File(dataDir, "import_ledger.dat"), dataFile);
+        }
+        return importLedger;
+    }
+
+    /**
+     * 全部学生的课程总数
+     */
+    public int getCourseCount() {
+        int count = 0;
+        for (Student s : students) {
+            count += s.getCourseCount();
+        }
+        return count;
+    }
+
+    /**
+     * 已修改但尚未成功保存的变更数；每次修改都会立即保存，只有保存失败时才大于 0
+     */
+    public int getPendingChanges() {
+        return pendingChanges.get();
+    }
+
+    /**
+     * 丢弃排名缓存并立即重新计算全体与各专业排名
+     */
+    public void rebuildRankings() {
+        rankingService.invalidateAll();
+        rankingService.getOverall();
+    }
+
+    /**
+     * 数据变更事件（增删改、课程变化、批量导入、数据文件外部修改）
+     */
+    @Override
+    public StudentEventPublisher getEvents() {
+        return events;
+    }
+
+    RankingService getRankingService() {
+        return rankingService;
+    }
+
+    FileManager getFileManager() {
+        return fileManager;
+    }
+
+    /**
+     * 记录一次成绩导入的规模与耗时（供监控计算吞吐量）
+     */
+    void recordImport(long lines, long bytes, long nanos) {
+        lastImportLines = lines;
+        lastImportBytes = bytes;
+        lastImportNanos = nanos;
+    }
+
+    long getLastImportLines() {
+        return lastImportLines;
+    }
+
+    long getLastImportBytes() {
+        return lastImportBytes;
+    }
+
+    long getLastImportNanos() {
+        return lastImportNanos;
+    }
+
+    /**
+     * 监视数据文件：被其他程序改写后在后台解析变化的记录，再在 owner 线程按学号增量应用
+     * @param owner 访问学生名单的线程（如界面线程）
+     * @param onApplied 变更应用后在 owner 线程回调，可为 null
+     * @throws IOException 无法监视数据文件所在目录
+     */
+    public void startWatching(Executor owner, Consumer<FileManager.Changes> onApplied) throws IOException {
+        fileManager.startWatching(changes -> owner.execute(() -> {
+            // 期间本进程已保存（保存时已合并同一变更）则丢弃
+            if (!fileManager.acknowledge(changes) || changes.isEmpty()) {
+                return;
+            }
+            applyExternalChanges(changes);
+            System.out.println("数据文件已被其他程序修改，已同步: " + changes);
+            if (onApplied != null) {
+                onApplied.accept(changes);
             }
+        }));
+    }
 
-            if (successCount > 0) {
-                saveData();
+    /**
+     * 应用其他进程写入数据文件的变更：按学号替换或追加、删除，使涉及专业的排名失效
+     */
+    void applyExternalChanges(FileManager.Changes changes) {
+        Map<String, Integer> positions = new HashMap<>(students.size() * 2);
+        for (int i = 0; i < students.size(); i++) {
+            positions.putIfAbsent(students.get(i).getStudentId(), i);
+        }
+        for (Student student : changes.getUpserted()) {
+            Integer index = positions.get(student.getStudentId());
+            if (index != null) {
+                Student previous = students.get(index);
+                rankingService.invalidateMajor(previous.getMajor());
+                students.set(index, student);
+                events.publish(new StudentEvent.StudentUpdated(previous, student));
+            } else {
+                positions.put(student.getStudentId(), students.size());
+                students.add(student);
+                events.publish(new StudentEvent.StudentAdded(student));
             }
-        } catch (IOException e) {
-            System.err.println("读取成绩文件失败: " + e.getMessage());
+            rankingService.invalidateMajor(student.getMajor());
+        }
+        if (!changes.getRemoved().isEmpty()) {
+            students.removeIf(s -> {
+                if (!changes.getRemoved().contains(s.getStudentId())) return false;
+                rankingService.invalidateMajor(s.getMajor());
+                events.publish(new StudentEvent.StudentRemoved(s));
+                return true;
+            });
         }
+    }
+
+    /**
+     * 构建 学号 -> 学生 索引（导入等批量查找使用）
+     */
+    Map<String, Student> buildStudentIndex() {
+        Map<String, Student> index = new HashMap<>(students.size() * 2);
+        for (Student s : students) {
+            index.putIfAbsent(s.getStudentId(), s);
+        }
+        return index;
+    }
 
-        return successCount;
+    /**
+     * 批量应用导入的课程：按同名课程策略逐门合并（课程名索引 O(1) 查找），每个学生只重算一次 GPA，
+     * 使相关专业排名失效，最后保存一次；结束后释放各学生的课程名索引
+     * @param policy 同名课程处理策略
+     * @param atomic 为 true 时保存失败会撤销本次全部修改
+     * @param onMerged 每门课程的合并结果回调，可为 null
+     * @return 是否保存成功
+     */
+    boolean applyImportedCourses(Map<Student, List<Course>> coursesByStudent, DuplicateCoursePolicy policy,
+                                 boolean atomic, Consumer<DuplicateCoursePolicy.Outcome> onMerged) {
+        Map<Student, List<Course>> snapshots = atomic ? new HashMap<>() : null;
+        Set<String> majors = new LinkedHashSet<>();
+        for (Map.Entry<Student, List<Course>> e : coursesByStudent.entrySet()) {
+            Student student = e.getKey();
+            if (atomic) {
+                snapshots.put(student, student.getCourses() == null
+                        ? new ArrayList<>() : new ArrayList<>(student.getCourses()));
+            }
+            for (Course course : e.getValue()) {
+                DuplicateCoursePolicy.Outcome outcome = student.mergeCourse(course, policy);
+                if (onMerged != null) onMerged.accept(outcome);
+            }
+            student.calculateGPA();
+            student.releaseCourseIndex();
+            rankingService.invalidateMajor(student.getMajor());
+            majors.add(student.getMajor());
+        }
+        pendingChanges.incrementAndGet();
+        boolean saved = saveData();
+        if (!saved && atomic) {
+            for (Map.Entry<Student, List<Course>> e : snapshots.entrySet()) {
+                e.getKey().setCourses(e.getValue());
+            }
+            pendingChanges.decrementAndGet();
+        } else if (!coursesByStudent.isEmpty()) {
+            events.publish(new StudentEvent.BulkImportCompleted(majors, coursesByStudent.size()));
+        }
+        return saved;
     }
 }
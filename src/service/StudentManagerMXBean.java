@@ -0,0 +1,51 @@
+package service;
+
+/**
+ * 学生管理器监控接口（JConsole / VisualVM 中显示为 sims:type=StudentManager）
+ */
+public interface StudentManagerMXBean {
+    /** 学生人数 */
+    int getStudentCount();
+
+    /** 全部学生的课程总数 */
+    int getCourseCount();
+
+    /** 已缓存的专业排名数 */
+    int getCachedMajorRankings();
+
+    /** 排名缓存命中率（0~1），尚无查询时为 0 */
+    double getRankingCacheHitRatio();
+
+    /** 排名缓存命中次数 */
+    long getRankingCacheHits();
+
+    /** 排名缓存未命中（重新计算）次数 */
+    long getRankingCacheMisses();
+
+    /** 导入台账中保留逐行指纹的来源文件数 */
+    int getLedgerSourceCount();
+
+    /** 导入台账中完整导入的内容摘要数 */
+    int getLedgerDigestCount();
+
+    /** 已修改但尚未成功保存的变更数 */
+    int getPendingChanges();
+
+    /** 最近一次成绩导入读取的行数 */
+    long getLastImportLines();
+
+    /** 最近一次成绩导入耗时（毫秒） */
+    long getLastImportMillis();
+
+    /** 最近一次成绩导入吞吐量（行/秒） */
+    double getLastImportLinesPerSecond();
+
+    /** 最近一次成绩导入吞吐量（MB/秒） */
+    double getLastImportMegabytesPerSecond();
+
+    /** 立即保存数据 */
+    boolean flush();
+
+    /** 丢弃排名缓存并重新计算 */
+    void rebuildIndex();
+}
@@ -0,0 +1,447 @@
+package service;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * XLSX 成绩表流式读取器，不依赖第三方库（与 {@link ExcelExporter} 手写 XLSX 相对应）。
+ * 直接从 ZIP 中读取：xl/workbook.xml 与其关系文件确定工作表顺序，xl/sharedStrings.xml 载入紧凑的共享字符串表，
+ * 再用 StAX 逐行流式解析各 xl/worksheets/sheetN.xml。
+ * <p>
+ * 每个工作表的 A-D 列依次为 学号、课程名、学分、成绩，其余列忽略；
+ * 首个非空行的学分、成绩不是数值时视为表头跳过。行号使用 Excel 行号。
+ * 读取线程只做 XML 解析，每 {@link #ROWS_PER_CHUNK} 行交给解析线程池转换为成绩记录，
+ * 内存占用与行数无关，只与共享字符串表（去重后的文本）大小有关。
+ */
+final class XlsxScoreReader {
+    /** 每块交给解析线程的行数 */
+    static final int ROWS_PER_CHUNK = 8192;
+    /** 读取的列数：学号、课程名、学分、成绩 */
+    private static final int COLUMNS = 4;
+    private static final String REL_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    private static final XMLInputFactory XML_FACTORY = XMLInputFactory.newInstance();
+
+    static {
+        // 成绩表来自外部，不解析 DTD 与外部实体
+        XML_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    /**
+     * 一块原始行：每行 4 个单元格文本（缺失为 null）与 Excel 行号
+     */
+    static final class RowChunk {
+        final String sheetName;
+        final String[] cells = new String[ROWS_PER_CHUNK * COLUMNS];
+        final long[] rowNumbers = new long[ROWS_PER_CHUNK];
+        int size;
+        /** 读取的行数（含跳过的表头与空行） */
+        long lineCount;
+
+        RowChunk(String sheetName) {
+            this.sheetName = sheetName;
+        }
+
+        boolean isFull() {
+            return size == ROWS_PER_CHUNK;
+        }
+    }
+
+    /**
+     * 行块接收方
+     */
+    interface ChunkSink {
+        /**
+         * @param bytesRead 自上次回调以来读取的文件字节数（按压缩比估算）
+         * @return 是否继续读取
+         */
+        boolean accept(RowChunk chunk, long bytesRead) throws InterruptedException;
+    }
+
+    private XlsxScoreReader() {
+    }
+
+    /**
+     * 按工作表顺序流式读取全部工作表，依次交出行块
+     */
+    static void read(Path file, ChunkSink sink) throws IOException, InterruptedException {
+        try (ZipFile zip = new ZipFile(file.toFile())) {
+            SharedStrings sst = loadSharedStrings(zip);
+            for (Map.Entry<String, String> sheet : listSheets(zip).entrySet()) {
+                ZipEntry entry = zip.getEntry(sheet.getValue());
+                if (entry == null) continue;
+                if (!readSheet(zip, entry, sheet.getKey(), sst, sink)) {
+                    return;
+                }
+            }
+        } catch (XMLStreamException | NumberFormatException e) {
+            // XML 结构错误，或行号、共享字符串编号不是合法数字
+            throw new IOException("XLSX 格式错误: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 工作表名称 -> ZIP 内路径，按 workbook.xml 中的顺序；缺少 workbook.xml 时按 sheetN 编号排序
+     */
+    private static Map<String, String> listSheets(ZipFile zip) throws IOException, XMLStreamException {
+        Map<String, String> sheets = new LinkedHashMap<>();
+        ZipEntry workbook = zip.getEntry("xl/workbook.xml");
+        ZipEntry rels = zip.getEntry("xl/_rels/workbook.xml.rels");
+        if (workbook != null && rels != null) {
+            Map<String, String> targets = new HashMap<>();
+            forEachElement(zip, rels, "Relationship", r -> {
+                String target = r.getAttributeValue(null, "Target");
+                if (target == null) return;
+                targets.put(r.getAttributeValue(null, "Id"),
+                        target.startsWith("/") ? target.substring(1) : "xl/" + target);
+            });
+            forEachElement(zip, workbook, "sheet", r -> {
+                String id = r.getAttributeValue(REL_NS, "id");
+                String target = targets.get(id);
+                if (target != null) {
+                    sheets.put(r.getAttributeValue(null, "name"), target);
+                }
+            });
+            if (!sheets.isEmpty()) return sheets;
+        }
+        List<String> names = new ArrayList<>();
+        Enumeration<? extends ZipEntry> entries = zip.entries();
+        while (entries.hasMoreElements()) {
+            String name = entries.nextElement().getName();
+            if (name.matches("xl/worksheets/sheet\\d+\\.xml")) names.add(name);
+        }
+        names.sort(Comparator.comparingInt(n -> Integer.parseInt(n.replaceAll("\\D", ""))));
+        for (String name : names) {
+            sheets.put(name.substring(name.lastIndexOf('/') + 1, name.length() - 4), name);
+        }
+        return sheets;
+    }
+
+    private interface ElementHandler {
+        void handle(XMLStreamReader reader);
+    }
+
+    /**
+     * 对条目中每个名为 localName 的元素回调一次（只读属性）
+     */
+    private static void forEachElement(ZipFile zip, ZipEntry entry, String localName, ElementHandler handler)
+            throws IOException, XMLStreamException {
+        try (InputStream in = zip.getInputStream(entry)) {
+            XMLStreamReader r = XML_FACTORY.createXMLStreamReader(in);
+            try {
+                while (r.hasNext()) {
+                    if (r.next() == XMLStreamConstants.START_ELEMENT && localName.equals(r.getLocalName())) {
+                        handler.handle(r);
+                    }
+                }
+            } finally {
+                r.close();
+            }
+        }
+    }
+
+    /**
+     * 载入共享字符串表：每个 si 的全部 t 文本拼接（富文本分段），忽略注音 rPh
+     */
+    private static SharedStrings loadSharedStrings(ZipFile zip) throws IOException, XMLStreamException {
+        SharedStrings sst = new SharedStrings();
+        ZipEntry entry = zip.getEntry("xl/sharedStrings.xml");
+        if (entry == null) return sst;
+        try (InputStream in = zip.getInputStream(entry)) {
+            XMLStreamReader r = XML_FACTORY.createXMLStreamReader(in);
+            try {
+                StringBuilder text = new StringBuilder();
+                int phonetic = 0;
+                while (r.hasNext()) {
+                    int event = r.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        String name = r.getLocalName();
+                        if ("si".equals(name)) {
+                            text.setLength(0);
+                        } else if ("rPh".equals(name)) {
+                            phonetic++;
+                        } else if ("t".equals(name) && phonetic == 0) {
+                            text.append(r.getElementText());
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        String name = r.getLocalName();
+                        if ("si".equals(name)) {
+                            sst.add(text);
+                        } else if ("rPh".equals(name)) {
+                            phonetic--;
+                        }
+                    }
+                }
+            } finally {
+                r.close();
+            }
+        }
+        return sst;
+    }
+
+    /**
+     * 流式读取一个工作表的 sheetData
+     * @return 是否继续读取后续工作表
+     */
+    private static boolean readSheet(ZipFile zip, ZipEntry entry, String sheetName, SharedStrings sst,
+                                     ChunkSink sink) throws IOException, XMLStreamException, InterruptedException {
+        long compressed = entry.getCompressedSize();
+        long size = entry.getSize();
+        try (CountingInputStream in = new CountingInputStream(zip.getInputStream(entry))) {
+            XMLStreamReader r = XML_FACTORY.createXMLStreamReader(in);
+            try {
+                RowChunk chunk = new RowChunk(sheetName);
+                String[] row = new String[COLUMNS];
+                long rowNumber = 0;
+                long reported = 0;
+                boolean headerChecked = false;
+                int column = 0;
+                String type = null;
+                boolean inInline = false;
+                StringBuilder inline = new StringBuilder();
+                while (r.hasNext()) {
+                    int event = r.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        String name = r.getLocalName();
+                        if ("row".equals(name)) {
+                            String ref = r.getAttributeValue(null, "r");
+                            rowNumber = ref != null ? Long.parseLong(ref) : rowNumber + 1;
+                            Arrays.fill(row, null);
+                            column = 0;
+                        } else if ("c".equals(name)) {
+                            String ref = r.getAttributeValue(null, "r");
+                            if (ref != null) column = columnIndex(ref);
+                            type = r.getAttributeValue(null, "t");
+                        } else if ("v".equals(name)) {
+                            String value = r.getElementText();
+                            if (column < COLUMNS) row[column] = cellText(value, type, column, sst);
+                        } else if ("is".equals(name)) {
+                            inInline = true;
+                            inline.setLength(0);
+                        } else if ("t".equals(name) && inInline) {
+                            inline.append(r.getElementText());
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        String name = r.getLocalName();
+                        if ("is".equals(name)) {
+                            inInline = false;
+                            if (column < COLUMNS) row[column] = inline.toString();
+                        } else if ("c".equals(name)) {
+                            column++;
+                        } else if ("row".equals(name)) {
+                            chunk.lineCount++;
+                            if (isBlank(row)) continue;
+                            if (!headerChecked) {
+                                headerChecked = true;
+                                if (isHeader(row)) continue;
+                            }
+                            System.arraycopy(row, 0, chunk.cells, chunk.size * COLUMNS, COLUMNS);
+                            chunk.rowNumbers[chunk.size++] = rowNumber;
+                            if (chunk.isFull()) {
+                                long read = estimate(in.count, size, compressed);
+                                if (!sink.accept(chunk, read - reported)) return false;
+                                reported = read;
+                                chunk = new RowChunk(sheetName);
+                            }
+                        } else if ("sheetData".equals(name)) {
+                            break;
+                        }
+                    }
+                }
+                return sink.accept(chunk, Math.max(0, compressed - reported));
+            } finally {
+                r.close();
+            }
+        }
+    }
+
+    /**
+     * 单元格文本：共享字符串按编号取值，布尔值转为 TRUE/FALSE；
+     * 学号、课程名列的数值单元格去掉 Excel 的科学计数与多余小数（2.021001E6 -> 2021001）
+     */
+    private static String cellText(String value, String type, int column, SharedStrings sst) {
+        if (type == null || "n".equals(type)) {
+            return column < 2 ? plainNumber(value) : value;
+        }
+        switch (type) {
+            case "s":
+                return sst.get(Integer.parseInt(value.trim()));
+            case "b":
+                return "1".equals(value.trim()) ? "TRUE" : "FALSE";
+            default:
+                // str（公式结果）、e（错误值）、inlineStr 的 v 等按原文
+                return value;
+        }
+    }
+
+    private static String plainNumber(String value) {
+        try {
+            return new BigDecimal(value.trim()).stripTrailingZeros().toPlainString();
+        } catch (NumberFormatException e) {
+            return value;
+        }
+    }
+
+    /** 单元格引用中的列号（A -> 0） */
+    private static int columnIndex(String ref) {
+        int column = 0;
+        for (int i = 0; i < ref.length(); i++) {
+            char c = ref.charAt(i);
+            if (c < 'A' || c > 'Z') break;
+            column = column * 26 + (c - 'A' + 1);
+        }
+        return column - 1;
+    }
+
+    private static boolean isBlank(String[] row) {
+        for (String cell : row) {
+            if (cell != null && !stripBlanks(cell).isEmpty()) return false;
+        }
+        return true;
+    }
+
+    /** 学分、成绩均有内容但都不是数值：表头行 */
+    private static boolean isHeader(String[] row) {
+        return row[2] != null && row[3] != null && !isNumber(row[2]) && !isNumber(row[3]);
+    }
+
+    private static boolean isNumber(String text) {
+        try {
+            Double.parseDouble(stripBlanks(text));
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /** 按已解压字节数估算对应的压缩字节数 */
+    private static long estimate(long uncompressedRead, long size, long compressed) {
+        if (size <= 0 || compressed <= 0) return 0;
+        return Math.min(compressed, (long) (uncompressedRead * (double) compressed / size));
+    }
+
+    /**
+     * 解析一块原始行（在解析线程池中执行），规则与 CSV 一致：
+     * 去掉全部空白（含全角空格与 BOM），四列必须都有内容，学分与成绩须为数值
+     */
+    static ScoreImporter.ParsedBatch parse(RowChunk chunk) {
+        ScoreImporter.ParsedBatch parsed = new ScoreImporter.ParsedBatch();
+        parsed.location = "工作表 " + chunk.sheetName + " ";
+        parsed.absoluteLineNumbers = true;
+        parsed.lineCount = chunk.lineCount;
+        String[] fields = new String[COLUMNS];
+        for (int i = 0; i < chunk.size; i++) {
+            long line = chunk.rowNumbers[i];
+            boolean complete = true;
+            for (int c = 0; c < COLUMNS; c++) {
+                String cell = chunk.cells[i * COLUMNS + c];
+                fields[c] = cell == null ? "" : stripBlanks(cell);
+                complete &= !fields[c].isEmpty();
+            }
+            if (!complete) {
+                parsed.errors.add(new ScoreImporter.LineError(line,
+                        "跳过无效行(字段数量!=4): " + joinFields(fields)));
+                continue;
+            }
+            try {
+                double credit = Double.parseDouble(fields[2]);
+                double score = Double.parseDouble(fields[3]);
+                parsed.records.add(new ScoreImporter.ScoreRecord(line, fields[0], fields[1], credit, score));
+            } catch (NumberFormatException e) {
+                parsed.errors.add(new ScoreImporter.LineError(line,
+                        "解析失败: " + String.join(",", fields) + " - " + e.getMessage()));
+            }
+        }
+        return parsed;
+    }
+
+    /** 出错行的原文：以逗号连接，省略末尾的空单元格 */
+    private static String joinFields(String[] fields) {
+        int n = fields.length;
+        while (n > 0 && fields[n - 1].isEmpty()) n--;
+        return String.join(",", Arrays.asList(fields).subList(0, n));
+    }
+
+    /** 去掉全部空白：空白字符、BOM、全角空格（与 CSV 导入的标准化一致） */
+    private static String stripBlanks(String text) {
+        StringBuilder sb = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            boolean blank = Character.isWhitespace(c) || c == '\uFEFF' || c == '\u3000';
+            if (blank && sb == null) {
+                sb = new StringBuilder(text.length());
+                sb.append(text, 0, i);
+            } else if (!blank && sb != null) {
+                sb.append(c);
+            }
+        }
+        return sb == null ? text : sb.toString();
+    }
+
+    /**
+     * 紧凑的共享字符串表：全部文本连续存放在一个 char 数组中，按编号取出时才创建 String
+     */
+    private static final class SharedStrings {
+        private char[] chars = new char[4096];
+        private int[] offsets = new int[257];
+        private int count;
+
+        void add(CharSequence text) {
+            int start = offsets[count];
+            int end = start + text.length();
+            if (end > chars.length) {
+                chars = Arrays.copyOf(chars, Math.max(end, chars.length * 2));
+            }
+            for (int i = 0; i < text.length(); i++) {
+                chars[start + i] = text.charAt(i);
+            }
+            if (count + 2 > offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[++count] = end;
+        }
+
+        String get(int index) {
+            if (index < 0 || index >= count) {
+                throw new NumberFormatException("共享字符串编号越界: " + index);
+            }
+            return new String(chars, offsets[index], offsets[index + 1] - offsets[index]);
+        }
+    }
+
+    /**
+     * 统计已读取（解压后）字节数，用于估算进度
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+}